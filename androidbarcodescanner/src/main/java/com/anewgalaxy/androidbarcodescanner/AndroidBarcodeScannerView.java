@@ -32,6 +32,8 @@ package com.anewgalaxy.androidbarcodescanner;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.KeyEvent;
@@ -40,7 +42,16 @@ import android.widget.FrameLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-
+import androidx.annotation.Nullable;
+
+import com.anewgalaxy.scannercore.BinarizerSelector;
+import com.anewgalaxy.scannercore.DuplicateResultCache;
+import com.anewgalaxy.scannercore.FrameQualityGate;
+import com.anewgalaxy.scannercore.RegionTracker;
+import com.anewgalaxy.scannercore.ResultPublisher;
+import com.anewgalaxy.scannercore.ScanLineDecoder;
+import com.anewgalaxy.scannercore.ScanMetrics;
+import com.anewgalaxy.scannercore.UnchangedFrameFilter;
 import com.google.zxing.ResultPoint;
 import com.journeyapps.barcodescanner.BarcodeCallback;
 import com.journeyapps.barcodescanner.BarcodeResult;
@@ -52,37 +63,73 @@ import com.journeyapps.barcodescanner.camera.CameraParametersCallback;
 import com.journeyapps.barcodescanner.camera.CameraSettings;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
+ * AndroidBarcodeScannerView --
+ * Camera preview with a framing rect, mask and laser, decoding barcodes with a DecodeEngine.
+ *
+ * Threading: every method of the view must be called on the main thread. Frames are decoded on
+ * the decode executor, see setDecodeExecutor(), where duplicates are dropped as well. What is
+ * found comes back to the view on the main thread, where the laser dots are drawn and single
+ * scans stopped. The BarcodeCallback, MultiBarcodeCallback and BarcodeBatchCallback are then
+ * called on the result executor, see setResultExecutor(), which is the main thread itself unless
+ * set otherwise. Results, multiple results and batches arrive in the order their frames were
+ * captured as long as the result executor runs its tasks one at a time in order.
+ * possibleResultPoints() is called on the same executor for every frame that showed any, as
+ * frames finish, so not necessarily in capture order. Subscribers of subscribe() get their
+ * barcodes on the result executor too, or on an executor of their own.
  * @author Tyler Sizse
  */
-public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCallback {
+public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCallback, MultiBarcodeCallback,
+        BarcodeBatchCallback {
 
     public static final String TAG = AndroidBarcodeScannerView.class.getSimpleName();
 
-    private BarcodeFrameView barcodeFrameView;
-    private BarcodeLaserView barcodeLaserView;
-    private BarcodeMaskView barcodeMaskView;
+    private BarcodeOverlayView barcodeOverlayView;
     private TextView barcodeStatusView;
     private BarcodeView barcodeView;
 
     private BarcodeCallback delegate;
 
+    private MultiBarcodeCallback multiDelegate;
+
+    private BarcodeBatchCallback batchDelegate;
+
+    // Null to call the delegates straight from the main thread
+    private Executor resultExecutor;
+
+    private final ResultPublisher<BarcodeResult> resultPublisher = new ResultPublisher<>();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private DecodeEngine decodeEngine;
+
+    // Shared with the decode engine, whose workers drop the duplicates
+    private final DuplicateResultCache duplicateCache;
+
+    private DecodeMode decodeMode = DecodeMode.NONE;
+
+    private enum DecodeMode { NONE, SINGLE, CONTINUOUS, MULTIPLE, BATCH }
+
     public AndroidBarcodeScannerView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
         inflate(context, R.layout.android_barcode_scanner_view, this);
 
-        barcodeFrameView = (BarcodeFrameView) findAndValidateView(R.id.barcode_frame_view, "R.id.barcode_frame_view");
-
-        barcodeLaserView = (BarcodeLaserView) findAndValidateView(R.id.barcode_laser_view, "R.id.barcode_laser_view");
-
-        barcodeMaskView = (BarcodeMaskView) findAndValidateView(R.id.barcode_mask_view, "R.id.barcode_mask_view");
+        barcodeOverlayView = (BarcodeOverlayView) findAndValidateView(R.id.barcode_overlay_view,
+                "R.id.barcode_overlay_view");
 
         barcodeStatusView = (TextView) findAndValidateView(R.id.barcode_status_view, "R.id.barcode_status_view");
 
         barcodeView = (BarcodeView) findAndValidateView(R.id.barcode_surface_view, "R.id.barcode_surface_view");
 
+        decodeEngine = new DecodeEngine(this, this, this);
+
+        duplicateCache = decodeEngine.getDuplicateCache();
+
+        decodeEngine.setDecoderFactory(barcodeView.getDecoderFactory());
+
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.AndroidBarcodeScannerView);
 
         try {
@@ -93,6 +140,20 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
             barcodeView.setFramingRectSize(new Size(w, h));
 
+            decodeEngine.setWorkerCount(a.getInteger(R.styleable.AndroidBarcodeScannerView_scanDecodeWorkers, 0));
+
+            decodeEngine.setLatencyBudget(a.getInteger(R.styleable.AndroidBarcodeScannerView_scanLatencyBudget,
+                    (int) DecodeEngine.DEFAULT_LATENCY_BUDGET_MS));
+
+            duplicateCache.setTimeToLive(a.getInteger(R.styleable.AndroidBarcodeScannerView_scanDuplicateTimeToLive,
+                    (int) DuplicateResultCache.DEFAULT_TIME_TO_LIVE_MS));
+
+            duplicateCache.setCapacity(a.getInteger(R.styleable.AndroidBarcodeScannerView_scanDuplicateCapacity,
+                    DuplicateResultCache.DEFAULT_CAPACITY));
+
+            decodeEngine.setBinarizerStrategy(BinarizerSelector.Strategy.values()[
+                    a.getInteger(R.styleable.AndroidBarcodeScannerView_scanBinarizer, 0)]);
+
         } catch (RuntimeException exception) {
 
             Log.e(TAG, exception.getMessage());
@@ -101,17 +162,11 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
         } finally { a.recycle(); }
 
-        barcodeFrameView.setCameraPreview(barcodeView);
-
-        barcodeMaskView.setCameraPreview(barcodeView);
-
-        barcodeLaserView.setCameraPreview(barcodeView);
+        barcodeOverlayView.setCameraPreview(barcodeView);
 
-        barcodeFrameView.initialize(context, attrs);
+        barcodeOverlayView.initialize(context, attrs);
 
-        barcodeLaserView.initialize(context, attrs);
-
-        barcodeMaskView.initialize(context, attrs);
+        barcodeView.addStateListener(createDecodeStateListener());
 
     }
 
@@ -143,6 +198,519 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
         barcodeView.setDecoderFactory(decoderFactory);
 
+        decodeEngine.setDecoderFactory(decoderFactory);
+
+    }
+
+    /**
+     * setDecodeWorkerCount --
+     * Sets how many preview frames may be decoded in parallel. Takes effect the next time
+     * decoding starts.
+     *
+     * @param workerCount The number of decode workers, or 0 to use one less than the number of
+     *                    available cores
+     */
+    public void setDecodeWorkerCount(int workerCount) {
+
+        decodeEngine.setWorkerCount(workerCount);
+
+    }
+
+    public int getDecodeWorkerCount() {
+
+        return decodeEngine.getWorkerCount();
+
+    }
+
+    /**
+     * setDecodeExecutor --
+     * Decodes preview frames on the given executor, for example a pool shared with the rest of
+     * the app or one whose threads have a chosen priority. No more than getDecodeWorkerCount()
+     * frames are in work on it at once, and it is never shut down by the view. By default every
+     * time decoding starts a pool of that many threads just below normal priority is created,
+     * which is shut down again when decoding stops. Takes effect the next time decoding starts.
+     *
+     * @param executor Runs the decode work, or null for the default pool
+     */
+    public void setDecodeExecutor(@Nullable Executor executor) {
+
+        decodeEngine.setExecutor(executor);
+
+    }
+
+    @Nullable
+    public Executor getDecodeExecutor() {
+
+        return decodeEngine.getExecutor();
+
+    }
+
+    /**
+     * setResultExecutor --
+     * Calls the BarcodeCallback, MultiBarcodeCallback and BarcodeBatchCallback on the given
+     * executor instead of the main thread, for apps that handle results off the main thread. To
+     * keep results in capture order the executor has to run its tasks one at a time in order,
+     * like a single thread executor or a Handler. Results already found still reach the
+     * callbacks after decoding stops, and the callbacks must not touch views. Applies straight
+     * away.
+     *
+     * @param executor Runs the callbacks, or null to call them on the main thread
+     */
+    public void setResultExecutor(@Nullable Executor executor) {
+
+        resultExecutor = executor;
+
+    }
+
+    @Nullable
+    public Executor getResultExecutor() {
+
+        return resultExecutor;
+
+    }
+
+    /**
+     * subscribe --
+     * Streams every barcode found to the subscriber, on top of the callback given to the decode
+     * methods, which may then be null. Any number of subscribers can be subscribed at once, each
+     * is handed only as many barcodes as it requested, and the barcodes it hasn't requested yet
+     * wait in a buffer of its own. When a subscriber falls behind and its buffer is full, the
+     * policy picks what is dropped, so a slow subscriber never holds up decoding or the other
+     * subscribers. The subscriber is called on the result executor, see setResultExecutor().
+     *
+     * @param subscriber Receives the barcodes, in the order they were found
+     * @param policy     What happens to barcodes found while its buffer is full
+     * @param capacity   How many barcodes may wait for the subscriber, at least 1
+     * @return The subscription, to request barcodes with and to cancel
+     */
+    public ResultPublisher.Subscription subscribe(@NonNull ResultPublisher.Subscriber<? super BarcodeResult> subscriber,
+                                                  @NonNull ResultPublisher.OverflowPolicy policy, int capacity) {
+
+        return resultPublisher.subscribe(subscriber, policy, capacity, this::dispatch);
+
+    }
+
+    /**
+     * subscribe --
+     * Like subscribe(subscriber, policy, capacity), but calls the subscriber on the given
+     * executor, one barcode at a time.
+     */
+    public ResultPublisher.Subscription subscribe(@NonNull ResultPublisher.Subscriber<? super BarcodeResult> subscriber,
+                                                  @NonNull ResultPublisher.OverflowPolicy policy, int capacity,
+                                                  @NonNull Executor executor) {
+
+        return resultPublisher.subscribe(subscriber, policy, capacity, executor);
+
+    }
+
+    /**
+     * setZeroCopyCropEnabled --
+     * When enabled (the default) frames are decoded straight from the camera buffer, reading
+     * only the pixels inside the framing rect. When disabled every frame is rotated and cropped
+     * into a new buffer first, which is how the journeyapps decoder works.
+     *
+     * @param enabled true to decode the framing rect without copying the preview frame
+     */
+    public void setZeroCopyCropEnabled(boolean enabled) {
+
+        decodeEngine.setZeroCopyCropEnabled(enabled);
+
+    }
+
+    public boolean isZeroCopyCropEnabled() {
+
+        return decodeEngine.isZeroCopyCropEnabled();
+
+    }
+
+    /**
+     * setPyramidDecodingEnabled --
+     * When enabled, decodeSingle() and decodeContinuous() first decode every frame at half
+     * resolution, read from the camera buffer without copying it. Large barcodes are found there
+     * at a fraction of the cost, anything that only looks like a barcode is decoded again at full
+     * resolution around where it was seen. Every fourth frame is still decoded at full resolution
+     * so small barcodes aren't missed. Needs the zero-copy crop, and is disabled by default.
+     *
+     * @param enabled true to decode coarse to fine
+     */
+    public void setPyramidDecodingEnabled(boolean enabled) {
+
+        decodeEngine.setPyramidDecodingEnabled(enabled);
+
+    }
+
+    public boolean isPyramidDecodingEnabled() {
+
+        return decodeEngine.isPyramidDecodingEnabled();
+
+    }
+
+    /**
+     * setRegionTrackingEnabled --
+     * When enabled, the possible result points drawn by the laser view are also fed back into the
+     * decoding of decodeSingle() and decodeContinuous(): once a barcode is roughly located, the
+     * frames that follow are only decoded in a padded box around the points instead of the whole
+     * framing rect. After three frames without any points in the box the whole framing rect is
+     * decoded again. Disabled by default.
+     *
+     * @param enabled true to track where the barcode is
+     */
+    public void setRegionTrackingEnabled(boolean enabled) {
+
+        decodeEngine.setRegionTrackingEnabled(enabled);
+
+    }
+
+    public boolean isRegionTrackingEnabled() {
+
+        return decodeEngine.isRegionTrackingEnabled();
+
+    }
+
+    /**
+     * getRegionTracker --
+     * @return The tracker that narrows the decode region, to tune how many misses it takes to
+     * fall back to the whole framing rect
+     */
+    public RegionTracker getRegionTracker() {
+
+        return decodeEngine.getRegionTracker();
+
+    }
+
+    /**
+     * setScanLineEnabled --
+     * When enabled, decodeSingle() and decodeContinuous() only decode a band of rows around the
+     * laser instead of the whole framing rect, so 1D barcodes have to be aimed at with the laser.
+     * Only applies while the decoder factory decodes nothing but 1D formats, like a
+     * HotFormatDecoderFactory given only 1D formats, and takes the place of pyramid decoding and
+     * region tracking. Disabled by default.
+     *
+     * @param enabled true to decode only the rows around the laser
+     */
+    public void setScanLineEnabled(boolean enabled) {
+
+        decodeEngine.setScanLineEnabled(enabled);
+
+    }
+
+    public boolean isScanLineEnabled() {
+
+        return decodeEngine.isScanLineEnabled();
+
+    }
+
+    /**
+     * getScanLineDecoder --
+     * @return The decoder of the band around the laser, to tune how many rows it decodes
+     */
+    public ScanLineDecoder getScanLineDecoder() {
+
+        return decodeEngine.getScanLineDecoder();
+
+    }
+
+    /**
+     * setFrameQualityGateEnabled --
+     * When enabled, every frame is checked for brightness, edges and sharpness before it is
+     * decoded, and frames that are too dark, washed out, empty or motion blurred are skipped. The
+     * check takes well under a millisecond, so while nothing is being scanned most of the decode
+     * work is saved. Disabled by default.
+     *
+     * @param enabled true to skip hopeless frames
+     */
+    public void setFrameQualityGateEnabled(boolean enabled) {
+
+        decodeEngine.setQualityGateEnabled(enabled);
+
+    }
+
+    public boolean isFrameQualityGateEnabled() {
+
+        return decodeEngine.isQualityGateEnabled();
+
+    }
+
+    /**
+     * getFrameQualityGate --
+     * @return The gate frames are checked with, to tune its thresholds
+     */
+    public FrameQualityGate getFrameQualityGate() {
+
+        return decodeEngine.getQualityGate();
+
+    }
+
+    /**
+     * setSkipUnchangedFrames --
+     * When enabled, frames that look just like the last frame that failed to decode are skipped,
+     * judged by a fingerprint of block means and detail. A phone lying on a counter, or pointed at
+     * something unreadable, then only decodes again once the picture changes or comes into focus,
+     * or every two seconds at the latest. Disabled by default.
+     *
+     * @param enabled true to skip unchanged frames
+     */
+    public void setSkipUnchangedFrames(boolean enabled) {
+
+        decodeEngine.setSkipUnchangedFrames(enabled);
+
+    }
+
+    public boolean isSkipUnchangedFrames() {
+
+        return decodeEngine.isSkipUnchangedFrames();
+
+    }
+
+    /**
+     * getUnchangedFrameFilter --
+     * @return The filter unchanged frames are skipped by, to tune its tolerances
+     */
+    public UnchangedFrameFilter getUnchangedFrameFilter() {
+
+        return decodeEngine.getUnchangedFrameFilter();
+
+    }
+
+    /**
+     * setBinarizerStrategy --
+     * Sets how each frame is turned into black and white before decoding: always with the
+     * HybridBinarizer (the default), always with the faster GlobalHistogramBinarizer, taking turns,
+     * or ADAPTIVE, which picks one per frame from its histogram spread and local contrast. Only
+     * decoders from the HotFormatDecoderFactory support this, others keep their own binarizer.
+     * getScanMetrics() reports the time and success rate of each binarizer.
+     *
+     * @param strategy The binarizer strategy
+     */
+    public void setBinarizerStrategy(@NonNull BinarizerSelector.Strategy strategy) {
+
+        decodeEngine.setBinarizerStrategy(strategy);
+
+    }
+
+    public BinarizerSelector.Strategy getBinarizerStrategy() {
+
+        return decodeEngine.getBinarizerStrategy();
+
+    }
+
+    /**
+     * setMultipleDecodeGrid --
+     * Sets how decodeMultiple() splits the framing rect into overlapping tiles that are decoded
+     * in parallel. Takes effect the next time decoding starts.
+     *
+     * @param columns The number of tile columns, at least 1
+     * @param rows    The number of tile rows, at least 1
+     * @throws IllegalArgumentException If columns or rows is less than 1
+     */
+    public void setMultipleDecodeGrid(int columns, int rows) {
+
+        decodeEngine.setTileGrid(columns, rows);
+
+    }
+
+    public int getMultipleDecodeColumns() {
+
+        return decodeEngine.getTileColumns();
+
+    }
+
+    public int getMultipleDecodeRows() {
+
+        return decodeEngine.getTileRows();
+
+    }
+
+    /**
+     * setBatchLimits --
+     * Sets when decodeBatch() hands over a batch: as soon as it holds maxCount barcodes, or
+     * windowMillis after its first barcode, whichever comes first. Takes effect the next time
+     * decoding starts.
+     *
+     * @param maxCount     The most barcodes in one batch, at least 1
+     * @param windowMillis The longest a barcode waits in a batch, at least 0
+     * @throws IllegalArgumentException If either limit is out of range
+     */
+    public void setBatchLimits(int maxCount, long windowMillis) {
+
+        decodeEngine.setBatchLimits(maxCount, windowMillis);
+
+    }
+
+    public int getBatchCount() {
+
+        return decodeEngine.getBatchCount();
+
+    }
+
+    public long getBatchWindow() {
+
+        return decodeEngine.getBatchWindow();
+
+    }
+
+    /**
+     * getDecodedFramesPerSecond --
+     * @return How many preview frames per second have been decoded since decoding last started
+     */
+    public float getDecodedFramesPerSecond() {
+
+        return decodeEngine.getDecodedFramesPerSecond();
+
+    }
+
+    /**
+     * setDecodeLatencyBudget --
+     * Sets how long it may take from a frame being captured to it being decoded. When decoding
+     * falls behind, frames are skipped until the latency is back within budget.
+     *
+     * @param budgetMillis The latency budget in milliseconds, or 0 to decode every frame
+     */
+    public void setDecodeLatencyBudget(long budgetMillis) {
+
+        decodeEngine.setLatencyBudget(budgetMillis);
+
+    }
+
+    public long getDecodeLatencyBudget() {
+
+        return decodeEngine.getLatencyBudget();
+
+    }
+
+    /**
+     * getFrameSubmissionRate --
+     * @return How many frames per second are currently handed to the decoders
+     */
+    public float getFrameSubmissionRate() {
+
+        return decodeEngine.getSubmissionRate();
+
+    }
+
+    /**
+     * getSkippedFrameCount --
+     * @return How many frames were skipped to stay within the latency budget since decoding
+     * last started
+     */
+    public long getSkippedFrameCount() {
+
+        return decodeEngine.getSkippedFrames();
+
+    }
+
+    /**
+     * getDroppedFrameCount --
+     * @return How many frames were dropped from the full decode queue since decoding last started
+     */
+    public long getDroppedFrameCount() {
+
+        return decodeEngine.getDroppedFrames();
+
+    }
+
+    /**
+     * getRejectedFrameCount --
+     * @return How many frames the frame quality gate skipped since the scan metrics were last
+     * reset, getScanMetrics() breaks them down by reason
+     */
+    public long getRejectedFrameCount() {
+
+        return decodeEngine.getScanMetrics().getFramesRejected();
+
+    }
+
+    /**
+     * getFramePoolExhaustedCount --
+     * @return How many times the camera had to wait for a pooled frame buffer since decoding last
+     * started. A steadily growing count means the decoders can't keep up with the camera.
+     */
+    public long getFramePoolExhaustedCount() {
+
+        return decodeEngine.getFramePoolExhaustedCount();
+
+    }
+
+    /**
+     * getScanMetrics --
+     * Takes a snapshot of where decoding time went: latency histograms for waiting, luminance
+     * prep, binarizing, decoding and main thread dispatch, the end-to-end time from a barcode
+     * first being seen to its result, and counts of frames seen, decoded, dropped, rejected,
+     * skipped as unchanged and failed.
+     * Metrics keep adding up across decodeSingle() and decodeContinuous() calls until reset.
+     *
+     * @return The metrics recorded since the last reset
+     */
+    public ScanMetrics getScanMetrics() {
+
+        return decodeEngine.getScanMetrics();
+
+    }
+
+    public void resetScanMetrics() {
+
+        decodeEngine.resetScanMetrics();
+
+    }
+
+    /**
+     * setDuplicateTimeToLive --
+     * Sets how long a barcode is remembered by decodeContinuous(), decodeMultiple() and
+     * decodeBatch() after it was last read. Reading the same text and format again within that
+     * time doesn't reach the callback, so a barcode that stays in view is only reported once.
+     *
+     * @param timeToLive The time in milliseconds, or 0 to report every read
+     */
+    public void setDuplicateTimeToLive(long timeToLive) {
+
+        duplicateCache.setTimeToLive(timeToLive);
+
+    }
+
+    public long getDuplicateTimeToLive() {
+
+        return duplicateCache.getTimeToLive();
+
+    }
+
+    /**
+     * setDuplicateCapacity --
+     * Sets how many barcodes are remembered at once for duplicate suppression. When full the
+     * least recently read barcode is forgotten first.
+     *
+     * @param capacity The number of barcodes, at least 1
+     * @throws IllegalArgumentException If the capacity is less than 1
+     */
+    public void setDuplicateCapacity(int capacity) {
+
+        duplicateCache.setCapacity(capacity);
+
+    }
+
+    public int getDuplicateCapacity() {
+
+        return duplicateCache.getCapacity();
+
+    }
+
+    /**
+     * getDuplicateHitCount --
+     * @return How many reads were dropped as duplicates
+     */
+    public long getDuplicateHitCount() {
+
+        return duplicateCache.getHitCount();
+
+    }
+
+    /**
+     * getDuplicateMissCount --
+     * @return How many reads were new and passed on to the callback
+     */
+    public long getDuplicateMissCount() {
+
+        return duplicateCache.getMissCount();
+
     }
 
     public CameraSettings getCameraSettings() {
@@ -168,10 +736,12 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
     }
 
     public void pause() {
+        decodeEngine.stop();
         barcodeView.pause();
     }
 
     public void pauseAndWait() {
+        decodeEngine.stop();
         barcodeView.pauseAndWait();
     }
 
@@ -179,7 +749,9 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
         delegate = callback;
 
-        barcodeView.decodeSingle(this);
+        decodeMode = DecodeMode.SINGLE;
+
+        startDecoding();
 
     }
 
@@ -187,14 +759,129 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
         delegate = callback;
 
-        barcodeView.decodeContinuous(this);
+        decodeMode = DecodeMode.CONTINUOUS;
+
+        duplicateCache.clear();
+
+        startDecoding();
+
+    }
+
+    /**
+     * decodeMultiple --
+     * Continuously decodes every barcode in each frame, for labels that carry several barcodes.
+     * The framing rect is split into tiles that are searched in parallel, and the callback gets
+     * all of a frame's barcodes at once, with duplicates merged. Call stopDecoding() to stop.
+     *
+     * @param callback Receives the barcodes of every frame in which any were found
+     */
+    public void decodeMultiple(MultiBarcodeCallback callback) {
+
+        delegate = null;
+
+        multiDelegate = callback;
+
+        decodeMode = DecodeMode.MULTIPLE;
+
+        duplicateCache.clear();
+
+        startDecoding();
+
+    }
+
+    /**
+     * decodeBatch --
+     * Continuously decodes like decodeContinuous(), but hands the barcodes over in batches, see
+     * setBatchLimits(). The results only cross over to the main thread once per batch, which
+     * saves a dispatch, view update and beep per barcode when scanning at a high rate.
+     * Call stopDecoding() to stop, the barcodes collected so far are handed over as a last batch.
+     *
+     * @param callback Receives the batches
+     */
+    public void decodeBatch(BarcodeBatchCallback callback) {
+
+        delegate = null;
+
+        batchDelegate = callback;
+
+        decodeMode = DecodeMode.BATCH;
+
+        duplicateCache.clear();
+
+        startDecoding();
+
+    }
+
+    public void stopDecoding() {
+
+        decodeMode = DecodeMode.NONE;
+
+        decodeEngine.stop();
+
+    }
+
+    private void startDecoding() {
+
+        decodeEngine.stop();
+
+        // A single scan is always wanted, even when it's the barcode that was just rescanned
+        decodeEngine.setDropDuplicates(decodeMode != DecodeMode.SINGLE);
+
+        // Otherwise the decoder is started once the preview is running
+        if (decodeMode != DecodeMode.NONE && barcodeView.isPreviewActive()
+                && barcodeView.getPreviewFramingRect() != null)
+
+            decodeEngine.start(barcodeView.getCameraInstance(), barcodeView.getPreviewFramingRect(),
+                    decodeMode == DecodeMode.MULTIPLE ? DecodeEngine.Delivery.FRAME
+                            : decodeMode == DecodeMode.BATCH ? DecodeEngine.Delivery.BATCH : DecodeEngine.Delivery.EACH);
 
     }
 
     @Override
     public void barcodeResult(BarcodeResult result) {
 
-        delegate.barcodeResult(result);
+        // Stop before handing off so the delegate may start decoding again from the callback
+        if (decodeMode == DecodeMode.SINGLE)
+
+            stopDecoding();
+
+        resultPublisher.publish(result);
+
+        BarcodeCallback callback = delegate;
+
+        if (callback != null)
+
+            dispatch(() -> callback.barcodeResult(result));
+
+    }
+
+    @Override
+    public void barcodeResults(@NonNull List<BarcodeResult> results) {
+
+        for (BarcodeResult result : results)
+
+            resultPublisher.publish(result);
+
+        MultiBarcodeCallback callback = multiDelegate;
+
+        if (callback != null)
+
+            dispatch(() -> callback.barcodeResults(results));
+
+    }
+
+    @Override
+    public void barcodeBatch(@NonNull List<BarcodeResult> results) {
+
+        for (BarcodeResult result : results)
+
+            resultPublisher.publish(result);
+
+        BarcodeBatchCallback callback = batchDelegate;
+
+        if (callback != null && !results.isEmpty())
+
+            dispatch(() -> callback.barcodeBatch(results));
 
     }
 
@@ -203,9 +890,33 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
         for (ResultPoint resultPoint : resultPoints)
 
-            barcodeLaserView.addResultPoint(resultPoint);
+            barcodeOverlayView.addResultPoint(resultPoint);
+
+        BarcodeCallback callback = delegate;
+
+        if (callback != null)
+
+            dispatch(() -> callback.possibleResultPoints(resultPoints));
+
+    }
+
+    // Hands a callback over to the result executor. Subscribers may request from any thread, so
+    // without an executor callbacks from other threads are posted to the main thread
+    private void dispatch(Runnable callback) {
+
+        Executor executor = resultExecutor;
+
+        if (executor != null)
+
+            executor.execute(callback);
+
+        else if (Looper.myLooper() == Looper.getMainLooper())
+
+            callback.run();
+
+        else
 
-        delegate.possibleResultPoints(resultPoints);
+            mainHandler.post(callback);
 
     }
 
@@ -235,24 +946,24 @@ public class AndroidBarcodeScannerView extends FrameLayout implements BarcodeCal
 
     }
 
-    protected static CameraPreview.StateListener createStateListener(@NonNull View view) {
+    private CameraPreview.StateListener createDecodeStateListener() {
 
         return new CameraPreview.StateListener() {
 
             @Override
-            public void previewSized() { view.invalidate(); }
+            public void previewSized() { }
 
             @Override
-            public void previewStarted() { }
+            public void previewStarted() { startDecoding(); }
 
             @Override
-            public void previewStopped() { }
+            public void previewStopped() { decodeEngine.stop(); }
 
             @Override
-            public void cameraError(Exception error) { }
+            public void cameraError(Exception error) { decodeEngine.stop(); }
 
             @Override
-            public void cameraClosed() { }
+            public void cameraClosed() { decodeEngine.stop(); }
 
         };
 
@@ -0,0 +1,41 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import androidx.annotation.NonNull;
+
+import com.journeyapps.barcodescanner.BarcodeResult;
+
+import java.util.List;
+
+/**
+ * BarcodeBatchCallback --
+ * Receives decoded barcodes in batches, see AndroidBarcodeScannerView.decodeBatch(). Called once
+ * per batch on the result executor, see the threading notes of AndroidBarcodeScannerView.
+ * @author Tyler Sizse
+ */
+public interface BarcodeBatchCallback {
+
+    /**
+     * barcodeBatch -- Takes 1 parameter.
+     * Called when a batch reaches its count limit or its time window runs out.
+     *
+     * @param results The barcodes in the batch, in the order their frames were captured
+     */
+    void barcodeBatch(@NonNull List<BarcodeResult> results);
+
+}
@@ -0,0 +1,504 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2012-2018 ZXing authors, Journey Mobile
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.animation.TimeAnimator;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.anewgalaxy.scannercore.ResultPointRing;
+import com.google.zxing.ResultPoint;
+import com.journeyapps.barcodescanner.CameraPreview;
+import com.journeyapps.barcodescanner.Size;
+
+/**
+ * BarcodeOverlayView --
+ * Everything drawn over the camera preview in a single view and a single draw pass: the mask
+ * around the framing rect, the frame or its corners, the laser across its middle and the possible
+ * result points. One full screen view instead of three saves two layers of overdraw.
+ *
+ * The geometry of the mask, frame and laser is worked out once for each framing rect and view
+ * size and kept until either changes. Between frames of the laser animation only the laser band
+ * and the result points are invalidated. Reads the same scanMask*, scanFrame*, scanLaser* and
+ * scanResultPoints* attributes the separate views did.
+ *
+ * Result points go through a ResultPointRing and fade out and shrink to half their size over
+ * POINT_LIFETIME_NS from when they arrived, however many frames are drawn meanwhile.
+ *
+ * The laser is animated off the frame clock, and only while the preview is running and the view
+ * is attached. A paused or closed scanner draws once and then costs no time on the UI thread.
+ * @author Tyler Sizse
+ */
+class BarcodeOverlayView extends View {
+
+    public static final String TAG = BarcodeOverlayView.class.getSimpleName();
+
+    // The values of the scanFrameStyle attribute
+    static final int FRAME_STYLE_NONE = 0;
+    static final int FRAME_STYLE_RECT = 1;
+    static final int FRAME_STYLE_CORNERS = 2;
+
+    private static final int[] LASER_ALPHA = {0, 64, 128, 192, 255, 192, 128, 64};
+    private static final long ALPHA_ANIMATION_DELAY = 60L;
+    private static final long POINT_LIFETIME_NS = 4 * ALPHA_ANIMATION_DELAY * 1_000_000L;
+    private static final int POINT_OPACITY = 0xA0;
+
+    private final Paint maskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint framePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint laserPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint pointPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private int frameCornerSize;
+    private int frameOffset;
+    private int frameStyle;
+
+    private int pointRadius = 12;
+
+    private int alphaIndex;
+
+    private CameraPreview cameraPreview;
+
+    private boolean previewRunning;
+
+    private boolean attached;
+
+    private final TimeAnimator laserAnimator = new TimeAnimator();
+
+    // The framing rect and view size the geometry below was worked out for
+    private final Rect geometryRect = new Rect();
+    private int geometryWidth = -1;
+    private int geometryHeight = -1;
+
+    // Four rects as left, top, right, bottom each
+    private final float[] maskRects = new float[16];
+
+    // Eight corner lines as x1, y1, x2, y2 each
+    private final float[] cornerLines = new float[32];
+
+    private final Rect laserBand = new Rect();
+
+    // What the next frame of the animation has to redraw
+    private final Rect dirtyRect = new Rect();
+
+    private final Rect pointRect = new Rect();
+
+    private final ResultPointRing resultPoints = new ResultPointRing();
+
+    // Only set while the result points are being drawn
+    private Canvas pointCanvas;
+
+    private final ResultPointRing.Visitor pointDrawer = (x, y, age) -> {
+
+        float fade = 1f - (float) age / POINT_LIFETIME_NS;
+
+        float radius = pointRadius * (1f + fade) / 2f;
+
+        if (!pointBounds(x, y, radius, pointRect))
+
+            return;
+
+        pointPaint.setAlpha((int) (POINT_OPACITY * fade));
+
+        pointCanvas.drawCircle(pointRect.exactCenterX(), pointRect.exactCenterY(), radius, pointPaint);
+
+        // The point looks different on the next frame, or is gone, so that has to redraw it
+        dirtyRect.union(pointRect);
+
+    };
+
+    private final CameraPreview.StateListener stateListener = new CameraPreview.StateListener() {
+
+        @Override
+        public void previewSized() { invalidate(); }
+
+        @Override
+        public void previewStarted() {
+
+            previewRunning = true;
+
+            updateAnimation();
+
+        }
+
+        @Override
+        public void previewStopped() { stopPreview(); }
+
+        @Override
+        public void cameraError(Exception error) { }
+
+        @Override
+        public void cameraClosed() { stopPreview(); }
+
+    };
+
+    public BarcodeOverlayView(@NonNull Context context) {
+        super(context);
+
+        initialize(context, null);
+
+    }
+
+    public BarcodeOverlayView(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+
+        initialize(context, attrs);
+
+    }
+
+    public void initialize(@NonNull Context context, AttributeSet attrs) {
+
+        if (attrs != null) {
+
+            TypedArray a = context.getTheme().obtainStyledAttributes(
+                    attrs, R.styleable.AndroidBarcodeScannerView, 0, 0);
+
+            try {
+
+                maskPaint.setColor(a.getColor(R.styleable.AndroidBarcodeScannerView_scanMaskColor, 0x000000));
+
+                maskPaint.setAlpha((int) (0xFF * a.getFloat(R.styleable.AndroidBarcodeScannerView_scanMaskAlpha, 0.375f)));
+
+                framePaint.setStrokeWidth(a.getInteger(R.styleable.AndroidBarcodeScannerView_scanFrameThickness, 10));
+
+                framePaint.setColor(a.getColor(R.styleable.AndroidBarcodeScannerView_scanFrameColor, 0xFFFFFF));
+
+                framePaint.setAlpha((int) (0xFF * a.getFloat(R.styleable.AndroidBarcodeScannerView_scanFrameAlpha, 1f)));
+
+                frameCornerSize = a.getDimensionPixelSize(R.styleable.AndroidBarcodeScannerView_scanFrameCornerSize, 48);
+
+                frameOffset = a.getDimensionPixelSize(R.styleable.AndroidBarcodeScannerView_scanFrameOffset, 10);
+
+                frameStyle = a.getInteger(R.styleable.AndroidBarcodeScannerView_scanFrameStyle, FRAME_STYLE_CORNERS);
+
+                laserPaint.setColor(a.getColor(R.styleable.AndroidBarcodeScannerView_scanLaserColor, 0xFF0000));
+
+                laserPaint.setStrokeWidth(a.getInteger(R.styleable.AndroidBarcodeScannerView_scanLaserThickness, 4));
+
+                pointPaint.setColor(a.getColor(R.styleable.AndroidBarcodeScannerView_scanResultPointsColor, 0xFFFFFF));
+
+                pointRadius = a.getInteger(R.styleable.AndroidBarcodeScannerView_scanResultPointsRadius, 12);
+
+            } catch (RuntimeException exception) {
+
+                Log.e(TAG, exception.getMessage());
+
+                exception.printStackTrace();
+
+            } finally { a.recycle(); }
+
+        } else {
+
+            maskPaint.setColor(0x000000);
+
+            maskPaint.setAlpha(0x60);
+
+            framePaint.setStrokeWidth(10);
+
+            framePaint.setColor(0xFFFFFF);
+
+            framePaint.setAlpha(0xFF);
+
+            frameCornerSize = 48;
+
+            frameStyle = FRAME_STYLE_CORNERS;
+
+            laserPaint.setColor(0xFFFFFF);
+
+        }
+
+        // The rect style outlines the framing rect rather than covering it
+        framePaint.setStyle(Paint.Style.STROKE);
+
+        laserPaint.setStyle(Paint.Style.STROKE);
+
+        pointPaint.setStyle(Paint.Style.FILL);
+
+        // Worked out again with the new sizes on the next draw
+        geometryWidth = -1;
+
+        // The frame clock ticks every vsync, the laser only moves on every ALPHA_ANIMATION_DELAY
+        laserAnimator.setTimeListener((animation, totalTime, deltaTime) -> {
+
+            int index = (int) (totalTime / ALPHA_ANIMATION_DELAY % LASER_ALPHA.length);
+
+            if (index == alphaIndex)
+
+                return;
+
+            alphaIndex = index;
+
+            invalidate(dirtyRect.left, dirtyRect.top, dirtyRect.right, dirtyRect.bottom);
+
+        });
+
+    }
+
+    public void setCameraPreview(CameraPreview cameraPreview) {
+
+        cameraPreview.addStateListener(stateListener);
+
+        this.cameraPreview = cameraPreview;
+
+    }
+
+    /**
+     * isAnimating --
+     * The laser only animates while the preview is running and the view is attached.
+     *
+     * @return true while the laser is being animated
+     */
+    public boolean isAnimating() { return laserAnimator.isStarted(); }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        attached = true;
+
+        updateAnimation();
+
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+
+        attached = false;
+
+        updateAnimation();
+
+        super.onDetachedFromWindow();
+
+    }
+
+    private void stopPreview() {
+
+        previewRunning = false;
+
+        updateAnimation();
+
+        // Nothing is coming to fade the points out, so they go straight away
+        resultPoints.clear();
+
+        invalidate();
+
+    }
+
+    // Runs the animator only while there is a running preview on screen to animate over
+    private void updateAnimation() {
+
+        if (previewRunning && attached) {
+
+            if (!laserAnimator.isStarted())
+
+                laserAnimator.start();
+
+        } else
+
+            laserAnimator.cancel();
+
+    }
+
+    protected void addResultPoint(ResultPoint resultPoint) {
+
+        resultPoints.offer(resultPoint.getX(), resultPoint.getY(), System.nanoTime());
+
+        if (!pointBounds(resultPoint.getX(), resultPoint.getY(), pointRadius, pointRect))
+
+            return;
+
+        // Make sure the next frame of the animation draws the point, without one nothing else would
+        if (laserAnimator.isStarted())
+
+            dirtyRect.union(pointRect);
+
+        else
+
+            invalidate(pointRect);
+
+    }
+
+    @Override
+    public void onDraw(Canvas canvas) {
+
+        if (cameraPreview == null)
+
+            return;
+
+        dirtyRect.setEmpty();
+
+        Rect framingRect = cameraPreview.getFramingRect();
+
+        if (framingRect != null) {
+
+            if (!framingRect.equals(geometryRect) || getWidth() != geometryWidth || getHeight() != geometryHeight)
+
+                updateGeometry(framingRect);
+
+            // Draw the scanner mask (Area outside of frame)
+            for (int i = 0; i < maskRects.length; i += 4)
+
+                canvas.drawRect(maskRects[i], maskRects[i + 1], maskRects[i + 2], maskRects[i + 3], maskPaint);
+
+            if (frameStyle == FRAME_STYLE_CORNERS)
+
+                canvas.drawLines(cornerLines, framePaint);
+
+            else if (frameStyle == FRAME_STYLE_RECT)
+
+                canvas.drawRect(framingRect, framePaint);
+
+            laserPaint.setAlpha(LASER_ALPHA[alphaIndex]);
+
+            canvas.drawLine(laserBand.left, laserBand.exactCenterY(), laserBand.right, laserBand.exactCenterY(),
+                    laserPaint);
+
+            dirtyRect.set(laserBand);
+
+        }
+
+        drawResultPoints(canvas);
+
+    }
+
+    private void drawResultPoints(Canvas canvas) {
+
+        pointCanvas = canvas;
+
+        resultPoints.forEach(System.nanoTime(), POINT_LIFETIME_NS, pointDrawer);
+
+        pointCanvas = null;
+
+    }
+
+    /**
+     * pointBounds -- Takes 4 parameters.
+     * Result points are in preview coordinates, which are scaled to the whole view.
+     *
+     * @param x      The x coordinate of the point in preview coordinates
+     * @param y      The y coordinate of the point in preview coordinates
+     * @param radius The radius the point is drawn with
+     * @param bounds Set to the square the point is drawn in, with a pixel to spare for antialiasing
+     * @return false if the preview size isn't known yet, so the point can't be drawn
+     */
+    private boolean pointBounds(float x, float y, float radius, Rect bounds) {
+
+        Size previewSize = cameraPreview != null ? cameraPreview.getPreviewSize() : null;
+
+        if (previewSize == null)
+
+            return false;
+
+        int centerX = (int) (x * getWidth() / previewSize.width);
+        int centerY = (int) (y * getHeight() / previewSize.height);
+
+        int extent = (int) Math.ceil(radius) + 1;
+
+        bounds.set(centerX - extent, centerY - extent, centerX + extent, centerY + extent);
+
+        return true;
+
+    }
+
+    private void updateGeometry(Rect framingRect) {
+
+        geometryRect.set(framingRect);
+
+        geometryWidth = getWidth();
+
+        geometryHeight = getHeight();
+
+        int x1 = framingRect.left;
+        int x2 = framingRect.right;
+        int y1 = framingRect.top;
+        int y2 = framingRect.bottom;
+
+        setRect(maskRects, 0, 0, 0, geometryWidth, y1);
+        setRect(maskRects, 1, 0, y2 + 1, geometryWidth, geometryHeight);
+        setRect(maskRects, 2, 0, y1, x1, y2 + 1);
+        setRect(maskRects, 3, x2 + 1, y1, geometryWidth, y2 + 1);
+
+        int offset = (int) framePaint.getStrokeWidth() / 2;
+
+        int cx1 = x1 - frameOffset;
+        int cy1 = y1 - frameOffset;
+        int cx2 = x2 + frameOffset;
+        int cy2 = y2 + frameOffset;
+
+        int cx1Offset = cx1 - offset;
+        int cy1Offset = cy1 - offset;
+        int cx2Offset = cx2 + offset;
+        int cy2Offset = cy2 + offset;
+
+        // Top-Left Corner
+        setRect(cornerLines, 0, cx1Offset, cy1, cx1Offset + frameCornerSize, cy1);
+        setRect(cornerLines, 1, cx1, cy1Offset, cx1, cy1Offset + frameCornerSize);
+
+        // Top-Right Corner
+        setRect(cornerLines, 2, cx2Offset - frameCornerSize, cy1, cx2Offset, cy1);
+        setRect(cornerLines, 3, cx2, cy1Offset, cx2, cy1Offset + frameCornerSize);
+
+        // Bottom-Right Corner
+        setRect(cornerLines, 4, cx2Offset, cy2, cx2Offset - frameCornerSize, cy2);
+        setRect(cornerLines, 5, cx2, cy2Offset - frameCornerSize, cx2, cy2Offset);
+
+        // Bottom-Left Corner
+        setRect(cornerLines, 6, cx1Offset, cy2, cx1Offset + frameCornerSize, cy2);
+        setRect(cornerLines, 7, cx1, cy2Offset - frameCornerSize, cx1, cy2Offset);
+
+        // The laser runs across the middle of the frame, the band has a pixel to spare either side
+        int centerY = framingRect.centerY();
+
+        int halfThickness = (int) Math.ceil(laserPaint.getStrokeWidth() / 2f) + 1;
+
+        laserBand.set(x1, centerY - halfThickness, x2, centerY + halfThickness);
+
+    }
+
+    // Stores four coordinates at the index-th group of four
+    private static void setRect(float[] coordinates, int index, float a, float b, float c, float d) {
+
+        coordinates[4 * index] = a;
+        coordinates[4 * index + 1] = b;
+        coordinates[4 * index + 2] = c;
+        coordinates[4 * index + 3] = d;
+
+    }
+
+}
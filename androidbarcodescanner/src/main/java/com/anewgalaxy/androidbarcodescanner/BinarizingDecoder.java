@@ -0,0 +1,413 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2012-2018 ZXing authors, Journey Mobile
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.anewgalaxy.scannercore.AttemptScheduler;
+import com.anewgalaxy.scannercore.BinarizerSelector;
+import com.anewgalaxy.scannercore.BinarizerType;
+import com.anewgalaxy.scannercore.HotFormatReader;
+import com.anewgalaxy.scannercore.ScanMetricsRecorder;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.android.Intents;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.OneDReader;
+import com.journeyapps.barcodescanner.Decoder;
+
+import java.util.Map;
+
+/**
+ * BinarizingDecoder --
+ * Decoder that covers the normal, inverted and mixed scan types of the journeyapps Decoder,
+ * InvertedDecoder and MixedDecoder in one class, and keeps track of how much of its decode time
+ * went into binarizing, so the DecodeEngine can report the two apart. Which binarizer a frame gets
+ * is up to a BinarizerSelector, the HybridBinarizer unless the DecodeEngine configures otherwise.
+ * Given an AttemptScheduler it also decodes each frame the way the scheduler picked for it,
+ * trying harder, turned or inverted, with every result point given in the frame's own coordinates.
+ *
+ * Like every Decoder it must only be used by one thread at a time.
+ * @author Tyler Sizse
+ */
+class BinarizingDecoder extends Decoder {
+
+    private final int scanType;
+
+    private final AttemptScheduler scheduler;
+
+    private AttemptScheduler.Attempt attempt = AttemptScheduler.Attempt.PLAIN;
+
+    // The width of the frame before it was turned, or -1 while decoding an unturned frame
+    private int unturnedWidth = -1;
+
+    // Mixed scans start with the inverted frame, like the MixedDecoder
+    private boolean invertNext = true;
+
+    private final BinarizerSelector selector = new BinarizerSelector(BinarizerSelector.Strategy.HYBRID);
+
+    private BinarizerType binarizerType = BinarizerType.HYBRID;
+
+    private ScanMetricsRecorder metrics;
+
+    private long binarizeNanos;
+
+    /**
+     * @param reader   The reader to decode with
+     * @param scanType One of Intents.Scan.NORMAL_SCAN, INVERTED_SCAN or MIXED_SCAN
+     */
+    BinarizingDecoder(Reader reader, int scanType) {
+
+        this(reader, scanType, null);
+
+    }
+
+    /**
+     * @param reader    The reader to decode with, trying harder needs a HotFormatReader
+     * @param scanType  One of Intents.Scan.NORMAL_SCAN, INVERTED_SCAN or MIXED_SCAN
+     * @param scheduler Picks how each frame is decoded, or null to decode every frame plainly
+     */
+    BinarizingDecoder(Reader reader, int scanType, AttemptScheduler scheduler) {
+        super(reader);
+
+        this.scanType = scanType;
+
+        this.scheduler = scheduler;
+
+    }
+
+    /**
+     * configure -- Takes 3 parameters.
+     * Does nothing for decoders other than BinarizingDecoders.
+     *
+     * @param decoder  The decoder to configure, only used by the calling thread
+     * @param strategy How the decoder should choose a binarizer for each frame
+     * @param metrics  Receives the time and outcome of every decode attempt per binarizer, or null
+     */
+    static void configure(Decoder decoder, BinarizerSelector.Strategy strategy, ScanMetricsRecorder metrics) {
+
+        if (!(decoder instanceof BinarizingDecoder))
+
+            return;
+
+        BinarizingDecoder binarizing = (BinarizingDecoder) decoder;
+
+        binarizing.selector.setStrategy(strategy);
+
+        binarizing.metrics = metrics;
+
+    }
+
+    /**
+     * nextAttempt -- Takes 1 parameter.
+     * Starts a new frame, decoded the way the decoder's AttemptScheduler picks for it until the
+     * next call.
+     *
+     * @param decoder The decoder about to decode the frame, only used by the calling thread
+     * @return How the frame is decoded, or null if the decoder has no AttemptScheduler
+     */
+    static AttemptScheduler.Attempt nextAttempt(Decoder decoder) {
+
+        if (!(decoder instanceof BinarizingDecoder) || ((BinarizingDecoder) decoder).scheduler == null)
+
+            return null;
+
+        BinarizingDecoder binarizing = (BinarizingDecoder) decoder;
+
+        binarizing.setAttempt(binarizing.scheduler.next());
+
+        return binarizing.attempt;
+
+    }
+
+    /**
+     * getCycleLength -- Takes 1 parameter.
+     * @param decoder Any decoder
+     * @return How many attempts the decoder's AttemptScheduler takes turns with, 1 if it has none
+     */
+    static int getCycleLength(Decoder decoder) {
+
+        if (!(decoder instanceof BinarizingDecoder) || ((BinarizingDecoder) decoder).scheduler == null)
+
+            return 1;
+
+        return ((BinarizingDecoder) decoder).scheduler.getCycleLength();
+
+    }
+
+    /**
+     * joinAttempt -- Takes 2 parameters.
+     * Lets a decoder help with a frame another decoder started, decoding it the same way.
+     *
+     * @param decoder The decoder helping out, only used by the calling thread
+     * @param attempt What nextAttempt() returned for the frame, null does nothing
+     */
+    static void joinAttempt(Decoder decoder, AttemptScheduler.Attempt attempt) {
+
+        if (decoder instanceof BinarizingDecoder && attempt != null)
+
+            ((BinarizingDecoder) decoder).setAttempt(attempt);
+
+    }
+
+    /**
+     * isOneDOnly -- Takes 1 parameter.
+     * @param decoder The decoder to check
+     * @return true if the decoder's reader only decodes 1D formats, false if it may decode 2D
+     * formats or it can't be told
+     */
+    static boolean isOneDOnly(Decoder decoder) {
+
+        if (!(decoder instanceof BinarizingDecoder))
+
+            return false;
+
+        Reader reader = ((BinarizingDecoder) decoder).getReader();
+
+        return reader instanceof HotFormatReader ? ((HotFormatReader) reader).isOneDOnly() : reader instanceof OneDReader;
+
+    }
+
+    private void setAttempt(AttemptScheduler.Attempt attempt) {
+
+        this.attempt = attempt;
+
+        if (getReader() instanceof HotFormatReader)
+
+            ((HotFormatReader) getReader()).setTryHarder(attempt == AttemptScheduler.Attempt.TRY_HARDER);
+
+    }
+
+    /**
+     * takeBinarizeTime -- Takes 1 parameter.
+     * @param decoder The decoder that just decoded a frame on the calling thread
+     * @return How long the decoder spent binarizing since the last call, in nanoseconds, or -1 if
+     * the decoder doesn't keep track
+     */
+    static long takeBinarizeTime(Decoder decoder) {
+
+        if (!(decoder instanceof BinarizingDecoder))
+
+            return -1L;
+
+        BinarizingDecoder binarizing = (BinarizingDecoder) decoder;
+
+        long nanos = binarizing.binarizeNanos;
+
+        binarizing.binarizeNanos = 0L;
+
+        return nanos;
+
+    }
+
+    @Override
+    public Result decode(LuminanceSource source) {
+
+        long before = binarizeNanos;
+
+        boolean turn = attempt == AttemptScheduler.Attempt.ROTATED && source.isRotateSupported();
+
+        if (turn) {
+
+            unturnedWidth = source.getWidth();
+
+            source = source.rotateCounterClockwise();
+
+        }
+
+        Result result;
+
+        try {
+
+            result = super.decode(source);
+
+            if (result != null && turn)
+
+                unturn(result);
+
+        } finally {
+
+            unturnedWidth = -1;
+
+        }
+
+        selector.decoded(binarizerType, result != null);
+
+        if (metrics != null)
+
+            metrics.binarized(binarizerType, binarizeNanos - before, result != null);
+
+        return result;
+
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+
+        super.foundPossibleResultPoint(unturnedWidth < 0 ? point : unturn(point));
+
+    }
+
+    // Turned pixel (x, y) is pixel (width - 1 - y, x) of the frame before it was turned
+    private ResultPoint unturn(ResultPoint point) {
+
+        return new ResultPoint(unturnedWidth - 1 - point.getY(), point.getX());
+
+    }
+
+    // Like OneDReader, points are turned back in place and the orientation goes up by 270 degrees
+    private void unturn(Result result) {
+
+        ResultPoint[] points = result.getResultPoints();
+
+        if (points != null)
+
+            for (int i = 0; i < points.length; i++)
+
+                if (points[i] != null)
+
+                    points[i] = unturn(points[i]);
+
+        Map<ResultMetadataType, Object> metadata = result.getResultMetadata();
+
+        Object orientation = metadata != null ? metadata.get(ResultMetadataType.ORIENTATION) : null;
+
+        result.putMetadata(ResultMetadataType.ORIENTATION,
+                ((orientation instanceof Integer ? (Integer) orientation : 0) + 270) % 360);
+
+    }
+
+    @Override
+    protected BinaryBitmap toBitmap(LuminanceSource source) {
+
+        boolean invert = scanType == Intents.Scan.INVERTED_SCAN;
+
+        if (scanType == Intents.Scan.MIXED_SCAN) {
+
+            invert = invertNext;
+
+            invertNext = !invertNext;
+
+        }
+
+        // Inverted attempts look for the codes the scan type would have missed
+        if (attempt == AttemptScheduler.Attempt.INVERTED)
+
+            invert = !invert;
+
+        long start = System.nanoTime();
+
+        Binarizer binarizer = createBinarizer(invert ? source.invert() : source);
+
+        // Choosing the binarizer counts as binarizing
+        binarizeNanos += System.nanoTime() - start;
+
+        return new BinaryBitmap(new TimedBinarizer(binarizer));
+
+    }
+
+    /**
+     * createBinarizer -- Takes 1 parameter.
+     * @param source The frame to binarize, already inverted if needed
+     * @return The binarizer to decode the frame with
+     */
+    Binarizer createBinarizer(LuminanceSource source) {
+
+        binarizerType = selector.select(source);
+
+        return binarizerType.create(source);
+
+    }
+
+    /**
+     * Times every call into the binarizer it wraps. Readers ask for the black matrix or black
+     * rows lazily while they decode, so this is the only place binarizing can be timed.
+     */
+    private final class TimedBinarizer extends Binarizer {
+
+        private final Binarizer binarizer;
+
+        TimedBinarizer(Binarizer binarizer) {
+            super(binarizer.getLuminanceSource());
+
+            this.binarizer = binarizer;
+
+        }
+
+        @Override
+        public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+
+            long start = System.nanoTime();
+
+            try {
+
+                return binarizer.getBlackRow(y, row);
+
+            } finally {
+
+                binarizeNanos += System.nanoTime() - start;
+
+            }
+
+        }
+
+        @Override
+        public BitMatrix getBlackMatrix() throws NotFoundException {
+
+            long start = System.nanoTime();
+
+            try {
+
+                return binarizer.getBlackMatrix();
+
+            } finally {
+
+                binarizeNanos += System.nanoTime() - start;
+
+            }
+
+        }
+
+        @Override
+        public Binarizer createBinarizer(LuminanceSource source) {
+
+            return new TimedBinarizer(binarizer.createBinarizer(source));
+
+        }
+
+    }
+
+}
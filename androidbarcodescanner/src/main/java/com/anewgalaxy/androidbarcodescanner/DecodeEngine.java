@@ -0,0 +1,1513 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2012-2018 ZXing authors, Journey Mobile
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.anewgalaxy.scannercore.AttemptScheduler;
+import com.anewgalaxy.scannercore.BinarizerSelector;
+import com.anewgalaxy.scannercore.DuplicateResultCache;
+import com.anewgalaxy.scannercore.FrameFingerprint;
+import com.anewgalaxy.scannercore.FrameQualityGate;
+import com.anewgalaxy.scannercore.FramingRectLuminanceSource;
+import com.anewgalaxy.scannercore.PyramidDecoder;
+import com.anewgalaxy.scannercore.RegionTracker;
+import com.anewgalaxy.scannercore.ScanLineDecoder;
+import com.anewgalaxy.scannercore.ScanMetrics;
+import com.anewgalaxy.scannercore.ScanMetricsRecorder;
+import com.anewgalaxy.scannercore.UnchangedFrameFilter;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.journeyapps.barcodescanner.BarcodeCallback;
+import com.journeyapps.barcodescanner.BarcodeResult;
+import com.journeyapps.barcodescanner.Decoder;
+import com.journeyapps.barcodescanner.DecoderFactory;
+import com.journeyapps.barcodescanner.DecoderResultPointCallback;
+import com.journeyapps.barcodescanner.SourceData;
+import com.journeyapps.barcodescanner.camera.CameraInstance;
+import com.journeyapps.barcodescanner.camera.PreviewCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DecodeEngine --
+ * Replacement for the single journeyapps DecoderThread. Preview frames are pulled from the
+ * camera as fast as it can deliver them, pushed into a bounded FrameQueue that drops the oldest
+ * frame when full, and decoded by up to N workers in parallel, on a pool of the engine's own or an
+ * executor of the app's. Results are handed back to the BarcodeCallback on the main thread in the
+ * order the frames were captured.
+ *
+ * When started for multiple barcodes each frame is decoded as a RegionDecodeJob instead, whose
+ * regions are shared out between the workers, and all of a frame's results go to the
+ * MultiBarcodeCallback at once. When batching, results are collected by a ResultBatcher on the
+ * worker threads and only cross over to the main thread once per batch.
+ *
+ * With pyramid decoding single barcodes are looked for coarse to fine by a PyramidDecoder, which
+ * needs the zero-copy crop, and with region tracking a RegionTracker narrows the frames that follow
+ * a sighting down to a padded box around the possible result points. Decoders with only 1D
+ * readers can instead be limited to the rows around the laser by a ScanLineDecoder. Before any
+ * reader sees a frame, a FrameQualityGate can reject it for being too dark, too bright, blurry or
+ * empty, and an UnchangedFrameFilter can skip it for looking just like the last frame that
+ * failed. Every stage a frame goes through is timed into a ScanMetricsRecorder, which is kept
+ * across sessions until it is reset.
+ * @author Tyler Sizse
+ */
+class DecodeEngine {
+
+    public static final String TAG = DecodeEngine.class.getSimpleName();
+
+    // How long a pooled frame buffer may be held before it is reported as leaked
+    private static final long FRAME_LEAK_TIMEOUT_MS = 5000L;
+
+    // How many frames may wait for a worker, older ones are dropped in favour of fresher ones
+    private static final int MAX_QUEUED_FRAMES = 2;
+
+    // Leave one core free for the camera and UI threads
+    static final int DEFAULT_WORKER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    static final long DEFAULT_LATENCY_BUDGET_MS = 300L;
+
+    static final int DEFAULT_TILE_COLUMNS = 2;
+    static final int DEFAULT_TILE_ROWS = 2;
+
+    static final int DEFAULT_BATCH_COUNT = 10;
+    static final long DEFAULT_BATCH_WINDOW_MS = 500L;
+
+    /**
+     * How results are handed back to the main thread.
+     */
+    enum Delivery {
+
+        // Every result on its own to the BarcodeCallback
+        EACH,
+
+        // All of a frame's results at once to the MultiBarcodeCallback
+        FRAME,
+
+        // Batches of results to the BarcodeBatchCallback
+        BATCH
+
+    }
+
+    private final Handler resultHandler = new Handler(Looper.getMainLooper());
+
+    private final BarcodeCallback callback;
+
+    private final MultiBarcodeCallback multiCallback;
+
+    private final BarcodeBatchCallback batchCallback;
+
+    private final ScanMetricsRecorder metrics = new ScanMetricsRecorder();
+
+    private final PyramidDecoder pyramidDecoder = new PyramidDecoder();
+
+    private final FrameQualityGate qualityGate = new FrameQualityGate();
+
+    private final UnchangedFrameFilter unchangedFilter = new UnchangedFrameFilter();
+
+    private final RegionTracker regionTracker = new RegionTracker();
+
+    private final ScanLineDecoder scanLineDecoder = new ScanLineDecoder();
+
+    private final DuplicateResultCache duplicateCache = new DuplicateResultCache(
+            DuplicateResultCache.DEFAULT_TIME_TO_LIVE_MS, DuplicateResultCache.DEFAULT_CAPACITY);
+
+    private volatile DecoderFactory decoderFactory;
+
+    private Session session;
+
+    private int workerCount = DEFAULT_WORKER_COUNT;
+
+    // Null to give every session a pool of its own
+    private Executor executor;
+
+    private volatile boolean zeroCopyCrop = true;
+
+    private volatile boolean pyramidDecoding;
+
+    private volatile boolean regionTracking;
+
+    private volatile boolean scanLine;
+
+    private volatile boolean qualityGateEnabled;
+
+    private volatile boolean skipUnchangedFrames;
+
+    private volatile boolean dropDuplicates;
+
+    private volatile BinarizerSelector.Strategy binarizerStrategy = BinarizerSelector.Strategy.HYBRID;
+
+    private long latencyBudget = DEFAULT_LATENCY_BUDGET_MS;
+
+    private int tileColumns = DEFAULT_TILE_COLUMNS;
+    private int tileRows = DEFAULT_TILE_ROWS;
+
+    private int batchCount = DEFAULT_BATCH_COUNT;
+    private long batchWindow = DEFAULT_BATCH_WINDOW_MS;
+
+    DecodeEngine(@NonNull BarcodeCallback callback, @NonNull MultiBarcodeCallback multiCallback,
+                 @NonNull BarcodeBatchCallback batchCallback) {
+
+        this.callback = callback;
+
+        this.multiCallback = multiCallback;
+
+        this.batchCallback = batchCallback;
+
+    }
+
+    /**
+     * setWorkerCount -- Takes 1 parameter.
+     * Sets how many frames may be decoded at the same time. Takes effect the next time the
+     * engine is started.
+     *
+     * @param workerCount The number of workers, or 0 or less to use the default
+     */
+    void setWorkerCount(int workerCount) {
+
+        this.workerCount = workerCount > 0 ? workerCount : DEFAULT_WORKER_COUNT;
+
+    }
+
+    int getWorkerCount() { return workerCount; }
+
+    /**
+     * setExecutor -- Takes 1 parameter.
+     * Sets what decodes the frames. The engine never has more than workerCount frames in work on
+     * it at once, so the executor can be shared with the rest of the app, and it is never shut
+     * down by the engine. Takes effect the next time the engine is started.
+     *
+     * @param executor Runs the decode work, or null for a pool of workerCount threads just below
+     *                 normal priority, created on start and shut down on stop
+     */
+    void setExecutor(Executor executor) { this.executor = executor; }
+
+    Executor getExecutor() { return executor; }
+
+    /**
+     * setTileGrid -- Takes 2 parameters.
+     * Sets how frames are split up before looking for multiple barcodes. Takes effect the next
+     * time the engine is started.
+     *
+     * @param columns The number of tile columns, at least 1
+     * @param rows    The number of tile rows, at least 1
+     */
+    void setTileGrid(int columns, int rows) {
+
+        if (columns < 1 || rows < 1)
+
+            throw new IllegalArgumentException("Tile grid must be at least 1x1, was " + columns + "x" + rows);
+
+        this.tileColumns = columns;
+
+        this.tileRows = rows;
+
+    }
+
+    int getTileColumns() { return tileColumns; }
+
+    int getTileRows() { return tileRows; }
+
+    /**
+     * setBatchLimits -- Takes 2 parameters.
+     * Sets when a batch of results is handed over. Takes effect the next time the engine is
+     * started.
+     *
+     * @param maxCount     How many results make a full batch, at least 1
+     * @param windowMillis How long after its first result a batch is handed over even if it isn't
+     *                     full, at least 0
+     */
+    void setBatchLimits(int maxCount, long windowMillis) {
+
+        if (maxCount < 1 || windowMillis < 0L)
+
+            throw new IllegalArgumentException("Invalid batch limits: " + maxCount + " results, " + windowMillis + " ms");
+
+        this.batchCount = maxCount;
+
+        this.batchWindow = windowMillis;
+
+    }
+
+    int getBatchCount() { return batchCount; }
+
+    long getBatchWindow() { return batchWindow; }
+
+    /**
+     * setZeroCopyCropEnabled -- Takes 1 parameter.
+     * Chooses between reading the framing rect straight out of the preview buffer with a
+     * FramingRectLuminanceSource, or letting SourceData rotate and copy the frame first.
+     *
+     * @param enabled true to decode from the preview buffer without copying it
+     */
+    void setZeroCopyCropEnabled(boolean enabled) { zeroCopyCrop = enabled; }
+
+    boolean isZeroCopyCropEnabled() { return zeroCopyCrop; }
+
+    /**
+     * setPyramidDecodingEnabled -- Takes 1 parameter.
+     * Chooses between decoding single barcodes coarse to fine with the PyramidDecoder, or at full
+     * resolution only. Only applies while the zero-copy crop is enabled.
+     *
+     * @param enabled true to try a downsampled frame first
+     */
+    void setPyramidDecodingEnabled(boolean enabled) { pyramidDecoding = enabled; }
+
+    boolean isPyramidDecodingEnabled() { return pyramidDecoding; }
+
+    /**
+     * setRegionTrackingEnabled -- Takes 1 parameter.
+     * Chooses whether single barcodes, once roughly located by their possible result points, are
+     * only looked for in a padded box around them until the RegionTracker loses them. Applies to
+     * the running session from the next frame.
+     *
+     * @param enabled true to track the region of the barcode
+     */
+    void setRegionTrackingEnabled(boolean enabled) {
+
+        regionTracking = enabled;
+
+        regionTracker.reset();
+
+    }
+
+    boolean isRegionTrackingEnabled() { return regionTracking; }
+
+    /**
+     * getRegionTracker -- Takes 0 parameters.
+     * @return The tracker that narrows the decode region, how many misses it takes can be tuned at
+     * any time
+     */
+    RegionTracker getRegionTracker() { return regionTracker; }
+
+    /**
+     * setScanLineEnabled -- Takes 1 parameter.
+     * Chooses whether single barcodes are only looked for in a band of rows around the laser, by
+     * the ScanLineDecoder. Only applies to decoders that decode nothing but 1D formats, and
+     * instead of pyramid decoding and region tracking. Applies to the running session from the
+     * next frame.
+     *
+     * @param enabled true to decode only the rows around the laser
+     */
+    void setScanLineEnabled(boolean enabled) { scanLine = enabled; }
+
+    boolean isScanLineEnabled() { return scanLine; }
+
+    /**
+     * getScanLineDecoder -- Takes 0 parameters.
+     * @return The decoder of the band around the laser, how many rows it decodes can be tuned at
+     * any time
+     */
+    ScanLineDecoder getScanLineDecoder() { return scanLineDecoder; }
+
+    /**
+     * setQualityGateEnabled -- Takes 1 parameter.
+     * Chooses whether every frame has to pass the FrameQualityGate before it is decoded. Applies to
+     * the running session from the next frame.
+     *
+     * @param enabled true to skip frames the gate rejects
+     */
+    void setQualityGateEnabled(boolean enabled) { qualityGateEnabled = enabled; }
+
+    boolean isQualityGateEnabled() { return qualityGateEnabled; }
+
+    /**
+     * getQualityGate -- Takes 0 parameters.
+     * @return The gate frames are checked with, its thresholds can be tuned at any time
+     */
+    FrameQualityGate getQualityGate() { return qualityGate; }
+
+    /**
+     * setSkipUnchangedFrames -- Takes 1 parameter.
+     * Chooses whether frames that look just like the last frame that failed to decode are skipped.
+     * Applies to the running session from the next frame.
+     *
+     * @param enabled true to skip unchanged frames
+     */
+    void setSkipUnchangedFrames(boolean enabled) {
+
+        skipUnchangedFrames = enabled;
+
+        unchangedFilter.reset();
+
+    }
+
+    boolean isSkipUnchangedFrames() { return skipUnchangedFrames; }
+
+    /**
+     * getUnchangedFrameFilter -- Takes 0 parameters.
+     * @return The filter unchanged frames are skipped by, its tolerances can be tuned at any time
+     */
+    UnchangedFrameFilter getUnchangedFrameFilter() { return unchangedFilter; }
+
+    /**
+     * setDropDuplicates -- Takes 1 parameter.
+     * Chooses whether barcodes the DuplicateResultCache has seen recently are dropped by the
+     * workers, before they are copied out of the frame or handed back. Applies from the next start.
+     *
+     * @param enabled true to drop duplicates
+     */
+    void setDropDuplicates(boolean enabled) { dropDuplicates = enabled; }
+
+    boolean isDropDuplicates() { return dropDuplicates; }
+
+    /**
+     * getDuplicateCache -- Takes 0 parameters.
+     * @return The cache duplicates are dropped by, its time to live and capacity can be tuned at
+     * any time
+     */
+    DuplicateResultCache getDuplicateCache() { return duplicateCache; }
+
+    /**
+     * setBinarizerStrategy -- Takes 1 parameter.
+     * Sets how decoders that support it choose a binarizer for each frame. Applies to the running
+     * session from the next frame a worker picks up.
+     *
+     * @param strategy The binarizer strategy
+     */
+    void setBinarizerStrategy(@NonNull BinarizerSelector.Strategy strategy) { binarizerStrategy = strategy; }
+
+    BinarizerSelector.Strategy getBinarizerStrategy() { return binarizerStrategy; }
+
+    /**
+     * setLatencyBudget -- Takes 1 parameter.
+     * Sets the capture-to-result latency the FrameRateScheduler tries to stay within by skipping
+     * frames. Applies to the running session straight away.
+     *
+     * @param budgetMillis The latency budget in milliseconds, or 0 to decode every frame
+     */
+    void setLatencyBudget(long budgetMillis) {
+
+        latencyBudget = Math.max(0L, budgetMillis);
+
+        if (session != null)
+
+            session.scheduler.setLatencyBudget(latencyBudget);
+
+    }
+
+    long getLatencyBudget() { return latencyBudget; }
+
+    /**
+     * getSubmissionRate -- Takes 0 parameters.
+     * @return How many frames per second are currently being submitted to the decoders
+     */
+    float getSubmissionRate() {
+
+        Session current = session;
+
+        return current != null ? current.scheduler.getSubmissionRate() : 0f;
+
+    }
+
+    /**
+     * getSkippedFrames -- Takes 0 parameters.
+     * @return How many frames the scheduler skipped to stay within the latency budget
+     */
+    long getSkippedFrames() {
+
+        Session current = session;
+
+        return current != null ? current.scheduler.getSkippedFrames() : 0L;
+
+    }
+
+    /**
+     * getDroppedFrames -- Takes 0 parameters.
+     * @return How many submitted frames were evicted from the full frame queue before decoding
+     */
+    long getDroppedFrames() {
+
+        Session current = session;
+
+        return current != null ? current.droppedFrames.get() : 0L;
+
+    }
+
+    /**
+     * getScanMetrics -- Takes 0 parameters.
+     * @return The stage latencies and frame counts recorded since the metrics were last reset
+     */
+    ScanMetrics getScanMetrics() { return metrics.snapshot(); }
+
+    void resetScanMetrics() { metrics.reset(); }
+
+    void setDecoderFactory(DecoderFactory decoderFactory) {
+
+        this.decoderFactory = decoderFactory;
+
+        // Make the running workers pick up the new factory on their next frame
+        if (session != null)
+
+            session.idleDecoders.clear();
+
+    }
+
+    boolean isRunning() { return session != null; }
+
+    /**
+     * getDecodedFramesPerSecond -- Takes 0 parameters.
+     * @return The number of frames decoded per second since the engine was last started
+     */
+    float getDecodedFramesPerSecond() {
+
+        Session current = session;
+
+        if (current == null)
+
+            return 0f;
+
+        long elapsed = SystemClock.elapsedRealtime() - current.startTime;
+
+        return elapsed > 0 ? current.decodedFrames.get() * 1000f / elapsed : 0f;
+
+    }
+
+    /**
+     * start -- Takes 3 parameters.
+     * Starts pulling preview frames from the camera and decoding them.
+     *
+     * @param cameraInstance The camera to pull preview frames from
+     * @param cropRect       The framing rect to decode, in preview frame coordinates
+     * @param delivery       How the results are handed back, FRAME also finds every barcode in
+     *                       a frame instead of just one
+     */
+    void start(@NonNull CameraInstance cameraInstance, @NonNull Rect cropRect, @NonNull Delivery delivery) {
+
+        stop();
+
+        // A new session may well be pointed at something else
+        unchangedFilter.reset();
+
+        regionTracker.reset();
+
+        session = new Session(cameraInstance, new Rect(cropRect), workerCount, latencyBudget, delivery);
+
+        session.start();
+
+    }
+
+    /**
+     * getFramePoolExhaustedCount -- Takes 0 parameters.
+     * @return How many times the camera couldn't be given a frame buffer since the engine was
+     * last started, because all of them were still queued or being decoded
+     */
+    long getFramePoolExhaustedCount() {
+
+        Session current = session;
+
+        FrameBufferPool pool = current != null && current.pooledCamera != null ? current.pooledCamera.getFramePool() : null;
+
+        return pool != null ? pool.getExhaustedCount() : 0L;
+
+    }
+
+    void stop() {
+
+        if (session != null) {
+
+            session.shutdown();
+
+            session = null;
+
+        }
+
+    }
+
+    private Decoder createDecoder(DecoderFactory factory) {
+
+        DecoderResultPointCallback pointCallback = new DecoderResultPointCallback();
+
+        Map<DecodeHintType, Object> hints = new HashMap<>();
+
+        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, pointCallback);
+
+        Decoder decoder = factory.createDecoder(hints);
+
+        pointCallback.setDecoder(decoder);
+
+        return decoder;
+
+    }
+
+    /**
+     * isSighting -- Takes 2 parameters.
+     * Duplicates are never delivered, so a frame whose results were all dropped as duplicates
+     * must not move the start of the end-to-end latency.
+     *
+     * @param results The results of a frame left after dropping duplicates, or null
+     * @param resultPoints The possible result points found in the frame, or null
+     * @return Whether the frame counts as a sighting of a barcode still to be delivered
+     */
+    static boolean isSighting(List<BarcodeResult> results, List<ResultPoint> resultPoints) {
+
+        return (results != null && !results.isEmpty()) || (resultPoints != null && !resultPoints.isEmpty());
+
+    }
+
+    /**
+     * The framing rect copied out of a frame. Result points are translated as if it were still
+     * the whole frame cropped to the framing rect.
+     */
+    private static final class CroppedSourceData extends SourceData {
+
+        private final int cropLeft;
+        private final int cropTop;
+
+        private final int frameWidth;
+
+        CroppedSourceData(byte[] data, int width, int height, int rotation, int cropLeft, int cropTop, int frameWidth) {
+            super(data, width, height, ImageFormat.NV21, rotation);
+
+            this.cropLeft = cropLeft;
+
+            this.cropTop = cropTop;
+
+            this.frameWidth = frameWidth;
+
+        }
+
+        @Override
+        public ResultPoint translateResultPoint(ResultPoint point) {
+
+            float x = point.getX() * getScalingFactor() + cropLeft;
+
+            float y = point.getY() * getScalingFactor() + cropTop;
+
+            // The same as SourceData, which mirrors across the width of the frame
+            if (isPreviewMirrored())
+
+                x = frameWidth - x;
+
+            return new ResultPoint(x, y);
+
+        }
+
+    }
+
+    private static final class Frame {
+
+        final long sequence;
+
+        final long capturedAt;
+
+        final SourceData sourceData;
+
+        // Set by the worker that decodes the frame, when skipping unchanged frames
+        FrameFingerprint fingerprint;
+
+        // How the frame is decoded, null unless the decoder factory schedules attempts
+        AttemptScheduler.Attempt attempt;
+
+        // How many attempts the frame's decoder takes turns with
+        int attempts = 1;
+
+        Frame(long sequence, long capturedAt, SourceData sourceData) {
+
+            this.sequence = sequence;
+
+            this.capturedAt = capturedAt;
+
+            this.sourceData = sourceData;
+
+        }
+
+    }
+
+    /**
+     * State belonging to a single start/stop cycle. Workers hold on to their session, so frames
+     * still being decoded after a stop can never leak results into the next session.
+     */
+    private final class Session implements PreviewCallback {
+
+        final ConcurrentLinkedQueue<Decoder> idleDecoders = new ConcurrentLinkedQueue<>();
+
+        final ResultSequencer<List<BarcodeResult>> sequencer = new ResultSequencer<>();
+
+        final AtomicInteger activeWorkers = new AtomicInteger();
+
+        final AtomicLong decodedFrames = new AtomicLong();
+
+        final AtomicLong droppedFrames = new AtomicLong();
+
+        final long startTime = SystemClock.elapsedRealtime();
+
+        final CameraInstance cameraInstance;
+
+        final FrameQueue<Frame> frames;
+
+        final FrameRateScheduler scheduler;
+
+        final Executor executor;
+
+        // Only set when the session created its own pool, which it shuts down again
+        final ExecutorService ownExecutor;
+
+        final Rect cropRect;
+
+        final int workerCount;
+
+        final int rotation;
+
+        final Delivery delivery;
+
+        final boolean multiple;
+
+        // Only set when delivering in batches
+        final ResultBatcher<BarcodeResult> batcher;
+
+        final long batchWindow;
+
+        // Only set when duplicates are dropped
+        final DuplicateResultCache duplicates;
+
+        final int tileColumns;
+        final int tileRows;
+
+        volatile boolean running = true;
+
+        // Only set when the camera can stream frames into pooled buffers
+        final PooledCameraInstance pooledCamera;
+
+        // Set while frames are streamed instead of requested through one-shot camera callbacks
+        volatile boolean pooled;
+
+        // Only touched from the camera thread
+        private long nextSequence;
+
+        private int reportedLeaks;
+
+        Session(CameraInstance cameraInstance, Rect cropRect, int workerCount, long latencyBudget, Delivery delivery) {
+
+            this.cameraInstance = cameraInstance;
+
+            this.pooledCamera = cameraInstance instanceof PooledCameraInstance ? (PooledCameraInstance) cameraInstance : null;
+
+            this.cropRect = cropRect;
+
+            this.workerCount = workerCount;
+
+            this.rotation = cameraInstance.getCameraRotation();
+
+            this.delivery = delivery;
+
+            this.multiple = delivery == Delivery.FRAME;
+
+            this.batcher = delivery == Delivery.BATCH ? new ResultBatcher<>(batchCount) : null;
+
+            this.batchWindow = DecodeEngine.this.batchWindow;
+
+            this.duplicates = dropDuplicates ? duplicateCache : null;
+
+            this.tileColumns = DecodeEngine.this.tileColumns;
+
+            this.tileRows = DecodeEngine.this.tileRows;
+
+            this.frames = new FrameQueue<>(Math.min(workerCount, MAX_QUEUED_FRAMES));
+
+            this.scheduler = new FrameRateScheduler(latencyBudget);
+
+            this.ownExecutor = DecodeEngine.this.executor == null
+                    ? Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory()) : null;
+
+            this.executor = ownExecutor != null ? ownExecutor : DecodeEngine.this.executor;
+
+        }
+
+        void start() {
+
+            // Enough buffers for a full frame queue plus one frame per busy worker
+            pooled = pooledCamera != null && pooledCamera.startPooledPreview(frames.capacity() + workerCount, this);
+
+            if (!pooled)
+
+                requestNextPreview();
+
+        }
+
+        void requestNextPreview() {
+
+            if (running)
+
+                cameraInstance.requestPreview(this);
+
+        }
+
+        void shutdown() {
+
+            running = false;
+
+            if (pooled)
+
+                pooledCamera.stopPooledPreview();
+
+            frames.clear();
+
+            // A shared executor stays up, tasks still queued on it see the session stopped
+            if (ownExecutor != null)
+
+                ownExecutor.shutdown();
+
+            // Hand over what was collected so far rather than losing it
+            List<BarcodeResult> rest = batcher != null ? batcher.takeAll() : null;
+
+            long posted = System.nanoTime();
+
+            if (rest != null)
+
+                resultHandler.post(() -> deliverBatch(rest, posted));
+
+        }
+
+        private void recycle(SourceData sourceData) {
+
+            // Frames from one-shot callbacks aren't pooled and are ignored
+            if (pooledCamera != null)
+
+                pooledCamera.recycleBuffer(sourceData.getData());
+
+        }
+
+        private void checkForLeaks(FrameBufferPool pool) {
+
+            int leaks = pool.countLeaks(FRAME_LEAK_TIMEOUT_MS);
+
+            if (leaks > reportedLeaks)
+
+                Log.w(TAG, leaks + " frame buffers have been held for over " + FRAME_LEAK_TIMEOUT_MS + " ms");
+
+            reportedLeaks = leaks;
+
+        }
+
+        @Override
+        public void onPreview(SourceData sourceData) {
+
+            if (!running) {
+
+                recycle(sourceData);
+
+                return;
+
+            }
+
+            long now = System.nanoTime();
+
+            metrics.frameSeen();
+
+            if (scheduler.shouldSubmit(now)) {
+
+                submit(new Frame(nextSequence++, now, sourceData));
+
+            } else {
+
+                metrics.frameDropped();
+
+                recycle(sourceData);
+
+            }
+
+            FrameBufferPool pool = pooled ? pooledCamera.getFramePool() : null;
+
+            // Keep the camera busy so the workers always have a fresh frame waiting
+            if (pool == null)
+
+                requestNextPreview();
+
+            else
+
+                checkForLeaks(pool);
+
+        }
+
+        private void submit(Frame frame) {
+
+            Frame evicted = frames.offer(frame);
+
+            // The dropped frame still has to be accounted for so later results are released
+            if (evicted != null) {
+
+                droppedFrames.incrementAndGet();
+
+                metrics.frameDropped();
+
+                complete(evicted.sequence, null);
+
+                recycle(evicted.sourceData);
+
+            }
+
+            if (tryAcquireWorker()) {
+
+                try {
+
+                    executor.execute(this::drainFrames);
+
+                } catch (RejectedExecutionException exception) {
+
+                    // The session was stopped between the running check and now
+                    activeWorkers.decrementAndGet();
+
+                }
+
+            }
+
+        }
+
+        @Override
+        public void onPreviewError(Exception error) {
+
+            Log.e(TAG, "Preview frame failed", error);
+
+            // Also reached when pooled streaming couldn't be set up, carry on with one-shot frames
+            pooled = false;
+
+            requestNextPreview();
+
+        }
+
+        private boolean tryAcquireWorker() {
+
+            for (int active = activeWorkers.get(); active < workerCount; active = activeWorkers.get())
+
+                if (activeWorkers.compareAndSet(active, active + 1))
+
+                    return true;
+
+            return false;
+
+        }
+
+        private void drainFrames() {
+
+            DecoderFactory factory = decoderFactory;
+
+            Decoder decoder = acquireDecoder(factory);
+
+            do {
+
+                for (Frame frame; running && (frame = frames.poll()) != null; )
+
+                    decode(decoder, frame);
+
+                activeWorkers.decrementAndGet();
+
+                // A frame may have been queued after our last poll but before we released the slot
+            } while (running && !frames.isEmpty() && tryAcquireWorker());
+
+            releaseDecoder(factory, decoder);
+
+        }
+
+        private Decoder acquireDecoder(DecoderFactory factory) {
+
+            Decoder decoder = idleDecoders.poll();
+
+            if (decoder == null)
+
+                decoder = createDecoder(factory);
+
+            BinarizingDecoder.configure(decoder, binarizerStrategy, metrics);
+
+            return decoder;
+
+        }
+
+        private void releaseDecoder(DecoderFactory factory, Decoder decoder) {
+
+            // Only keep the decoder if the factory hasn't been swapped out in the meantime
+            if (factory == decoderFactory)
+
+                idleDecoders.offer(decoder);
+
+        }
+
+        private void decode(Decoder decoder, Frame frame) {
+
+            SourceData sourceData = frame.sourceData;
+
+            BarcodeResult barcodeResult = null;
+
+            boolean decoded = false;
+
+            List<ResultPoint> resultPoints = null;
+
+            RegionDecodeJob job = null;
+
+            boolean skipped = false;
+
+            long started = System.nanoTime();
+
+            metrics.record(ScanMetrics.Stage.FRAME_WAIT, started - frame.capturedAt);
+
+            try {
+
+                sourceData.setCropRect(cropRect);
+
+                LuminanceSource source = zeroCopyCrop ? FramingRectLuminanceSource.wrap(sourceData.getData(),
+                        sourceData.getDataWidth(), sourceData.getDataHeight(), rotation, cropRect.left,
+                        cropRect.top, cropRect.width(), cropRect.height()) : sourceData.createSource();
+
+                long prepared = System.nanoTime();
+
+                metrics.record(ScanMetrics.Stage.LUMINANCE, prepared - started);
+
+                if (qualityGateEnabled) {
+
+                    FrameQualityGate.Verdict verdict = qualityGate.check(source);
+
+                    if (verdict != FrameQualityGate.Verdict.ACCEPTED) {
+
+                        metrics.frameRejected(verdict);
+
+                        skipped = true;
+
+                    }
+
+                }
+
+                if (!skipped && skipUnchangedFrames) {
+
+                    frame.fingerprint = FrameFingerprint.of(source);
+
+                    if (unchangedFilter.isUnchanged(frame.fingerprint, System.nanoTime())) {
+
+                        metrics.frameUnchanged();
+
+                        skipped = true;
+
+                    }
+
+                }
+
+                if (qualityGateEnabled || skipUnchangedFrames) {
+
+                    long checked = System.nanoTime();
+
+                    metrics.record(ScanMetrics.Stage.QUALITY_GATE, checked - prepared);
+
+                    prepared = checked;
+
+                }
+
+                boolean oneDOnly = BinarizingDecoder.isOneDOnly(decoder);
+
+                boolean scanLineFrame = scanLine && !multiple && oneDOnly;
+
+                // Skipped frames don't use up a turn
+                if (!skipped) {
+
+                    frame.attempt = BinarizingDecoder.nextAttempt(decoder);
+
+                    frame.attempts = BinarizingDecoder.getCycleLength(decoder);
+
+                }
+
+                // A turned band would be read across its few rows, so it's read upright instead
+                if (scanLineFrame && frame.attempt == AttemptScheduler.Attempt.ROTATED) {
+
+                    frame.attempt = AttemptScheduler.Attempt.PLAIN;
+
+                    BinarizingDecoder.joinAttempt(decoder, frame.attempt);
+
+                }
+
+                if (skipped) {
+
+                    // Nothing to decode, the frame is finished below
+
+                } else if (multiple) {
+
+                    job = new RegionDecodeJob(source, tileColumns, tileRows);
+
+                } else {
+
+                    List<ResultPoint> possibleResultPoints = new ArrayList<>();
+
+                    PyramidDecoder.Step step = (level, points) -> {
+
+                        Result found = decoder.decode(level);
+
+                        points.addAll(decoder.getPossibleResultPoints());
+
+                        return found;
+
+                    };
+
+                    // A tracked region is a crop of the frame, and so still pyramid decodable
+                    PyramidDecoder.Step frameStep = !pyramidDecoding ? step : (region, points) ->
+                            region instanceof FramingRectLuminanceSource
+                                    ? pyramidDecoder.decode((FramingRectLuminanceSource) region, step, points, oneDOnly)
+                                    : step.decode(region, points);
+
+                    Result result = scanLineFrame ? scanLineDecoder.decode(source, step, possibleResultPoints)
+                            : regionTracking ? regionTracker.decode(source, frameStep, possibleResultPoints)
+                            : frameStep.decode(source, possibleResultPoints);
+
+                    recordDecodeTime(System.nanoTime() - prepared, BinarizingDecoder.takeBinarizeTime(decoder));
+
+                    decoded = result != null;
+
+                    // Pooled buffers are about to be reused, so a new result gets its own copy
+                    if (decoded && !isDuplicate(result))
+
+                        barcodeResult = new BarcodeResult(result, pooledCamera != null ? copyOf(sourceData) : sourceData);
+
+                    resultPoints = BarcodeResult.transformResultPoints(possibleResultPoints, sourceData);
+
+                }
+
+            } catch (RuntimeException exception) {
+
+                Log.e(TAG, "Failed to decode frame " + frame.sequence, exception);
+
+            } finally {
+
+                // Otherwise the frame belongs to the job, whoever finishes its last region recycles it
+                if (job == null)
+
+                    recycle(sourceData);
+
+            }
+
+            if (skipped)
+
+                skipFrame(frame);
+
+            else if (job != null)
+
+                decodeRegions(decoder, frame, job);
+
+            else
+
+                finishFrame(frame, decoded, barcodeResult != null ? Collections.singletonList(barcodeResult) : null,
+                        resultPoints);
+
+        }
+
+        private void decodeRegions(Decoder decoder, Frame frame, RegionDecodeJob job) {
+
+            startHelpers(frame, job);
+
+            for (RegionDecodeJob.Region region; (region = job.claim()) != null; ) {
+
+                if (job.decode(decoder, region)) {
+
+                    finishRegions(frame, job);
+
+                    return;
+
+                }
+
+                // A hit queues up to four more regions, let idle workers pick them up
+                if (job.hasQueuedRegions())
+
+                    startHelpers(frame, job);
+
+            }
+
+        }
+
+        private void startHelpers(Frame frame, RegionDecodeJob job) {
+
+            while (running && job.hasQueuedRegions() && job.tryAddHelper(workerCount - 1)) {
+
+                try {
+
+                    executor.execute(() -> helpWithRegions(frame, job));
+
+                } catch (RejectedExecutionException exception) {
+
+                    // The session was stopped, the regions left are finished by the calling worker
+                    job.removeHelper();
+
+                    return;
+
+                }
+
+            }
+
+        }
+
+        private void helpWithRegions(Frame frame, RegionDecodeJob job) {
+
+            DecoderFactory factory = decoderFactory;
+
+            Decoder decoder = acquireDecoder(factory);
+
+            BinarizingDecoder.joinAttempt(decoder, frame.attempt);
+
+            try {
+
+                decodeRegions(decoder, frame, job);
+
+            } finally {
+
+                job.removeHelper();
+
+                releaseDecoder(factory, decoder);
+
+            }
+
+        }
+
+        private void finishRegions(Frame frame, RegionDecodeJob job) {
+
+            SourceData sourceData = frame.sourceData;
+
+            if (job.getFailure() != null)
+
+                Log.e(TAG, "Failed to decode part of frame " + frame.sequence, job.getFailure());
+
+            recordDecodeTime(job.getDecodeTime(), job.getBinarizeTime());
+
+            List<BarcodeResult> results = null;
+
+            boolean decoded = false;
+
+            List<ResultPoint> resultPoints = null;
+
+            try {
+
+                List<Result> found = job.getResults();
+
+                decoded = !found.isEmpty();
+
+                List<Result> fresh = new ArrayList<>(found.size());
+
+                for (Result result : found)
+
+                    if (!isDuplicate(result))
+
+                        fresh.add(result);
+
+                if (!fresh.isEmpty()) {
+
+                    results = new ArrayList<>(fresh.size());
+
+                    // All the new results share one copy of a pooled buffer
+                    SourceData resultSource = pooledCamera != null ? copyOf(sourceData) : sourceData;
+
+                    for (Result result : fresh)
+
+                        results.add(new BarcodeResult(result, resultSource));
+
+                }
+
+                resultPoints = BarcodeResult.transformResultPoints(job.getPossibleResultPoints(), sourceData);
+
+            } catch (RuntimeException exception) {
+
+                Log.e(TAG, "Failed to collect the results of frame " + frame.sequence, exception);
+
+            } finally {
+
+                recycle(sourceData);
+
+            }
+
+            finishFrame(frame, decoded, results, resultPoints);
+
+        }
+
+        private void recordDecodeTime(long decodeNanos, long binarizeNanos) {
+
+            // Decoders that don't report binarizing have it counted as part of decoding
+            if (binarizeNanos >= 0L) {
+
+                metrics.record(ScanMetrics.Stage.BINARIZE, binarizeNanos);
+
+                decodeNanos -= binarizeNanos;
+
+            }
+
+            metrics.record(ScanMetrics.Stage.DECODE, decodeNanos);
+
+        }
+
+        // Decoded frames may still have no results left once duplicates are dropped
+        private void finishFrame(Frame frame, boolean found, List<BarcodeResult> results,
+                                 List<ResultPoint> resultPoints) {
+
+            decodedFrames.incrementAndGet();
+
+            if (found)
+
+                metrics.frameDecoded();
+
+            else
+
+                metrics.frameFailed();
+
+            // A scene is only given up on once every attempt in the cycle has failed on it
+            if (frame.fingerprint != null)
+
+                unchangedFilter.decoded(frame.fingerprint, found, frame.attempts, System.nanoTime());
+
+            if (isSighting(results, resultPoints))
+
+                metrics.sighted(frame.capturedAt);
+
+            complete(frame.sequence, results);
+
+            long now = System.nanoTime();
+
+            scheduler.onFrameDecoded(now - frame.capturedAt, now);
+
+            if (resultPoints != null && !resultPoints.isEmpty()) {
+
+                final List<ResultPoint> points = resultPoints;
+
+                resultHandler.post(() -> {
+
+                    if (running)
+
+                        callback.possibleResultPoints(points);
+
+                });
+
+            }
+
+        }
+
+        private void skipFrame(Frame frame) {
+
+            complete(frame.sequence, null);
+
+            // Skipping is quick, which lets the scheduler submit frames sooner
+            long now = System.nanoTime();
+
+            scheduler.onFrameDecoded(now - frame.capturedAt, now);
+
+        }
+
+        // Records the barcode as seen
+        private boolean isDuplicate(Result result) {
+
+            return duplicates != null
+                    && duplicates.isDuplicate(result.getText(), result.getBarcodeFormat(), SystemClock.elapsedRealtime());
+
+        }
+
+        // Copies only the framing rect out of the frame, so the copy's bitmap shows just the framing
+        // rect. Its transformed result points are still in preview coordinates
+        private SourceData copyOf(SourceData sourceData) {
+
+            int width = sourceData.getDataWidth();
+
+            int height = sourceData.getDataHeight();
+
+            Rect crop = sourceData.getCropRect();
+
+            // The crop rect is upright, the camera data isn't, mapped the way SourceData.getBitmap() does
+            Rect area = sourceData.isRotated() ? new Rect(crop.top, crop.left, crop.bottom, crop.right) : crop;
+
+            // NV21 shares a chroma sample between 2x2 pixels, so the area starts and ends on even pixels
+            int left = Math.max(0, area.left) & ~1;
+
+            int top = Math.max(0, area.top) & ~1;
+
+            int cropWidth = (Math.min(width, area.right) - left) & ~1;
+
+            int cropHeight = (Math.min(height, area.bottom) - top) & ~1;
+
+            SourceData copy;
+
+            if (sourceData.getImageFormat() != ImageFormat.NV21 || cropWidth <= 0 || cropHeight <= 0) {
+
+                copy = new SourceData(sourceData.getData().clone(), width, height, sourceData.getImageFormat(),
+                        rotation);
+
+                copy.setCropRect(crop);
+
+            } else {
+
+                byte[] data = sourceData.getData();
+
+                byte[] cropped = new byte[cropWidth * cropHeight * 3 / 2];
+
+                for (int y = 0; y < cropHeight; y++)
+
+                    System.arraycopy(data, (top + y) * width + left, cropped, y * cropWidth, cropWidth);
+
+                // The interleaved chroma plane, one row for every two rows of luma
+                for (int y = 0; y < cropHeight / 2; y++)
+
+                    System.arraycopy(data, width * height + (top / 2 + y) * width + left, cropped,
+                            cropWidth * cropHeight + y * cropWidth, cropWidth);
+
+                copy = new CroppedSourceData(cropped, cropWidth, cropHeight, rotation, crop.left, crop.top, width);
+
+                copy.setCropRect(sourceData.isRotated() ? new Rect(0, 0, cropHeight, cropWidth)
+                        : new Rect(0, 0, cropWidth, cropHeight));
+
+            }
+
+            copy.setScalingFactor(sourceData.getScalingFactor());
+
+            copy.setPreviewMirrored(sourceData.isPreviewMirrored());
+
+            return copy;
+
+        }
+
+        private void complete(long sequence, List<BarcodeResult> results) {
+
+            // Posting under the sequencer lock keeps the main thread queue in capture order
+            sequencer.complete(sequence, results, ready -> {
+
+                if (delivery == Delivery.BATCH) {
+
+                    addToBatch(ready);
+
+                    return;
+
+                }
+
+                long posted = System.nanoTime();
+
+                resultHandler.post(() -> {
+
+                    if (!running)
+
+                        return;
+
+                    delivered(posted);
+
+                    if (delivery == Delivery.FRAME)
+
+                        multiCallback.barcodeResults(ready);
+
+                    else
+
+                        callback.barcodeResult(ready.get(0));
+
+                });
+
+            });
+
+        }
+
+        // Called under the sequencer lock, so batches are filled in capture order. Duplicates were
+        // already dropped by the workers and don't take up room in a batch
+        private void addToBatch(List<BarcodeResult> results) {
+
+            for (BarcodeResult result : results) {
+
+                if (batcher.add(result)) {
+
+                    long batch = batcher.getBatchNumber();
+
+                    long due = System.nanoTime() + batchWindow * 1_000_000L;
+
+                    resultHandler.postDelayed(() -> deliverBatch(batcher.take(batch), due), batchWindow);
+
+                }
+
+                List<BarcodeResult> full = batcher.takeIfFull();
+
+                if (full != null) {
+
+                    long posted = System.nanoTime();
+
+                    resultHandler.post(() -> deliverBatch(full, posted));
+
+                }
+
+            }
+
+        }
+
+        private void deliverBatch(List<BarcodeResult> batch, long due) {
+
+            // Unlike single results, batches taken before a stop are still handed over
+            if (batch != null) {
+
+                delivered(due);
+
+                batchCallback.barcodeBatch(batch);
+
+            }
+
+        }
+
+        // Called on the main thread with the time the delivery was posted for
+        private void delivered(long due) {
+
+            long now = System.nanoTime();
+
+            metrics.record(ScanMetrics.Stage.DISPATCH, now - due);
+
+            metrics.delivered(now);
+
+        }
+
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+
+            Thread thread = new Thread(runnable, TAG + "-" + count.incrementAndGet());
+
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+
+            return thread;
+
+        }
+
+    }
+
+}
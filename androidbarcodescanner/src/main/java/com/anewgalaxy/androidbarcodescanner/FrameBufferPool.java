@@ -0,0 +1,188 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * FrameBufferPool --
+ * Fixed-size pool of preview frame buffers. All buffers are allocated up front and the free
+ * ones are kept in a ring of slot indices, so acquiring and releasing never allocates.
+ *
+ * Every acquired buffer remembers when it was handed out, which lets countLeaks() spot buffers
+ * that were never returned. Failed acquires are counted so pool exhaustion can be monitored.
+ * @author Tyler Sizse
+ */
+final class FrameBufferPool {
+
+    private final byte[][] buffers;
+
+    // Ring of free slot indices, freeCount entries starting at freeHead
+    private final int[] freeSlots;
+
+    // When each slot was acquired, in System.nanoTime()
+    private final long[] acquiredAt;
+
+    private final boolean[] inUse;
+
+    private final int bufferSize;
+
+    private int freeHead;
+    private int freeCount;
+
+    private long exhaustedCount;
+
+    FrameBufferPool(int capacity, int bufferSize) {
+
+        if (capacity < 1)
+
+            throw new IllegalArgumentException("FrameBufferPool capacity must be at least 1, was " + capacity);
+
+        this.buffers = new byte[capacity][bufferSize];
+
+        this.freeSlots = new int[capacity];
+
+        this.acquiredAt = new long[capacity];
+
+        this.inUse = new boolean[capacity];
+
+        this.bufferSize = bufferSize;
+
+        for (int i = 0; i < capacity; i++)
+
+            freeSlots[i] = i;
+
+        freeCount = capacity;
+
+    }
+
+    /**
+     * acquire -- Takes 0 parameters.
+     * @return A free buffer, or null if every buffer is in use. A null return is counted as the
+     * pool being exhausted.
+     */
+    synchronized byte[] acquire() {
+
+        if (freeCount == 0) {
+
+            exhaustedCount++;
+
+            return null;
+
+        }
+
+        int slot = freeSlots[freeHead];
+
+        freeHead = (freeHead + 1) % freeSlots.length;
+
+        freeCount--;
+
+        acquiredAt[slot] = System.nanoTime();
+
+        inUse[slot] = true;
+
+        return buffers[slot];
+
+    }
+
+    /**
+     * release -- Takes 1 parameter.
+     * Returns a buffer to the pool.
+     *
+     * @param buffer A buffer previously returned by acquire()
+     * @throws IllegalArgumentException If the buffer doesn't belong to this pool
+     * @throws IllegalStateException    If the buffer was already released
+     */
+    synchronized void release(byte[] buffer) {
+
+        int slot = slotOf(buffer);
+
+        if (!inUse[slot])
+
+            throw new IllegalStateException("Frame buffer " + slot + " was released twice");
+
+        inUse[slot] = false;
+
+        freeSlots[(freeHead + freeCount) % freeSlots.length] = slot;
+
+        freeCount++;
+
+    }
+
+    /**
+     * owns -- Takes 1 parameter.
+     * @param buffer Any frame buffer
+     * @return true if the buffer was allocated by this pool
+     */
+    synchronized boolean owns(byte[] buffer) {
+
+        for (byte[] pooled : buffers)
+
+            if (pooled == buffer)
+
+                return true;
+
+        return false;
+
+    }
+
+    private int slotOf(byte[] buffer) {
+
+        for (int i = 0; i < buffers.length; i++)
+
+            if (buffers[i] == buffer)
+
+                return i;
+
+        throw new IllegalArgumentException("Frame buffer does not belong to this pool");
+
+    }
+
+    /**
+     * countLeaks -- Takes 1 parameter.
+     * @param maxHeldMillis How long a buffer may be held before it is considered leaked
+     * @return The number of buffers that have been acquired for longer than maxHeldMillis
+     */
+    synchronized int countLeaks(long maxHeldMillis) {
+
+        long now = System.nanoTime();
+
+        long maxHeldNanos = maxHeldMillis * 1_000_000L;
+
+        int leaks = 0;
+
+        for (int i = 0; i < acquiredAt.length; i++)
+
+            if (inUse[i] && now - acquiredAt[i] > maxHeldNanos)
+
+                leaks++;
+
+        return leaks;
+
+    }
+
+    int capacity() { return buffers.length; }
+
+    int bufferSize() { return bufferSize; }
+
+    synchronized int available() { return freeCount; }
+
+    synchronized int outstanding() { return buffers.length - freeCount; }
+
+    synchronized long getExhaustedCount() { return exhaustedCount; }
+
+    synchronized void resetExhaustedCount() { exhaustedCount = 0; }
+
+}
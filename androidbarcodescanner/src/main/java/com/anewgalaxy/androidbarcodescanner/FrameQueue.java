@@ -0,0 +1,72 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayDeque;
+
+/**
+ * FrameQueue --
+ * Bounded first-in first-out queue of frames waiting to be decoded. When the queue is full the
+ * oldest frame is evicted, so the decode workers always pick up the freshest frames available.
+ * @author Tyler Sizse
+ */
+final class FrameQueue<T> {
+
+    private final ArrayDeque<T> frames;
+
+    private final int capacity;
+
+    FrameQueue(int capacity) {
+
+        if (capacity < 1)
+
+            throw new IllegalArgumentException("FrameQueue capacity must be at least 1, was " + capacity);
+
+        this.frames = new ArrayDeque<>(capacity);
+
+        this.capacity = capacity;
+
+    }
+
+    /**
+     * offer -- Takes 1 parameter.
+     * Adds a frame to the tail of the queue, evicting the oldest frame if the queue is full.
+     *
+     * @param frame The frame to add
+     * @return The evicted frame, or null if nothing had to be dropped
+     */
+    synchronized T offer(T frame) {
+
+        T evicted = frames.size() == capacity ? frames.pollFirst() : null;
+
+        frames.addLast(frame);
+
+        return evicted;
+
+    }
+
+    synchronized T poll() { return frames.pollFirst(); }
+
+    synchronized boolean isEmpty() { return frames.isEmpty(); }
+
+    synchronized int size() { return frames.size(); }
+
+    int capacity() { return capacity; }
+
+    synchronized void clear() { frames.clear(); }
+
+}
@@ -0,0 +1,192 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * FrameRateScheduler --
+ * Decides which preview frames are submitted to the decoders so results stay within a latency
+ * budget. The latency of every decoded frame (capture to decode finished) feeds a moving
+ * average. While the average is over budget the minimum interval between submitted frames grows
+ * multiplicatively, starting from the camera frame interval, and once frames decode comfortably
+ * under budget the interval shrinks back down until every frame is submitted again.
+ *
+ * All times are in System.nanoTime() nanoseconds and passed in by the caller.
+ * @author Tyler Sizse
+ */
+final class FrameRateScheduler {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Weight of the newest sample in the latency moving average
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    // The interval is adjusted at most this often so one slow frame can't swing it
+    private static final long ADJUST_PERIOD_NANOS = 100 * NANOS_PER_MILLI;
+
+    private static final long MAX_INTERVAL_NANOS = NANOS_PER_SECOND;
+
+    private static final double BACK_OFF = 1.5;
+    private static final double SPEED_UP = 0.5;
+
+    private long budgetNanos;
+
+    private long intervalNanos;
+
+    private double averageLatencyNanos;
+
+    // Moving average of the time between camera frames
+    private double averageFrameGapNanos;
+
+    private long lastFrame = Long.MIN_VALUE;
+    private long lastSubmitted = Long.MIN_VALUE;
+    private long lastAdjusted = Long.MIN_VALUE;
+
+    private long submittedFrames;
+    private long skippedFrames;
+
+    private long rateWindowStart = Long.MIN_VALUE;
+    private long rateWindowFrames;
+    private float submissionRate;
+
+    /**
+     * @param budgetMillis The target capture-to-result latency, or 0 to submit every frame
+     */
+    FrameRateScheduler(long budgetMillis) {
+
+        setLatencyBudget(budgetMillis);
+
+    }
+
+    synchronized void setLatencyBudget(long budgetMillis) {
+
+        budgetNanos = Math.max(0L, budgetMillis) * NANOS_PER_MILLI;
+
+        if (budgetNanos == 0L)
+
+            intervalNanos = 0L;
+
+    }
+
+    synchronized long getLatencyBudget() { return budgetNanos / NANOS_PER_MILLI; }
+
+    /**
+     * shouldSubmit -- Takes 1 parameter.
+     * Called for every frame the camera delivers.
+     *
+     * @param now The current time
+     * @return true if the frame should be decoded, false if it should be skipped
+     */
+    synchronized boolean shouldSubmit(long now) {
+
+        if (lastFrame != Long.MIN_VALUE)
+
+            averageFrameGapNanos = averageFrameGapNanos == 0d ? now - lastFrame
+                    : averageFrameGapNanos + LATENCY_SMOOTHING * (now - lastFrame - averageFrameGapNanos);
+
+        lastFrame = now;
+
+        if (intervalNanos > 0L && lastSubmitted != Long.MIN_VALUE && now - lastSubmitted < intervalNanos) {
+
+            skippedFrames++;
+
+            return false;
+
+        }
+
+        lastSubmitted = now;
+
+        submittedFrames++;
+
+        if (rateWindowStart == Long.MIN_VALUE)
+
+            rateWindowStart = now;
+
+        rateWindowFrames++;
+
+        // Roll the submission rate over once a second
+        if (now - rateWindowStart >= NANOS_PER_SECOND) {
+
+            submissionRate = rateWindowFrames * (float) NANOS_PER_SECOND / (now - rateWindowStart);
+
+            rateWindowStart = now;
+
+            rateWindowFrames = 0;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * onFrameDecoded -- Takes 2 parameters.
+     * Called once a submitted frame has finished decoding.
+     *
+     * @param latency How long it took from the frame being captured to it being decoded
+     * @param now     The current time
+     */
+    synchronized void onFrameDecoded(long latency, long now) {
+
+        averageLatencyNanos = averageLatencyNanos == 0d ? latency
+                : averageLatencyNanos + LATENCY_SMOOTHING * (latency - averageLatencyNanos);
+
+        if (budgetNanos == 0L || (lastAdjusted != Long.MIN_VALUE && now - lastAdjusted < ADJUST_PERIOD_NANOS))
+
+            return;
+
+        lastAdjusted = now;
+
+        if (averageLatencyNanos > budgetNanos) {
+
+            // Anything shorter than the camera frame interval wouldn't skip a single frame
+            intervalNanos = Math.min(MAX_INTERVAL_NANOS,
+                    (long) (Math.max(intervalNanos, averageFrameGapNanos) * BACK_OFF));
+
+        } else if (latency < budgetNanos / 2 && intervalNanos > 0L) {
+
+            // Recover on the latest sample, the average lags badly while frames are sparse
+            intervalNanos = (long) (intervalNanos * SPEED_UP);
+
+            // Back at the camera frame rate, stop throttling altogether
+            if (intervalNanos <= averageFrameGapNanos)
+
+                intervalNanos = 0L;
+
+        }
+
+    }
+
+    /**
+     * getSubmissionRate -- Takes 0 parameters.
+     * @return How many frames per second were submitted over the last full second
+     */
+    synchronized float getSubmissionRate() { return submissionRate; }
+
+    /**
+     * getSubmitInterval -- Takes 0 parameters.
+     * @return The current minimum time between submitted frames in milliseconds, 0 if unthrottled
+     */
+    synchronized float getSubmitInterval() { return intervalNanos / (float) NANOS_PER_MILLI; }
+
+    synchronized float getAverageLatency() { return (float) (averageLatencyNanos / NANOS_PER_MILLI); }
+
+    synchronized long getSubmittedFrames() { return submittedFrames; }
+
+    synchronized long getSkippedFrames() { return skippedFrames; }
+
+}
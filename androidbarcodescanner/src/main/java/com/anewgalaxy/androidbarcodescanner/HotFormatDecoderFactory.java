@@ -0,0 +1,209 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2012-2018 ZXing authors, Journey Mobile
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import androidx.annotation.NonNull;
+
+import com.anewgalaxy.scannercore.AttemptScheduler;
+import com.anewgalaxy.scannercore.FormatHistogram;
+import com.anewgalaxy.scannercore.HotFormatReader;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.client.android.Intents;
+import com.journeyapps.barcodescanner.Decoder;
+import com.journeyapps.barcodescanner.DecoderFactory;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HotFormatDecoderFactory --
+ * Drop-in replacement for DefaultDecoderFactory that tries the formats which decoded most often
+ * recently first. Every decoder the factory creates records its hits in one shared histogram
+ * that decays over time, so when the last few hundred scans were all UPC_A the UPC_A reader is
+ * tried before anything else on every frame.
+ *
+ * Use it through AndroidBarcodeScannerView.setDecoderFactory(), with the same arguments that
+ * would be given to a DefaultDecoderFactory. setAttemptCycle() spreads trying harder, turned and
+ * inverted decodes over consecutive frames instead of making every frame pay for all of them.
+ * @author Tyler Sizse
+ */
+public class HotFormatDecoderFactory implements DecoderFactory {
+
+    private final FormatHistogram histogram;
+
+    private final Collection<BarcodeFormat> decodeFormats;
+
+    private final Map<DecodeHintType, ?> hints;
+
+    private final String characterSet;
+
+    private final int scanType;
+
+    private volatile boolean stopAfterFirstHit = true;
+
+    // Shared by every decoder, so the turns go round across all decoding threads
+    private final AttemptScheduler attemptScheduler = new AttemptScheduler(AttemptScheduler.Attempt.PLAIN);
+
+    public HotFormatDecoderFactory() {
+
+        this(null, null, null, Intents.Scan.NORMAL_SCAN);
+
+    }
+
+    public HotFormatDecoderFactory(Collection<BarcodeFormat> decodeFormats) {
+
+        this(decodeFormats, null, null, Intents.Scan.NORMAL_SCAN);
+
+    }
+
+    /**
+     * @param decodeFormats The formats to decode, or null for all of them
+     * @param hints         Extra decode hints, or null
+     * @param characterSet  The character set to decode with, or null
+     * @param scanType      One of Intents.Scan.NORMAL_SCAN, INVERTED_SCAN or MIXED_SCAN
+     */
+    public HotFormatDecoderFactory(Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> hints,
+                                   String characterSet, int scanType) {
+
+        this(decodeFormats, hints, characterSet, scanType, FormatHistogram.DEFAULT_HALF_LIFE);
+
+    }
+
+    /**
+     * @param decodeFormats The formats to decode, or null for all of them
+     * @param hints         Extra decode hints, or null
+     * @param characterSet  The character set to decode with, or null
+     * @param scanType      One of Intents.Scan.NORMAL_SCAN, INVERTED_SCAN or MIXED_SCAN
+     * @param halfLife      After how many successful scans an older scan counts for half as much
+     * @throws IllegalArgumentException If halfLife is less than 1
+     */
+    public HotFormatDecoderFactory(Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> hints,
+                                   String characterSet, int scanType, int halfLife) {
+
+        this.histogram = new FormatHistogram(halfLife);
+
+        this.decodeFormats = decodeFormats;
+
+        this.hints = hints;
+
+        this.characterSet = characterSet;
+
+        this.scanType = scanType;
+
+    }
+
+    /**
+     * setStopAfterFirstHit -- Takes 1 parameter.
+     * When enabled (the default) decoding a frame stops at the first format that decodes. When
+     * disabled the remaining formats are tried as well so every format in view is counted, and the
+     * result of the hottest format is returned. Applies to decoders created after the call.
+     *
+     * @param stopAfterFirstHit true to stop decoding a frame at the first hit
+     */
+    public void setStopAfterFirstHit(boolean stopAfterFirstHit) { this.stopAfterFirstHit = stopAfterFirstHit; }
+
+    public boolean isStopAfterFirstHit() { return stopAfterFirstHit; }
+
+    /**
+     * setAttemptCycle -- Takes 1 parameter.
+     * Decodes consecutive frames in turn the ways given, one per frame. With PLAIN, ROTATED,
+     * INVERTED a frame is decoded as it is, the next one turned by 90 degrees and the one after
+     * that inverted, then it starts over. Each frame pays for a single attempt, yet a barcode in
+     * view for a few frames is tried every way. Turning needs the zero-copy crop of the
+     * AndroidBarcodeScannerView, frames that can't be turned are decoded as they are. Applies to
+     * every decoder of the factory straight away, the default is PLAIN only.
+     *
+     * @param cycle The attempts to take turns with, in order
+     * @throws IllegalArgumentException If the cycle is empty
+     */
+    public void setAttemptCycle(@NonNull AttemptScheduler.Attempt... cycle) { attemptScheduler.setCycle(cycle); }
+
+    public AttemptScheduler.Attempt[] getAttemptCycle() { return attemptScheduler.getCycle(); }
+
+    /**
+     * getSuccessWeight -- Takes 1 parameter.
+     * @param format The format to look up
+     * @return The decayed number of recent successful decodes of the format
+     */
+    public double getSuccessWeight(@NonNull BarcodeFormat format) { return histogram.getWeight(format); }
+
+    /**
+     * getFormatOrder -- Takes 0 parameters.
+     * @return The formats this factory decodes, in the order new frames will try them
+     */
+    public List<BarcodeFormat> getFormatOrder() {
+
+        return new HotFormatReader(createHints(null), histogram, stopAfterFirstHit).getOrder();
+
+    }
+
+    /**
+     * clearHistory -- Takes 0 parameters.
+     * Forgets every recorded hit, so the formats go back to their default order.
+     */
+    public void clearHistory() { histogram.clear(); }
+
+    @Override
+    public Decoder createDecoder(Map<DecodeHintType, ?> baseHints) {
+
+        return new BinarizingDecoder(new HotFormatReader(createHints(baseHints), histogram, stopAfterFirstHit), scanType,
+                attemptScheduler);
+
+    }
+
+    private Map<DecodeHintType, Object> createHints(Map<DecodeHintType, ?> baseHints) {
+
+        Map<DecodeHintType, Object> merged = new EnumMap<>(DecodeHintType.class);
+
+        if (baseHints != null)
+
+            merged.putAll(baseHints);
+
+        if (hints != null)
+
+            merged.putAll(hints);
+
+        if (decodeFormats != null)
+
+            merged.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
+
+        if (characterSet != null)
+
+            merged.put(DecodeHintType.CHARACTER_SET, characterSet);
+
+        return merged;
+
+    }
+
+}
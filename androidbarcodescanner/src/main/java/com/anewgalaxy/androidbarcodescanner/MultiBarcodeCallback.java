@@ -0,0 +1,44 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import androidx.annotation.NonNull;
+
+import com.journeyapps.barcodescanner.BarcodeResult;
+
+import java.util.List;
+
+/**
+ * MultiBarcodeCallback --
+ * Receives every barcode found in a single preview frame, see
+ * AndroidBarcodeScannerView.decodeMultiple(). Called on the result executor, see the threading
+ * notes of AndroidBarcodeScannerView.
+ * @author Tyler Sizse
+ */
+public interface MultiBarcodeCallback {
+
+    /**
+     * barcodeResults -- Takes 1 parameter.
+     * Called for every frame in which at least one barcode was found.
+     *
+     * @param results The distinct barcodes in the frame, top to bottom and then left to right.
+     *                getResultPoints() locates each one within the framing rect, and
+     *                getTransformedResultPoints() within the preview.
+     */
+    void barcodeResults(@NonNull List<BarcodeResult> results);
+
+}
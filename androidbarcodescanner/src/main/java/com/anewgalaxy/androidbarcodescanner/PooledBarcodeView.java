@@ -0,0 +1,55 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.journeyapps.barcodescanner.BarcodeView;
+import com.journeyapps.barcodescanner.camera.CameraInstance;
+
+/**
+ * PooledBarcodeView --
+ * BarcodeView whose camera can stream preview frames into pooled buffers.
+ * @see PooledCameraInstance
+ * @author Tyler Sizse
+ */
+class PooledBarcodeView extends BarcodeView {
+
+    public PooledBarcodeView(@NonNull Context context) {
+        super(context);
+    }
+
+    public PooledBarcodeView(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    @Override
+    protected CameraInstance createCameraInstance() {
+
+        CameraInstance cameraInstance = new PooledCameraInstance(getContext());
+
+        cameraInstance.setCameraSettings(getCameraSettings());
+
+        return cameraInstance;
+
+    }
+
+}
@@ -0,0 +1,459 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2012-2018 ZXing authors, Journey Mobile
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.hardware.Camera;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.journeyapps.barcodescanner.Size;
+import com.journeyapps.barcodescanner.SourceData;
+import com.journeyapps.barcodescanner.camera.CameraInstance;
+import com.journeyapps.barcodescanner.camera.CameraManager;
+import com.journeyapps.barcodescanner.camera.PreviewCallback;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PooledCameraInstance --
+ * CameraInstance that can stream preview frames into buffers from a FrameBufferPool. The
+ * journeyapps CameraManager only supports one-shot preview callbacks, where the framework
+ * allocates a new byte[] for every frame. Here the camera fills pooled buffers handed to it with
+ * addCallbackBuffer(), and consumers give them back with recycleBuffer() once decoded.
+ * Like every other camera call in CameraInstance, the pooled preview is set up, topped up and torn
+ * down on the camera thread. CameraInstance has no public way onto that thread, so the first task
+ * asks for a single preview frame, which is delivered there without touching the camera
+ * parameters. The pool is kept for as long as the camera is open and is only
+ * rebuilt when the preview size or format changes.
+ * @author Tyler Sizse
+ */
+class PooledCameraInstance extends CameraInstance {
+
+    public static final String TAG = PooledCameraInstance.class.getSimpleName();
+
+    // How many buffers the camera is given to fill ahead of the consumers
+    private static final int CAMERA_BUFFERS = 2;
+
+    // Set by the first preview frame delivered on the camera thread
+    private volatile Handler cameraHandler;
+
+    // Tasks waiting for that first preview frame
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean hookRequested = new AtomicBoolean();
+
+    private final Runnable runPendingTasks = this::runPendingTasks;
+
+    private volatile FrameBufferPool pool;
+
+    private volatile boolean streaming;
+
+    // How many buffers the camera couldn't be given back because the pool was exhausted
+    private volatile int missingBuffers;
+
+    private final AtomicBoolean topUpPosted = new AtomicBoolean();
+
+    private final Runnable topUp = this::topUpCamera;
+
+    // Only touched from the camera thread
+    private PreviewCallback callback;
+
+    private Camera camera;
+
+    // The buffers currently held by the camera, handed back to the pool when streaming stops
+    private final byte[][] cameraBuffers = new byte[CAMERA_BUFFERS][];
+
+    PooledCameraInstance(Context context) {
+        super(context);
+    }
+
+    /**
+     * startPooledPreview -- Takes 2 parameters.
+     * Starts streaming preview frames into pooled buffers. The callback is called on the camera
+     * thread and takes ownership of the frame buffer until it is recycled. If streaming can't be
+     * set up there, the callback's onPreviewError is called instead.
+     *
+     * @param consumerBuffers How many buffers may be held by consumers at the same time
+     * @param callback        Receives each filled frame
+     * @return false if the camera isn't open and nothing was started
+     */
+    boolean startPooledPreview(int consumerBuffers, @NonNull PreviewCallback callback) {
+
+        if (!isOpen())
+
+            return false;
+
+        boolean mirrored = isFrontFacing();
+
+        runOnCameraThread(() -> startStreaming(consumerBuffers, callback, mirrored));
+
+        return true;
+
+    }
+
+    void stopPooledPreview() {
+
+        runOnCameraThread(this::stopStreaming);
+
+    }
+
+    @Override
+    public void close() {
+
+        Handler handler = cameraHandler;
+
+        // The camera thread quits once the camera is closed, anything after that runs in place
+        cameraHandler = null;
+
+        hookRequested.set(false);
+
+        // Queued ahead of the camera being released. Without the camera thread nothing was
+        // streamed yet, and a start still waiting for it is dropped
+        if (handler == null || !handler.post(this::stopStreaming)) {
+
+            pendingTasks.clear();
+
+            stopStreaming();
+
+        }
+
+        super.close();
+
+    }
+
+    /**
+     * getFramePool -- Takes 0 parameters.
+     * @return The pool frames are streamed into, or null if streaming was never started
+     */
+    FrameBufferPool getFramePool() {
+
+        return pool;
+
+    }
+
+    /**
+     * recycleBuffer -- Takes 1 parameter.
+     * Returns a frame buffer to the pool once the consumer is done with it, and tops the camera
+     * back up if it had been starved of buffers.
+     *
+     * @param buffer The buffer of a frame delivered through startPooledPreview
+     */
+    void recycleBuffer(@NonNull byte[] buffer) {
+
+        FrameBufferPool framePool = pool;
+
+        // Buffers of a pool that has been replaced since are left to the garbage collector
+        if (framePool == null || !framePool.owns(buffer))
+
+            return;
+
+        framePool.release(buffer);
+
+        Handler handler = cameraHandler;
+
+        if (streaming && missingBuffers > 0 && handler != null && topUpPosted.compareAndSet(false, true)) {
+
+            if (!handler.post(topUp))
+
+                topUpPosted.set(false);
+
+        }
+
+    }
+
+    // Tasks run in place once the camera thread can't be reached, so streaming is always stopped
+    private void runOnCameraThread(Runnable task) {
+
+        Handler handler = cameraHandler;
+
+        if (handler != null) {
+
+            if (!handler.post(task))
+
+                task.run();
+
+            return;
+
+        }
+
+        if (!isOpen()) {
+
+            task.run();
+
+            return;
+
+        }
+
+        pendingTasks.add(task);
+
+        // The preview frame may have arrived while the task was being queued
+        handler = cameraHandler;
+
+        if (handler != null)
+
+            handler.post(runPendingTasks);
+
+        else if (hookRequested.compareAndSet(false, true))
+
+            requestPreview(new PreviewCallback() {
+
+                @Override
+                public void onPreview(SourceData sourceData) {
+
+                    // Called on the camera thread, the framework allocated frame is just dropped
+                    if (!hookRequested.get())
+
+                        return;
+
+                    cameraHandler = new Handler(Looper.myLooper());
+
+                    runPendingTasks();
+
+                }
+
+                @Override
+                public void onPreviewError(Exception exception) {
+
+                    Log.e(TAG, "Failed to reach the camera thread", exception);
+
+                    hookRequested.set(false);
+
+                }
+
+            });
+
+    }
+
+    private void runPendingTasks() {
+
+        for (Runnable task; (task = pendingTasks.poll()) != null; )
+
+            task.run();
+
+    }
+
+    private void startStreaming(int consumerBuffers, PreviewCallback frameCallback, boolean mirrored) {
+
+        stopStreaming();
+
+        CameraManager cameraManager = getCameraManager();
+
+        try {
+
+            Size size = cameraManager.getNaturalPreviewSize();
+
+            int rotation = cameraManager.getCameraRotation();
+
+            camera = cameraManager.getCamera();
+
+            int format = camera.getParameters().getPreviewFormat();
+
+            int bufferSize = size.width * size.height * ImageFormat.getBitsPerPixel(format) / 8;
+
+            int capacity = consumerBuffers + CAMERA_BUFFERS;
+
+            FrameBufferPool current = pool;
+
+            if (current == null || current.bufferSize() != bufferSize || current.capacity() < capacity)
+
+                pool = new FrameBufferPool(capacity, bufferSize);
+
+            else
+
+                current.resetExhaustedCount();
+
+            callback = frameCallback;
+
+            missingBuffers = 0;
+
+            streaming = true;
+
+            camera.setPreviewCallbackWithBuffer((data, previewCamera) ->
+                    onPreviewFrame(data, size, format, rotation, mirrored));
+
+            for (int i = 0; i < CAMERA_BUFFERS; i++)
+
+                if (!giveBufferToCamera())
+
+                    missingBuffers++;
+
+        } catch (RuntimeException exception) {
+
+            // The camera was released underneath us
+            Log.e(TAG, "Failed to start pooled preview", exception);
+
+            stopStreaming();
+
+            frameCallback.onPreviewError(exception);
+
+        }
+
+    }
+
+    private void stopStreaming() {
+
+        if (streaming) {
+
+            streaming = false;
+
+            try {
+
+                camera.setPreviewCallbackWithBuffer(null);
+
+            } catch (RuntimeException exception) {
+
+                Log.w(TAG, "Camera released before the pooled preview was stopped");
+
+            }
+
+        }
+
+        // The camera drops the buffers it still held along with the callback
+        for (int i = 0; i < CAMERA_BUFFERS; i++) {
+
+            if (cameraBuffers[i] != null) {
+
+                pool.release(cameraBuffers[i]);
+
+                cameraBuffers[i] = null;
+
+            }
+
+        }
+
+        callback = null;
+
+        camera = null;
+
+    }
+
+    private void topUpCamera() {
+
+        topUpPosted.set(false);
+
+        while (streaming && missingBuffers > 0 && giveBufferToCamera())
+
+            missingBuffers--;
+
+    }
+
+    private void onPreviewFrame(byte[] data, Size size, int format, int rotation, boolean mirrored) {
+
+        if (!streaming || data == null)
+
+            return;
+
+        for (int i = 0; i < CAMERA_BUFFERS; i++)
+
+            if (cameraBuffers[i] == data)
+
+                cameraBuffers[i] = null;
+
+        // Replace the buffer the camera just filled
+        if (!giveBufferToCamera())
+
+            missingBuffers++;
+
+        SourceData sourceData = new SourceData(data, size.width, size.height, format, rotation);
+
+        sourceData.setPreviewMirrored(mirrored);
+
+        callback.onPreview(sourceData);
+
+    }
+
+    private boolean giveBufferToCamera() {
+
+        byte[] buffer = pool.acquire();
+
+        if (buffer == null)
+
+            return false;
+
+        for (int i = 0; i < CAMERA_BUFFERS; i++) {
+
+            if (cameraBuffers[i] == null) {
+
+                cameraBuffers[i] = buffer;
+
+                break;
+
+            }
+
+        }
+
+        camera.addCallbackBuffer(buffer);
+
+        return true;
+
+    }
+
+    private boolean isFrontFacing() {
+
+        int cameraId = getCameraSettings().getRequestedCameraId();
+
+        Camera.CameraInfo info = new Camera.CameraInfo();
+
+        if (cameraId < 0) {
+
+            // Same default as the journeyapps OpenCameraInterface, the first back facing camera
+            for (int i = 0; i < Camera.getNumberOfCameras(); i++) {
+
+                Camera.getCameraInfo(i, info);
+
+                if (info.facing == Camera.CameraInfo.CAMERA_FACING_BACK)
+
+                    return false;
+
+            }
+
+            cameraId = 0;
+
+        }
+
+        if (cameraId >= Camera.getNumberOfCameras())
+
+            return false;
+
+        Camera.getCameraInfo(cameraId, info);
+
+        return info.facing == Camera.CameraInfo.CAMERA_FACING_FRONT;
+
+    }
+
+}
@@ -0,0 +1,394 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.journeyapps.barcodescanner.Decoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RegionDecodeJob --
+ * Finds every barcode in one frame. Like the zxing GenericMultipleBarcodeReader the whole frame is
+ * decoded first, and every region that decodes is split again into the regions left of, above,
+ * right of and below the barcode it found. Next to the whole frame a grid of overlapping tiles is
+ * queued, so smaller barcodes are looked for in parallel from the start, while barcodes crossing
+ * a seam between tiles are still found in the whole frame. Regions are independent of each other,
+ * so any number of threads can claim and decode them at once.
+ *
+ * Result points are translated back into the coordinates of the whole source, and results with
+ * the same text and format, found in two overlapping regions, are merged into one.
+ * @author Tyler Sizse
+ */
+final class RegionDecodeJob {
+
+    // Same limits as GenericMultipleBarcodeReader
+    private static final int MIN_DIMENSION_TO_RECUR = 100;
+    private static final int MAX_DEPTH = 4;
+
+    // How much neighbouring tiles overlap, as a fraction of the tile size
+    static final float TILE_OVERLAP = 0.25f;
+
+    private final LuminanceSource source;
+
+    private final ConcurrentLinkedQueue<Region> regions = new ConcurrentLinkedQueue<>();
+
+    // Regions that were queued but haven't finished decoding yet
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicInteger helpers = new AtomicInteger();
+
+    // Summed over every region and thread, binarizing stays -1 unless a decoder reports it
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong binarizeNanos = new AtomicLong(-1L);
+
+    private final Map<String, Result> results = new LinkedHashMap<>();
+
+    private final List<ResultPoint> possibleResultPoints = new ArrayList<>();
+
+    private volatile RuntimeException failure;
+
+    /**
+     * @param source  The frame to decode, must support cropping
+     * @param columns The number of tile columns
+     * @param rows    The number of tile rows
+     */
+    RegionDecodeJob(LuminanceSource source, int columns, int rows) {
+
+        this.source = source;
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        columns = Math.max(1, columns);
+        rows = Math.max(1, rows);
+
+        // The whole source goes first, like in GenericMultipleBarcodeReader
+        queue(new Region(0, 0, width, height, 0));
+
+        if (columns == 1 && rows == 1)
+
+            return;
+
+        // Tiles are sized so that with the overlap added they still exactly cover the source
+        int tileWidth = (int) Math.ceil(width / (columns - (columns - 1) * TILE_OVERLAP));
+        int tileHeight = (int) Math.ceil(height / (rows - (rows - 1) * TILE_OVERLAP));
+
+        for (int row = 0; row < rows; row++) {
+
+            int top = rows == 1 ? 0 : Math.round(row * (height - tileHeight) / (float) (rows - 1));
+
+            for (int column = 0; column < columns; column++) {
+
+                int left = columns == 1 ? 0 : Math.round(column * (width - tileWidth) / (float) (columns - 1));
+
+                // One level down from the whole source
+                queue(new Region(left, top, Math.min(tileWidth, width - left), Math.min(tileHeight, height - top), 1));
+
+            }
+
+        }
+
+    }
+
+    private void queue(Region region) {
+
+        pending.incrementAndGet();
+
+        regions.offer(region);
+
+    }
+
+    /**
+     * claim -- Takes 0 parameters.
+     * @return The next region to decode, or null if none is waiting. More may be queued later
+     * while other threads are still decoding.
+     */
+    Region claim() { return regions.poll(); }
+
+    boolean hasQueuedRegions() { return !regions.isEmpty(); }
+
+    /**
+     * tryAddHelper -- Takes 1 parameter.
+     * Reserves a spot for an extra thread to help decode this job.
+     *
+     * @param maxHelpers How many helpers may work on the job at once
+     * @return true if the caller may start a helper, which must call removeHelper() when done
+     */
+    boolean tryAddHelper(int maxHelpers) {
+
+        for (int count = helpers.get(); count < maxHelpers; count = helpers.get())
+
+            if (helpers.compareAndSet(count, count + 1))
+
+                return true;
+
+        return false;
+
+    }
+
+    void removeHelper() { helpers.decrementAndGet(); }
+
+    /**
+     * decode -- Takes 2 parameters.
+     * Decodes a claimed region, records what it found and queues the regions around it.
+     *
+     * @param decoder The decoder to use, owned by the calling thread
+     * @param region  A region returned by claim()
+     * @return true if this was the last outstanding region, so the job is done
+     */
+    boolean decode(Decoder decoder, Region region) {
+
+        long start = System.nanoTime();
+
+        try {
+
+            Result result = decoder.decode(source.crop(region.left, region.top, region.width, region.height));
+
+            addPossibleResultPoints(decoder.getPossibleResultPoints(), region);
+
+            if (result != null)
+
+                found(result, region);
+
+        } catch (RuntimeException exception) {
+
+            // Keep going, the region still has to be released or the job never finishes
+            if (failure == null)
+
+                failure = exception;
+
+        }
+
+        decodeNanos.addAndGet(System.nanoTime() - start);
+
+        long binarized = BinarizingDecoder.takeBinarizeTime(decoder);
+
+        if (binarized >= 0L)
+
+            binarizeNanos.accumulateAndGet(binarized, (total, nanos) -> Math.max(total, 0L) + nanos);
+
+        // Regions queued above are counted before this one is released, so pending can't hit 0 early
+        return pending.decrementAndGet() == 0;
+
+    }
+
+    private void found(Result result, Region region) {
+
+        ResultPoint[] points = result.getResultPoints();
+
+        ResultPoint[] translated = points != null ? new ResultPoint[points.length] : null;
+
+        float minX = region.width;
+        float minY = region.height;
+        float maxX = 0f;
+        float maxY = 0f;
+
+        for (int i = 0; translated != null && i < points.length; i++) {
+
+            ResultPoint point = points[i];
+
+            if (point == null)
+
+                continue;
+
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+
+            translated[i] = new ResultPoint(point.getX() + region.left, point.getY() + region.top);
+
+        }
+
+        Result merged = new Result(result.getText(), result.getRawBytes(), result.getNumBits(), translated,
+                result.getBarcodeFormat(), result.getTimestamp());
+
+        merged.putAllMetadata(result.getResultMetadata());
+
+        synchronized (results) {
+
+            String key = result.getBarcodeFormat() + ":" + result.getText();
+
+            if (!results.containsKey(key))
+
+                results.put(key, merged);
+
+        }
+
+        if (region.depth >= MAX_DEPTH || maxX < minX)
+
+            return;
+
+        int depth = region.depth + 1;
+
+        if (minX > MIN_DIMENSION_TO_RECUR)
+
+            queue(new Region(region.left, region.top, (int) minX, region.height, depth));
+
+        if (minY > MIN_DIMENSION_TO_RECUR)
+
+            queue(new Region(region.left, region.top, region.width, (int) minY, depth));
+
+        if (maxX < region.width - MIN_DIMENSION_TO_RECUR)
+
+            queue(new Region(region.left + (int) maxX, region.top, region.width - (int) maxX, region.height, depth));
+
+        if (maxY < region.height - MIN_DIMENSION_TO_RECUR)
+
+            queue(new Region(region.left, region.top + (int) maxY, region.width, region.height - (int) maxY, depth));
+
+    }
+
+    private void addPossibleResultPoints(List<ResultPoint> points, Region region) {
+
+        if (points.isEmpty())
+
+            return;
+
+        synchronized (possibleResultPoints) {
+
+            for (ResultPoint point : points)
+
+                possibleResultPoints.add(new ResultPoint(point.getX() + region.left, point.getY() + region.top));
+
+        }
+
+    }
+
+    /**
+     * getResults -- Takes 0 parameters.
+     * @return Every distinct barcode found, top to bottom and then left to right
+     */
+    List<Result> getResults() {
+
+        List<Result> sorted;
+
+        synchronized (results) {
+
+            sorted = new ArrayList<>(results.values());
+
+        }
+
+        sorted.sort((a, b) -> {
+
+            ResultPoint pointA = firstPoint(a);
+            ResultPoint pointB = firstPoint(b);
+
+            int compare = Float.compare(pointA.getY(), pointB.getY());
+
+            return compare != 0 ? compare : Float.compare(pointA.getX(), pointB.getX());
+
+        });
+
+        return sorted;
+
+    }
+
+    private static ResultPoint firstPoint(Result result) {
+
+        ResultPoint[] points = result.getResultPoints();
+
+        if (points != null)
+
+            for (ResultPoint point : points)
+
+                if (point != null)
+
+                    return point;
+
+        return new ResultPoint(0f, 0f);
+
+    }
+
+    /**
+     * getDecodeTime -- Takes 0 parameters.
+     * @return The time spent decoding regions, summed over every thread, in nanoseconds
+     */
+    long getDecodeTime() { return decodeNanos.get(); }
+
+    /**
+     * getBinarizeTime -- Takes 0 parameters.
+     * @return The part of the decode time spent binarizing, in nanoseconds, or -1 if the
+     * decoders didn't report it
+     */
+    long getBinarizeTime() { return binarizeNanos.get(); }
+
+    /**
+     * getFailure -- Takes 0 parameters.
+     * @return The first exception thrown while decoding a region, or null if there was none
+     */
+    RuntimeException getFailure() { return failure; }
+
+    List<ResultPoint> getPossibleResultPoints() {
+
+        synchronized (possibleResultPoints) {
+
+            return new ArrayList<>(possibleResultPoints);
+
+        }
+
+    }
+
+    static final class Region {
+
+        final int left;
+        final int top;
+        final int width;
+        final int height;
+
+        final int depth;
+
+        Region(int left, int top, int width, int height, int depth) {
+
+            this.left = left;
+
+            this.top = top;
+
+            this.width = width;
+
+            this.height = height;
+
+            this.depth = depth;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ResultBatcher --
+ * Collects results into batches that are handed off whole. A batch is taken either by
+ * takeIfFull() once it reaches the count limit, or by take() when the time window that was
+ * scheduled as it started runs out, whichever comes first.
+ *
+ * Every batch has a number, so a timed take() that fires after its batch was already taken for
+ * being full doesn't cut the next batch short.
+ * @author Tyler Sizse
+ */
+final class ResultBatcher<T> {
+
+    private final int maxCount;
+
+    private List<T> items;
+
+    private long batchNumber;
+
+    /**
+     * @param maxCount How many results make a full batch
+     */
+    ResultBatcher(int maxCount) {
+
+        if (maxCount < 1)
+
+            throw new IllegalArgumentException("ResultBatcher count limit must be at least 1, was " + maxCount);
+
+        this.maxCount = maxCount;
+
+        this.items = new ArrayList<>(maxCount);
+
+    }
+
+    /**
+     * add -- Takes 1 parameter.
+     * @param item The result to add to the current batch
+     * @return true if the item started a new batch, so its time window should be scheduled
+     */
+    synchronized boolean add(T item) {
+
+        items.add(item);
+
+        return items.size() == 1;
+
+    }
+
+    /**
+     * takeIfFull -- Takes 0 parameters.
+     * @return The current batch if it reached the count limit, otherwise null
+     */
+    synchronized List<T> takeIfFull() {
+
+        return items.size() >= maxCount ? takeCurrent() : null;
+
+    }
+
+    /**
+     * take -- Takes 1 parameter.
+     * @param batch The number of the batch whose time window ran out
+     * @return That batch, or null if it was already taken or is empty
+     */
+    synchronized List<T> take(long batch) {
+
+        return batch == batchNumber && !items.isEmpty() ? takeCurrent() : null;
+
+    }
+
+    /**
+     * takeAll -- Takes 0 parameters.
+     * @return Whatever is in the current batch, or null if it is empty
+     */
+    synchronized List<T> takeAll() {
+
+        return items.isEmpty() ? null : takeCurrent();
+
+    }
+
+    synchronized long getBatchNumber() { return batchNumber; }
+
+    synchronized int size() { return items.size(); }
+
+    int getMaxCount() { return maxCount; }
+
+    private List<T> takeCurrent() {
+
+        List<T> batch = items;
+
+        items = new ArrayList<>(maxCount);
+
+        batchNumber++;
+
+        return batch;
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * ResultSequencer --
+ * Re-orders results coming back from several decode workers so they are released in the same
+ * order the frames were captured in. Every sequence number handed out must eventually be
+ * completed, either with a result or with null when the frame was dropped or had no barcode.
+ * @author Tyler Sizse
+ */
+final class ResultSequencer<T> {
+
+    private final Map<Long, T> completed = new HashMap<>();
+
+    private long nextSequence;
+
+    /**
+     * complete -- Takes 3 parameters.
+     * Marks a sequence number as finished and releases every result that is now in order. The
+     * consumer is called while holding the sequencer lock, so releases are never interleaved.
+     *
+     * @param sequence The sequence number of the finished frame
+     * @param result   The decoded result, or null if the frame produced nothing
+     * @param consumer Receives each in-order, non-null result
+     */
+    synchronized void complete(long sequence, T result, Consumer<T> consumer) {
+
+        // Ignore anything that was already released or from before the last reset
+        if (sequence < nextSequence)
+
+            return;
+
+        completed.put(sequence, result);
+
+        while (completed.containsKey(nextSequence)) {
+
+            T next = completed.remove(nextSequence++);
+
+            if (next != null)
+
+                consumer.accept(next);
+
+        }
+
+    }
+
+    synchronized long getNextSequence() { return nextSequence; }
+
+    synchronized int pending() { return completed.size(); }
+
+    synchronized void reset(long nextSequence) {
+
+        completed.clear();
+
+        this.nextSequence = nextSequence;
+
+    }
+
+}
@@ -0,0 +1,293 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Looper;
+
+import com.anewgalaxy.scannercore.ResultPointRing;
+import com.google.zxing.ResultPoint;
+import com.journeyapps.barcodescanner.CameraPreview;
+import com.journeyapps.barcodescanner.Size;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives the overlay through preview states and frames, and fails when a steady frame allocates,
+ * draws more than its budget or invalidates more than the laser band and the result points.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BarcodeOverlayViewTest {
+
+    private static final Rect FRAMING_RECT = new Rect(60, 100, 260, 300);
+
+    private static final Size PREVIEW_SIZE = new Size(640, 480);
+
+    private static final long LASER_STEP_MS = 60L;
+
+    private static final int WARM_UP_FRAMES = 100;
+    private static final int STEADY_FRAMES = 500;
+
+    // Four mask rects, the corner lines in one call and the laser
+    private static final int DRAW_OP_BUDGET = 6;
+
+    private final ResultPoint[] points = {new ResultPoint(200f, 200f), new ResultPoint(260f, 240f)};
+
+    private final CountingCanvas canvas = new CountingCanvas();
+
+    private FakePreview preview;
+
+    private CountingOverlayView overlay;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+
+        preview = new FakePreview(activity);
+        overlay = new CountingOverlayView(activity);
+        overlay.setCameraPreview(preview);
+
+        activity.setContentView(overlay);
+        idle(0L);
+
+        preview.listener.previewSized();
+        preview.listener.previewStarted();
+    }
+
+    @Test
+    public void onDraw_allocatesNothingInSteadyState() {
+        // Only the overlay's own code is measured, not the View and shadow code behind invalidate()
+        overlay.swallowInvalidations = true;
+
+        for (int i = 0; i < WARM_UP_FRAMES; i++)
+            drawFrame(i);
+
+        // Reading the counter allocates a little itself
+        long overhead = allocatedBytes();
+        overhead = allocatedBytes() - overhead;
+
+        long before = allocatedBytes();
+
+        for (int i = 0; i < STEADY_FRAMES; i++)
+            drawFrame(i);
+
+        long allocated = allocatedBytes() - before - overhead;
+
+        // Anything below a byte a frame is measuring noise, a real allocation costs at least 16
+        assertTrue("onDraw allocated " + allocated + " bytes in " + STEADY_FRAMES + " frames",
+                allocated < STEADY_FRAMES);
+    }
+
+    @Test
+    public void onDraw_staysWithinDrawOpBudget() throws Exception {
+        for (int i = 0; i < STEADY_FRAMES; i++) {
+            canvas.reset();
+            drawFrame(i);
+
+            assertEquals(4, canvas.rects);
+            assertEquals(DRAW_OP_BUDGET, canvas.getOps() - canvas.circles);
+            assertTrue(canvas.circles <= ResultPointRing.DEFAULT_CAPACITY);
+        }
+
+        // Points fade out by age, so once they are old enough nothing is left to draw
+        Thread.sleep(8 * LASER_STEP_MS);
+
+        canvas.reset();
+        overlay.onDraw(canvas);
+
+        assertEquals(0, canvas.circles);
+        assertEquals(DRAW_OP_BUDGET, canvas.getOps());
+    }
+
+    @Test
+    public void animation_invalidatesOnlyLaserBandAndPoints() {
+        assertTrue(overlay.isAnimating());
+
+        overlay.onDraw(canvas);
+        overlay.resetInvalidations();
+
+        int steps = 8;
+
+        idle(steps * LASER_STEP_MS);
+
+        assertEquals(0, overlay.fullInvalidations);
+        assertTrue(overlay.partialInvalidations > 0);
+        assertTrue(overlay.partialInvalidations <= steps + 1);
+
+        // Just the laser band, a few pixels high across the framing rect
+        assertTrue(FRAMING_RECT.contains(overlay.invalidated));
+        assertTrue(overlay.invalidated.height() < 10);
+
+        // A point only widens what the next frame redraws by the point itself
+        overlay.addResultPoint(points[0]);
+        overlay.onDraw(canvas);
+        overlay.resetInvalidations();
+
+        idle(LASER_STEP_MS);
+
+        assertEquals(0, overlay.fullInvalidations);
+        assertTrue(overlay.invalidated.height() < FRAMING_RECT.height());
+    }
+
+    @Test
+    public void previewStopped_stopsAnimating() {
+        preview.listener.previewStopped();
+        assertFalse(overlay.isAnimating());
+
+        overlay.resetInvalidations();
+        idle(1000L);
+
+        assertEquals(0, overlay.fullInvalidations + overlay.partialInvalidations);
+
+        preview.listener.previewStarted();
+        assertTrue(overlay.isAnimating());
+
+        preview.listener.cameraClosed();
+        assertFalse(overlay.isAnimating());
+    }
+
+    private void drawFrame(int frame) {
+        overlay.addResultPoint(points[frame % points.length]);
+        overlay.onDraw(canvas);
+    }
+
+    private static void idle(long millis) { shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS); }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Preview with a fixed framing rect and size, handing its state listener to the test.
+     */
+    private static class FakePreview extends CameraPreview {
+
+        CameraPreview.StateListener listener;
+
+        FakePreview(Context context) { super(context); }
+
+        @Override
+        public void addStateListener(CameraPreview.StateListener listener) { this.listener = listener; }
+
+        @Override
+        public Rect getFramingRect() { return FRAMING_RECT; }
+
+        @Override
+        public Size getPreviewSize() { return PREVIEW_SIZE; }
+    }
+
+    /**
+     * Overlay counting its invalidations. These are called from the View constructor, before the
+     * fields of the subclass are set.
+     */
+    private static class CountingOverlayView extends BarcodeOverlayView {
+
+        int fullInvalidations;
+        int partialInvalidations;
+
+        Rect invalidated;
+
+        // Set to count invalidations without passing them on to View
+        boolean swallowInvalidations;
+
+        CountingOverlayView(Context context) { super(context); }
+
+        void resetInvalidations() {
+            fullInvalidations = 0;
+            partialInvalidations = 0;
+            invalidated = null;
+        }
+
+        @Override
+        public void invalidate() {
+            fullInvalidations++;
+            if (!swallowInvalidations)
+                super.invalidate();
+        }
+
+        @Override
+        public void invalidate(Rect dirty) {
+            invalidated(dirty.left, dirty.top, dirty.right, dirty.bottom);
+            if (!swallowInvalidations)
+                super.invalidate(dirty);
+        }
+
+        @Override
+        public void invalidate(int l, int t, int r, int b) {
+            invalidated(l, t, r, b);
+            if (!swallowInvalidations)
+                super.invalidate(l, t, r, b);
+        }
+
+        private void invalidated(int l, int t, int r, int b) {
+            partialInvalidations++;
+
+            if (invalidated == null)
+                invalidated = new Rect(l, t, r, b);
+            else
+                invalidated.union(l, t, r, b);
+        }
+    }
+
+    /**
+     * Canvas counting the draw calls the overlay makes, without drawing anything.
+     */
+    private static class CountingCanvas extends Canvas {
+
+        int rects;
+        int lines;
+        int circles;
+        int paths;
+
+        void reset() {
+            rects = 0;
+            lines = 0;
+            circles = 0;
+            paths = 0;
+        }
+
+        int getOps() { return rects + lines + circles + paths; }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) { rects++; }
+
+        @Override
+        public void drawRect(Rect r, Paint paint) { rects++; }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) { rects++; }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) { lines++; }
+
+        @Override
+        public void drawLines(float[] pts, Paint paint) { lines++; }
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) { lines++; }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) { circles++; }
+
+        @Override
+        public void drawPath(Path path, Paint paint) { paths++; }
+    }
+}
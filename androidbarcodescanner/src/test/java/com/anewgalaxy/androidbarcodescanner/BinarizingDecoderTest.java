@@ -0,0 +1,132 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import com.anewgalaxy.scannercore.AttemptScheduler;
+import com.anewgalaxy.scannercore.BinarizerSelector;
+import com.anewgalaxy.scannercore.BinarizerType;
+import com.anewgalaxy.scannercore.FramingRectLuminanceSource;
+import com.anewgalaxy.scannercore.ScanMetrics;
+import com.anewgalaxy.scannercore.ScanMetricsRecorder;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.android.Intents;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.Code128Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.journeyapps.barcodescanner.Decoder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinarizingDecoderTest {
+
+    private static final int SIZE = 300;
+
+    @Test
+    public void decode_reportsBinarizeTime() throws Exception {
+        BinarizingDecoder decoder = new BinarizingDecoder(new MultiFormatReader(), Intents.Scan.NORMAL_SCAN);
+
+        Result result = decoder.decode(source(false));
+
+        assertNotNull(result);
+        assertEquals("binarize", result.getText());
+
+        assertTrue(BinarizingDecoder.takeBinarizeTime(decoder) > 0);
+        assertEquals(0, BinarizingDecoder.takeBinarizeTime(decoder));
+        assertEquals(-1, BinarizingDecoder.takeBinarizeTime(new Decoder(new MultiFormatReader())));
+    }
+
+    @Test
+    public void decode_alternatesMixedScans() throws Exception {
+        BinarizingDecoder decoder = new BinarizingDecoder(new MultiFormatReader(), Intents.Scan.MIXED_SCAN);
+
+        // Inverted first, so a light on dark code is found straight away and a normal one after
+        assertNotNull(decoder.decode(source(true)));
+        assertNotNull(decoder.decode(source(false)));
+        assertNull(decoder.decode(source(false)));
+    }
+
+    @Test
+    public void configure_recordsEveryAttemptPerBinarizer() throws Exception {
+        BinarizingDecoder decoder = new BinarizingDecoder(new MultiFormatReader(), Intents.Scan.NORMAL_SCAN);
+        ScanMetricsRecorder recorder = new ScanMetricsRecorder();
+
+        BinarizingDecoder.configure(decoder, BinarizerSelector.Strategy.ALTERNATE, recorder);
+
+        assertNotNull(decoder.decode(source(false)));
+        assertNotNull(decoder.decode(source(false)));
+        assertNull(decoder.decode(source(true)));
+
+        ScanMetrics metrics = recorder.snapshot();
+
+        assertEquals(2, metrics.getBinarizer(BinarizerType.GLOBAL_HISTOGRAM).getCount());
+        assertEquals(1, metrics.getBinarizerHits(BinarizerType.GLOBAL_HISTOGRAM));
+        assertEquals(1f, metrics.getBinarizerSuccessRate(BinarizerType.HYBRID), 0f);
+    }
+
+    @Test
+    public void nextAttempt_takesTurnsTurningAndInverting() throws Exception {
+        AttemptScheduler scheduler = new AttemptScheduler(AttemptScheduler.Attempt.PLAIN,
+                AttemptScheduler.Attempt.ROTATED, AttemptScheduler.Attempt.INVERTED);
+        BinarizingDecoder decoder = new BinarizingDecoder(new MultiFormatReader(), Intents.Scan.NORMAL_SCAN, scheduler);
+
+        // An upright 1D barcode is only found on the turned frame
+        LuminanceSource upright = uprightCode128();
+
+        assertEquals(AttemptScheduler.Attempt.PLAIN, BinarizingDecoder.nextAttempt(decoder));
+        assertNull(decoder.decode(upright));
+
+        assertEquals(AttemptScheduler.Attempt.ROTATED, BinarizingDecoder.nextAttempt(decoder));
+        Result result = decoder.decode(upright);
+
+        assertNotNull(result);
+        assertEquals(270, result.getResultMetadata().get(ResultMetadataType.ORIENTATION));
+
+        // Points are back in the upright frame, along the barcode running down the middle column
+        for (ResultPoint point : result.getResultPoints()) {
+            assertEquals(SIZE / 2f, point.getX(), 2f);
+            assertTrue(point.getY() >= 0 && point.getY() < SIZE);
+        }
+
+        assertEquals(AttemptScheduler.Attempt.INVERTED, BinarizingDecoder.nextAttempt(decoder));
+        assertNotNull(decoder.decode(source(true)));
+
+        BinarizingDecoder.joinAttempt(decoder, AttemptScheduler.Attempt.PLAIN);
+        assertNull(decoder.decode(source(true)));
+
+        assertNull(BinarizingDecoder.nextAttempt(new BinarizingDecoder(new MultiFormatReader(), Intents.Scan.NORMAL_SCAN)));
+    }
+
+    private static LuminanceSource uprightCode128() throws Exception {
+        BitMatrix matrix = new Code128Writer().encode("UPRIGHT", BarcodeFormat.CODE_128, SIZE, 60);
+        byte[] yuvData = new byte[SIZE * SIZE * 3 / 2];
+
+        Arrays.fill(yuvData, (byte) 0xFF);
+
+        // The bars run across, the barcode reads from top to bottom
+        for (int y = 0; y < matrix.getWidth(); y++)
+            for (int x = 0; x < matrix.getHeight(); x++)
+                if (matrix.get(y, x))
+                    yuvData[y * SIZE + SIZE / 2 - 30 + x] = 0;
+
+        return FramingRectLuminanceSource.wrap(yuvData, SIZE, SIZE, 0, 0, 0, SIZE, SIZE);
+    }
+
+    private static RGBLuminanceSource source(boolean inverted) throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode("binarize", BarcodeFormat.QR_CODE, SIZE, SIZE);
+        int[] pixels = new int[SIZE * SIZE];
+
+        for (int y = 0; y < SIZE; y++)
+            for (int x = 0; x < SIZE; x++)
+                pixels[y * SIZE + x] = matrix.get(x, y) != inverted ? 0xFF000000 : 0xFFFFFFFF;
+
+        return new RGBLuminanceSource(SIZE, SIZE, pixels);
+    }
+}
@@ -0,0 +1,28 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.journeyapps.barcodescanner.BarcodeResult;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class DecodeEngineTest {
+
+    @Test
+    public void isSighting_ignoresFramesWithOnlyDuplicates() {
+        // A frame whose only result was dropped as a duplicate finishes with no results
+        assertFalse(DecodeEngine.isSighting(null, null));
+        assertFalse(DecodeEngine.isSighting(Collections.emptyList(), Collections.emptyList()));
+
+        BarcodeResult result = new BarcodeResult(new Result("fresh", null, null, BarcodeFormat.QR_CODE), null);
+        assertTrue(DecodeEngine.isSighting(Collections.singletonList(result), null));
+
+        // A barcode that didn't decode yet is still on its way to being delivered
+        assertTrue(DecodeEngine.isSighting(null, Collections.singletonList(new ResultPoint(1f, 2f))));
+    }
+}
@@ -0,0 +1,74 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferPoolTest {
+
+    @Test
+    public void acquire_reusesReleasedBuffers() {
+        FrameBufferPool pool = new FrameBufferPool(2, 16);
+
+        byte[] first = pool.acquire();
+        byte[] second = pool.acquire();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotSame(first, second);
+        assertEquals(16, first.length);
+
+        pool.release(first);
+
+        assertSame(first, pool.acquire());
+    }
+
+    @Test
+    public void acquire_countsExhaustion() {
+        FrameBufferPool pool = new FrameBufferPool(1, 4);
+
+        assertNotNull(pool.acquire());
+        assertNull(pool.acquire());
+        assertNull(pool.acquire());
+
+        assertEquals(2, pool.getExhaustedCount());
+        assertEquals(0, pool.available());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_rejectsDoubleRelease() {
+        FrameBufferPool pool = new FrameBufferPool(1, 4);
+
+        byte[] buffer = pool.acquire();
+
+        pool.release(buffer);
+        pool.release(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void release_rejectsForeignBuffer() {
+        new FrameBufferPool(1, 4).release(new byte[4]);
+    }
+
+    @Test
+    public void owns_onlyAcceptsBuffersOfThisPool() {
+        FrameBufferPool pool = new FrameBufferPool(1, 4);
+
+        assertTrue(pool.owns(pool.acquire()));
+        assertFalse(pool.owns(new byte[4]));
+        assertFalse(pool.owns(new FrameBufferPool(1, 4).acquire()));
+    }
+
+    @Test
+    public void countLeaks_reportsBuffersHeldTooLong() throws InterruptedException {
+        FrameBufferPool pool = new FrameBufferPool(2, 4);
+
+        pool.acquire();
+
+        assertEquals(0, pool.countLeaks(1000));
+
+        Thread.sleep(5);
+
+        assertEquals(1, pool.countLeaks(1));
+    }
+}
@@ -0,0 +1,26 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameQueueTest {
+
+    @Test
+    public void offer_evictsOldestWhenFull() {
+        FrameQueue<Integer> queue = new FrameQueue<>(2);
+
+        assertNull(queue.offer(1));
+        assertNull(queue.offer(2));
+        assertEquals(Integer.valueOf(1), queue.offer(3));
+
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsZeroCapacity() {
+        new FrameQueue<Integer>(0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameRateSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    // Camera delivering a frame every 33 ms
+    private static final long FRAME = 33 * MS;
+
+    @Test
+    public void shouldSubmit_acceptsEveryFrameWithinBudget() {
+        FrameRateScheduler scheduler = new FrameRateScheduler(100);
+
+        long now = 0;
+
+        for (int i = 0; i < 30; i++, now += FRAME) {
+            assertTrue(scheduler.shouldSubmit(now));
+            scheduler.onFrameDecoded(20 * MS, now);
+        }
+
+        assertEquals(0, scheduler.getSkippedFrames());
+        assertEquals(0f, scheduler.getSubmitInterval(), 0f);
+    }
+
+    @Test
+    public void shouldSubmit_skipsFramesWhileOverBudgetAndRecovers() {
+        FrameRateScheduler scheduler = new FrameRateScheduler(100);
+
+        long now = 0;
+
+        for (int i = 0; i < 60; i++, now += FRAME) {
+            if (scheduler.shouldSubmit(now))
+                scheduler.onFrameDecoded(400 * MS, now);
+        }
+
+        assertTrue(scheduler.getSkippedFrames() > 0);
+        assertTrue(scheduler.getSubmitInterval() > 33f);
+
+        for (int i = 0; i < 300; i++, now += FRAME) {
+            if (scheduler.shouldSubmit(now))
+                scheduler.onFrameDecoded(10 * MS, now);
+        }
+
+        assertEquals(0f, scheduler.getSubmitInterval(), 0f);
+    }
+
+    @Test
+    public void setLatencyBudget_zeroDisablesSkipping() {
+        FrameRateScheduler scheduler = new FrameRateScheduler(0);
+
+        long now = 0;
+
+        for (int i = 0; i < 30; i++, now += FRAME) {
+            assertTrue(scheduler.shouldSubmit(now));
+            scheduler.onFrameDecoded(1000 * MS, now);
+        }
+
+        assertEquals(30, scheduler.getSubmittedFrames());
+    }
+}
@@ -0,0 +1,122 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitMatrix;
+import com.journeyapps.barcodescanner.Decoder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegionDecodeJobTest {
+
+    private static final int SIZE = 640;
+
+    @Test
+    public void decode_findsEveryBarcodeAndMergesDuplicates() throws Exception {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, 0xFFFFFFFF);
+
+        draw(pixels, "top-left", 20, 20);
+        draw(pixels, "top-right", 400, 30);
+        draw(pixels, "bottom-left", 30, 410);
+        draw(pixels, "top-left", 420, 400);
+
+        List<Result> results = decodeAll(new RGBLuminanceSource(SIZE, SIZE, pixels), 2, 2);
+        assertEquals(3, results.size());
+
+        assertEquals("top-left", results.get(0).getText());
+        assertEquals("top-right", results.get(1).getText());
+        assertEquals("bottom-left", results.get(2).getText());
+
+        // Points are in the coordinates of the whole source, not the tile they were found in
+        for (ResultPoint point : results.get(1).getResultPoints()) {
+            assertTrue(point.getX() > 400 && point.getX() < 600);
+            assertTrue(point.getY() > 30 && point.getY() < 230);
+        }
+
+        assertEquals(BarcodeFormat.QR_CODE, results.get(2).getBarcodeFormat());
+    }
+
+    @Test
+    public void decode_findsBarcodesAcrossTileSeams() throws Exception {
+        int width = 900;
+        int height = 600;
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, 0xFFFFFFFF);
+
+        // Both cross the seam between the left and right tiles of a 2x2 grid
+        draw(pixels, width, "ABC-123", BarcodeFormat.CODE_128, 250, 300, 400, 150);
+        draw(pixels, width, "top-centre", BarcodeFormat.QR_CODE, 350, 20, 200, 200);
+
+        List<Result> results = decodeAll(new RGBLuminanceSource(width, height, pixels), 2, 2);
+        assertEquals(2, results.size());
+
+        assertEquals("top-centre", results.get(0).getText());
+        assertEquals("ABC-123", results.get(1).getText());
+        assertEquals(BarcodeFormat.CODE_128, results.get(1).getBarcodeFormat());
+    }
+
+    @Test
+    public void decode_findsCenteredBarcode() throws Exception {
+        int width = 900;
+        int height = 600;
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, 0xFFFFFFFF);
+
+        draw(pixels, width, "CENTERED", BarcodeFormat.CODE_128, 250, 225, 400, 150);
+
+        List<Result> results = decodeAll(new RGBLuminanceSource(width, height, pixels), 2, 2);
+
+        assertEquals(1, results.size());
+        assertEquals("CENTERED", results.get(0).getText());
+    }
+
+    @Test
+    public void tryAddHelper_limitsHelpers() {
+        RegionDecodeJob job = new RegionDecodeJob(new RGBLuminanceSource(SIZE, SIZE, new int[SIZE * SIZE]), 1, 1);
+
+        assertTrue(job.tryAddHelper(2));
+        assertTrue(job.tryAddHelper(2));
+        assertFalse(job.tryAddHelper(2));
+
+        job.removeHelper();
+        assertTrue(job.tryAddHelper(2));
+    }
+
+    private static List<Result> decodeAll(RGBLuminanceSource source, int columns, int rows) {
+        RegionDecodeJob job = new RegionDecodeJob(source, columns, rows);
+        Decoder decoder = new Decoder(new MultiFormatReader());
+
+        boolean finished = false;
+        for (RegionDecodeJob.Region region; (region = job.claim()) != null; )
+            finished = job.decode(decoder, region);
+
+        assertTrue(finished);
+        assertNull(job.getFailure());
+
+        return job.getResults();
+    }
+
+    private static void draw(int[] pixels, String contents, int left, int top) throws Exception {
+        draw(pixels, SIZE, contents, BarcodeFormat.QR_CODE, left, top, 200, 200);
+    }
+
+    private static void draw(int[] pixels, int stride, String contents, BarcodeFormat format, int left, int top,
+                             int width, int height) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode(contents, format, width, height);
+
+        for (int y = 0; y < matrix.getHeight(); y++)
+            for (int x = 0; x < matrix.getWidth(); x++)
+                if (matrix.get(x, y))
+                    pixels[(top + y) * stride + left + x] = 0xFF000000;
+    }
+}
@@ -0,0 +1,42 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ResultBatcherTest {
+
+    @Test
+    public void takeIfFull_takesBatchAtCountLimit() {
+        ResultBatcher<Integer> batcher = new ResultBatcher<>(3);
+
+        assertTrue(batcher.add(1));
+        assertFalse(batcher.add(2));
+        assertNull(batcher.takeIfFull());
+        assertFalse(batcher.add(3));
+
+        assertEquals(Arrays.asList(1, 2, 3), batcher.takeIfFull());
+        assertEquals(0, batcher.size());
+        assertTrue(batcher.add(4));
+    }
+
+    @Test
+    public void take_ignoresWindowOfBatchAlreadyTaken() {
+        ResultBatcher<Integer> batcher = new ResultBatcher<>(2);
+
+        batcher.add(1);
+        long first = batcher.getBatchNumber();
+        batcher.add(2);
+        assertNotNull(batcher.takeIfFull());
+
+        batcher.add(3);
+        long second = batcher.getBatchNumber();
+
+        // The first batch's window runs out after it was already taken for being full
+        assertNull(batcher.take(first));
+        assertEquals(Arrays.asList(3), batcher.take(second));
+        assertNull(batcher.takeAll());
+    }
+}
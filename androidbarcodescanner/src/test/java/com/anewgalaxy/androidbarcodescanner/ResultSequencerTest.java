@@ -0,0 +1,39 @@
+package com.anewgalaxy.androidbarcodescanner;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResultSequencerTest {
+
+    @Test
+    public void complete_releasesResultsInSequenceOrder() {
+        ResultSequencer<String> sequencer = new ResultSequencer<>();
+        List<String> released = new ArrayList<>();
+
+        sequencer.complete(2, "c", released::add);
+        sequencer.complete(1, "b", released::add);
+        assertTrue(released.isEmpty());
+
+        sequencer.complete(0, "a", released::add);
+        assertEquals(Arrays.asList("a", "b", "c"), released);
+        assertEquals(0, sequencer.pending());
+    }
+
+    @Test
+    public void complete_skipsEmptyAndStaleSequences() {
+        ResultSequencer<String> sequencer = new ResultSequencer<>();
+        List<String> released = new ArrayList<>();
+
+        sequencer.complete(1, "b", released::add);
+        sequencer.complete(0, null, released::add);
+        sequencer.complete(0, "stale", released::add);
+
+        assertEquals(Arrays.asList("b"), released);
+        assertEquals(2, sequencer.getNextSequence());
+    }
+}
@@ -35,12 +35,12 @@ import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.anewgalaxy.androidbarcodescanner.AndroidBarcodeScannerView;
+import com.anewgalaxy.androidbarcodescanner.HotFormatDecoderFactory;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.client.android.BeepManager;
 import com.journeyapps.barcodescanner.BarcodeCallback;
 import com.journeyapps.barcodescanner.BarcodeResult;
-import com.journeyapps.barcodescanner.DefaultDecoderFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -340,11 +340,11 @@ public abstract class AbstractScannerFragment extends Fragment implements Barcod
                 throw new NullPointerException("Cannot set decode format to a null BarcodeFormat");
 
             // Apply all the decoder formats
-            barcodeScannerView.setDecoderFactory(new DefaultDecoderFactory(formatList));
+            barcodeScannerView.setDecoderFactory(new HotFormatDecoderFactory(formatList));
 
         } else
 
-            barcodeScannerView.setDecoderFactory(new DefaultDecoderFactory());
+            barcodeScannerView.setDecoderFactory(new HotFormatDecoderFactory());
 
     }
 
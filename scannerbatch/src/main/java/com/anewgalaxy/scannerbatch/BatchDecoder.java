@@ -0,0 +1,325 @@
+package com.anewgalaxy.scannerbatch;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.anewgalaxy.scannercore.FormatHistogram;
+import com.anewgalaxy.scannercore.HotFormatReader;
+import com.anewgalaxy.scannercore.ScanResult;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * BatchDecoder --
+ * Decodes image files without a device, spread over a pool of threads. Every thread has its own
+ * HotFormatReader, but they share one FormatHistogram, so the formats that keep turning up in a
+ * batch are tried first on the rest of it.
+ * @author Tyler Sizse
+ */
+public class BatchDecoder {
+
+    /**
+     * Receives the outcome of every file. Called on the decoding threads, possibly from several
+     * at once.
+     */
+    public interface Listener {
+
+        /**
+         * decoded -- Takes 2 parameters.
+         * @param file    The file that was decoded
+         * @param results The barcodes found in it, empty if there were none
+         */
+        void decoded(File file, List<ScanResult> results);
+
+        /**
+         * failed -- Takes 2 parameters.
+         * @param file  The file that couldn't be read
+         * @param error Why it couldn't be read
+         */
+        void failed(File file, Exception error);
+
+    }
+
+    private final Map<DecodeHintType, ?> hints;
+
+    private final FormatHistogram histogram = new FormatHistogram(FormatHistogram.DEFAULT_HALF_LIFE);
+
+    private final ThreadLocal<HotFormatReader> readers = new ThreadLocal<>();
+
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    private boolean findMultiple;
+
+    /**
+     * Decodes every format, trying harder than a live scanner would since there is no next frame.
+     */
+    public BatchDecoder() {
+
+        Map<DecodeHintType, Object> tryHarder = new EnumMap<>(DecodeHintType.class);
+
+        tryHarder.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+
+        this.hints = tryHarder;
+
+    }
+
+    /**
+     * @param hints The decode hints, POSSIBLE_FORMATS picks the formats to decode
+     */
+    public BatchDecoder(Map<DecodeHintType, ?> hints) {
+
+        this.hints = hints;
+
+    }
+
+    /**
+     * setThreadCount -- Takes 1 parameter.
+     * @param threadCount How many files are decoded at once, or 0 or less for one per core
+     */
+    public void setThreadCount(int threadCount) {
+
+        this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+
+    }
+
+    public int getThreadCount() { return threadCount; }
+
+    /**
+     * setFindMultiple -- Takes 1 parameter.
+     * @param findMultiple true to look for every barcode in an image, false to stop at the first
+     */
+    public void setFindMultiple(boolean findMultiple) { this.findMultiple = findMultiple; }
+
+    public boolean isFindMultiple() { return findMultiple; }
+
+    /**
+     * decodeFiles -- Takes 2 parameters.
+     * Decodes the files in parallel and blocks until all of them are done.
+     *
+     * @param files    The image files to decode, in any format ImageIO can read
+     * @param listener Receives the outcome of each file
+     * @return The number of files that contained at least one barcode
+     * @throws InterruptedException If interrupted while waiting, the remaining files are skipped
+     */
+    public int decodeFiles(Collection<File> files, Listener listener) throws InterruptedException {
+
+        AtomicInteger found = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try {
+
+            for (File file : files) {
+
+                executor.execute(() -> {
+
+                    List<ScanResult> results;
+
+                    try {
+
+                        results = decodeFile(file);
+
+                    } catch (IOException | RuntimeException exception) {
+
+                        listener.failed(file, exception);
+
+                        return;
+
+                    }
+
+                    if (!results.isEmpty())
+
+                        found.incrementAndGet();
+
+                    listener.decoded(file, results);
+
+                });
+
+            }
+
+            executor.shutdown();
+
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        } finally {
+
+            executor.shutdownNow();
+
+        }
+
+        return found.get();
+
+    }
+
+    /**
+     * decodeFiles -- Takes 1 parameter.
+     * Decodes the files in parallel, skipping any that can't be read.
+     *
+     * @param files The image files to decode
+     * @return Every barcode found, in the order of the files they were found in
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public List<ScanResult> decodeFiles(List<File> files) throws InterruptedException {
+
+        Map<File, List<ScanResult>> perFile = new ConcurrentHashMap<>();
+
+        decodeFiles(files, new Listener() {
+
+            @Override
+            public void decoded(File file, List<ScanResult> results) { perFile.put(file, results); }
+
+            @Override
+            public void failed(File file, Exception error) { }
+
+        });
+
+        List<ScanResult> all = new ArrayList<>();
+
+        for (File file : files) {
+
+            List<ScanResult> results = perFile.get(file);
+
+            if (results != null)
+
+                all.addAll(results);
+
+        }
+
+        return all;
+
+    }
+
+    /**
+     * decodeDirectory -- Takes 2 parameters.
+     * Decodes every image file directly inside a directory, in name order.
+     *
+     * @param directory The directory to decode
+     * @param listener  Receives the outcome of each file
+     * @return The number of files that contained at least one barcode
+     * @throws IOException          If the directory can't be listed
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public int decodeDirectory(File directory, Listener listener) throws IOException, InterruptedException {
+
+        Set<String> suffixes = new HashSet<>();
+
+        for (String suffix : ImageIO.getReaderFileSuffixes())
+
+            suffixes.add(suffix.toLowerCase(Locale.ROOT));
+
+        File[] files = directory.listFiles(file -> {
+
+            String name = file.getName();
+
+            int dot = name.lastIndexOf('.');
+
+            return file.isFile() && dot >= 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+
+        });
+
+        if (files == null)
+
+            throw new IOException("Could not list " + directory);
+
+        Arrays.sort(files);
+
+        return decodeFiles(Arrays.asList(files), listener);
+
+    }
+
+    /**
+     * decodeFile -- Takes 1 parameter.
+     * Decodes a single file on the calling thread.
+     *
+     * @param file The image file to decode
+     * @return The barcodes found, empty if there were none
+     * @throws IOException If the file can't be read or isn't an image
+     */
+    public List<ScanResult> decodeFile(File file) throws IOException {
+
+        BufferedImage image = ImageIO.read(file);
+
+        if (image == null)
+
+            throw new IOException("Not a supported image: " + file);
+
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new ImageLuminanceSource(image)));
+
+        HotFormatReader reader = readers.get();
+
+        if (reader == null) {
+
+            reader = new HotFormatReader(hints, histogram, true);
+
+            readers.set(reader);
+
+        }
+
+        List<ScanResult> results = new ArrayList<>();
+
+        try {
+
+            if (findMultiple) {
+
+                for (Result result : new GenericMultipleBarcodeReader(reader).decodeMultiple(bitmap, hints))
+
+                    results.add(new ScanResult(file.getPath(), result));
+
+            } else {
+
+                results.add(new ScanResult(file.getPath(), reader.decode(bitmap)));
+
+            }
+
+        } catch (NotFoundException exception) {
+
+            // No barcode in this image
+
+        } finally {
+
+            reader.reset();
+
+        }
+
+        return results;
+
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.anewgalaxy.scannerbatch;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * ImageLuminanceSource --
+ * Luminance source over a decoded image file. The image is converted to luminance once, up
+ * front, with the same integer weights as zxing's RGBLuminanceSource, and transparent pixels
+ * count as white.
+ * @author Tyler Sizse
+ */
+public final class ImageLuminanceSource extends LuminanceSource {
+
+    private final byte[] luminances;
+
+    private final int dataWidth;
+
+    private final int left;
+    private final int top;
+
+    public ImageLuminanceSource(BufferedImage image) {
+        super(image.getWidth(), image.getHeight());
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        this.luminances = new byte[width * height];
+
+        this.dataWidth = width;
+
+        this.left = 0;
+
+        this.top = 0;
+
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            for (int x = 0; x < width; x++) {
+
+                int pixel = row[x];
+
+                int alpha = pixel >>> 24;
+
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+
+                // Blend with white by alpha so transparent backgrounds don't read as black
+                int luminance = (r + 2 * g + b) / 4;
+
+                luminances[y * width + x] = (byte) ((luminance * alpha + 0xFF * (0xFF - alpha)) / 0xFF);
+
+            }
+
+        }
+
+    }
+
+    private ImageLuminanceSource(byte[] luminances, int dataWidth, int left, int top, int width, int height) {
+        super(width, height);
+
+        this.luminances = luminances;
+
+        this.dataWidth = dataWidth;
+
+        this.left = left;
+
+        this.top = top;
+
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+
+        if (y < 0 || y >= getHeight())
+
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+
+        int width = getWidth();
+
+        if (row == null || row.length < width)
+
+            row = new byte[width];
+
+        System.arraycopy(luminances, (top + y) * dataWidth + left, row, 0, width);
+
+        return row;
+
+    }
+
+    @Override
+    public byte[] getMatrix() {
+
+        int width = getWidth();
+        int height = getHeight();
+
+        if (width == dataWidth && left == 0 && top == 0 && luminances.length == width * height)
+
+            return luminances;
+
+        byte[] matrix = new byte[width * height];
+
+        for (int y = 0; y < height; y++)
+
+            System.arraycopy(luminances, (top + y) * dataWidth + left, matrix, y * width, width);
+
+        return matrix;
+
+    }
+
+    @Override
+    public boolean isCropSupported() { return true; }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+
+        if (left < 0 || top < 0 || left + width > getWidth() || top + height > getHeight())
+
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+
+        return new ImageLuminanceSource(luminances, dataWidth, this.left + left, this.top + top, width, height);
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.anewgalaxy.scannerbatch;
+
+import com.anewgalaxy.scannercore.ScanResult;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class BatchDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodeFiles_decodesEveryFileInOrder() throws Exception {
+        List<File> files = new ArrayList<>();
+
+        for (int i = 0; i < 12; i++)
+            files.add(write("label-" + i, i % 2 == 0 ? BarcodeFormat.QR_CODE : BarcodeFormat.CODE_128));
+
+        BatchDecoder decoder = new BatchDecoder();
+        decoder.setThreadCount(4);
+
+        List<ScanResult> results = decoder.decodeFiles(files);
+
+        assertEquals(12, results.size());
+
+        for (int i = 0; i < 12; i++) {
+            assertEquals("label-" + i, results.get(i).getText());
+            assertEquals(files.get(i).getPath(), results.get(i).getSource());
+        }
+    }
+
+    @Test
+    public void decodeDirectory_reportsUnreadableFiles() throws Exception {
+        write("1234567", BarcodeFormat.CODE_39);
+        File broken = folder.newFile("broken.png");
+
+        List<File> failed = new ArrayList<>();
+        List<ScanResult> decoded = new ArrayList<>();
+
+        int found = new BatchDecoder().decodeDirectory(folder.getRoot(), new BatchDecoder.Listener() {
+            @Override
+            public synchronized void decoded(File file, List<ScanResult> results) {
+                decoded.addAll(results);
+            }
+
+            @Override
+            public synchronized void failed(File file, Exception error) {
+                failed.add(file);
+            }
+        });
+
+        assertEquals(1, found);
+        assertEquals("1234567", decoded.get(0).getText());
+        assertEquals(BarcodeFormat.CODE_39, decoded.get(0).getBarcodeFormat());
+        assertEquals(1, failed.size());
+        assertEquals(broken, failed.get(0));
+    }
+
+    private File write(String contents, BarcodeFormat format) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode(contents, format, 300, 200);
+        BufferedImage image = new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_INT_RGB);
+
+        for (int y = 0; y < matrix.getHeight(); y++)
+            for (int x = 0; x < matrix.getWidth(); x++)
+                image.setRGB(x, y, matrix.get(x, y) ? 0x000000 : 0xFFFFFF);
+
+        File file = new File(folder.getRoot(), contents + ".png");
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+}
@@ -0,0 +1,95 @@
+package com.anewgalaxy.scannerbenchmarks;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.anewgalaxy.scannercore.SyntheticFrame;
+import com.anewgalaxy.scannercore.SyntheticFrameGenerator;
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * BenchmarkFrames --
+ * Deterministic corpus of NV21 preview frames for the benchmarks. Every frame holds one
+ * undistorted barcode with the format's default contents, rendered by the
+ * SyntheticFrameGenerator, so two runs on two machines (or two zxing versions) decode exactly
+ * the same pixels.
+ * @author Tyler Sizse
+ */
+final class BenchmarkFrames {
+
+    /**
+     * One generated frame, with the framing rect the scanner view would crop it to.
+     */
+    static final class Frame {
+
+        final byte[] nv21;
+
+        final int width;
+        final int height;
+
+        final int cropLeft;
+        final int cropTop;
+        final int cropWidth;
+        final int cropHeight;
+
+        private Frame(byte[] nv21, int width, int height, int cropLeft, int cropTop, int cropWidth,
+                      int cropHeight) {
+
+            this.nv21 = nv21;
+
+            this.width = width;
+
+            this.height = height;
+
+            this.cropLeft = cropLeft;
+
+            this.cropTop = cropTop;
+
+            this.cropWidth = cropWidth;
+
+            this.cropHeight = cropHeight;
+
+        }
+
+    }
+
+    private BenchmarkFrames() { }
+
+    /**
+     * create -- Takes 3 parameters.
+     * Renders the format's barcode into a frame. The framing rect is the centered 80% by 60% of
+     * the frame, like the scanner view's default, and holds the whole barcode.
+     *
+     * @param format The format to render
+     * @param width  The frame width
+     * @param height The frame height
+     * @return The frame
+     * @throws IllegalArgumentException If the format can't be encoded
+     */
+    static Frame create(BarcodeFormat format, int width, int height) {
+
+        SyntheticFrame frame = new SyntheticFrameGenerator(0).generate(format,
+                SyntheticFrameGenerator.defaultContents(format), width, height, 0);
+
+        int cropWidth = width * 4 / 5;
+        int cropHeight = height * 3 / 5;
+
+        return new Frame(frame.getYuvData(), width, height, (width - cropWidth) / 2, (height - cropHeight) / 2,
+                cropWidth, cropHeight);
+
+    }
+
+}
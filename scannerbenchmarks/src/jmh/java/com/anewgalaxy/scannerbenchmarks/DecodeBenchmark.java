@@ -0,0 +1,146 @@
+package com.anewgalaxy.scannerbenchmarks;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.anewgalaxy.scannercore.BinarizerType;
+import com.anewgalaxy.scannercore.FramingRectLuminanceSource;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DecodeBenchmark --
+ * Measures the decode path of a single preview frame, the work a decode worker does per frame:
+ * wrap the NV21 buffer, binarize it and run the reader. Throughput and sampled latency are
+ * reported for every combination of format, frame size, full frame against the cropped framing
+ * rect, and binarizer.
+ *
+ * Run with ./gradlew :scannerbenchmarks:jmh, results are written as JSON to build/reports/jmh.
+ * @author Tyler Sizse
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DecodeBenchmark {
+
+    public enum Region { FULL, CROPPED }
+
+    @Param({"CODE_39", "UPC_A", "EAN_8", "EAN_13", "UPC_E", "CODE_93", "CODE_128", "ITF", "CODABAR",
+            "QR_CODE", "DATA_MATRIX", "AZTEC", "PDF_417"})
+    public BarcodeFormat format;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String frameSize;
+
+    @Param({"FULL", "CROPPED"})
+    public Region region;
+
+    @Param({"HYBRID", "GLOBAL_HISTOGRAM"})
+    public BinarizerType binarizer;
+
+    private BenchmarkFrames.Frame frame;
+
+    private final MultiFormatReader reader = new MultiFormatReader();
+
+    /**
+     * setUp -- Takes 0 parameters.
+     * Generates the frame and decodes it once, so a combination that can't decode at all fails
+     * the run instead of silently benchmarking the not found path.
+     *
+     * @throws ReaderException If the frame doesn't decode
+     */
+    @Setup
+    public void setUp() throws ReaderException {
+
+        int separator = frameSize.indexOf('x');
+
+        frame = BenchmarkFrames.create(format, Integer.parseInt(frameSize.substring(0, separator)),
+                Integer.parseInt(frameSize.substring(separator + 1)));
+
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(format));
+
+        reader.setHints(hints);
+
+        Result result = decode();
+
+        if (result == null)
+
+            throw NotFoundException.getNotFoundInstance();
+
+        if (result.getBarcodeFormat() != format)
+
+            throw new IllegalStateException(frameSize + " " + format + " frame decoded as " + result.getBarcodeFormat());
+
+    }
+
+    @Benchmark
+    public Result decode() {
+
+        LuminanceSource source;
+
+        if (region == Region.CROPPED)
+
+            source = FramingRectLuminanceSource.wrap(frame.nv21, frame.width, frame.height, 0,
+                    frame.cropLeft, frame.cropTop, frame.cropWidth, frame.cropHeight);
+
+        else
+
+            source = new PlanarYUVLuminanceSource(frame.nv21, frame.width, frame.height,
+                    0, 0, frame.width, frame.height, false);
+
+        Binarizer binarized = binarizer.create(source);
+
+        try {
+
+            return reader.decodeWithState(new BinaryBitmap(binarized));
+
+        } catch (ReaderException exception) {
+
+            return null;
+
+        } finally {
+
+            reader.reset();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.anewgalaxy.scannerbenchmarks;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.anewgalaxy.scannercore.BinarizerSelector;
+import com.anewgalaxy.scannercore.BinarizerType;
+import com.anewgalaxy.scannercore.FrameCorpus;
+import com.anewgalaxy.scannercore.FramingRectLuminanceSource;
+import com.anewgalaxy.scannercore.PyramidDecoder;
+import com.anewgalaxy.scannercore.SyntheticFrameGenerator;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReplayBenchmark --
+ * Replays a memory-mapped corpus of distorted frames through the decoder, the way a scanner
+ * sees a stream of camera frames of the ScannerFragment's formats. Besides the frame rate the
+ * JSON results count how many of those frames decoded and how many were missed, for every
+ * BinarizerSelector strategy and with or without the PyramidDecoder.
+ * @author Tyler Sizse
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReplayBenchmark {
+
+    private static final List<BarcodeFormat> FORMATS = Arrays.asList(BarcodeFormat.CODE_39, BarcodeFormat.UPC_A,
+            BarcodeFormat.QR_CODE);
+
+    private static final int FRAMES_PER_FORMAT = 32;
+
+    public enum Distortion { NONE, MILD, HARSH }
+
+    public enum Resolution { FULL, PYRAMID }
+
+    /**
+     * Decode outcomes, reported by JMH next to the frame rate.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+
+        public long decoded;
+
+        public long missed;
+
+    }
+
+    @Param({"NONE", "MILD", "HARSH"})
+    public Distortion distortion;
+
+    @Param({"1280x720"})
+    public String frameSize;
+
+    @Param({"HYBRID", "GLOBAL_HISTOGRAM", "ADAPTIVE"})
+    public BinarizerSelector.Strategy strategy;
+
+    @Param({"FULL", "PYRAMID"})
+    public Resolution resolution;
+
+    private BinarizerSelector selector;
+
+    private final PyramidDecoder pyramidDecoder = new PyramidDecoder();
+
+    private final List<ResultPoint> possibleResultPoints = new ArrayList<>();
+
+    // Where the reader reports possible result points to, set for every decode
+    private List<ResultPoint> pointSink;
+
+    private FrameCorpus corpus;
+
+    private byte[] yuvData;
+
+    private int next;
+
+    private final MultiFormatReader reader = new MultiFormatReader();
+
+    /**
+     * setUp -- Takes 0 parameters.
+     * Generates the corpus into a temporary file and maps it.
+     *
+     * @throws IOException If the corpus can't be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+
+        int separator = frameSize.indexOf('x');
+
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(0x5CA7L);
+
+        if (distortion != Distortion.NONE) {
+
+            boolean harsh = distortion == Distortion.HARSH;
+
+            generator.setRotation(harsh ? 20 : 5);
+
+            generator.setPerspective(harsh ? 0.08f : 0.02f);
+
+            generator.setBlur(harsh ? 3 : 1);
+
+            generator.setNoise(harsh ? 12 : 4);
+
+            generator.setGlare(harsh ? 0.5f : 0.15f);
+
+            generator.setContrast(harsh ? 0.3f : 0.7f);
+
+        }
+
+        File file = File.createTempFile("replay-" + distortion, ".corpus");
+
+        file.deleteOnExit();
+
+        generator.writeCorpus(file, FORMATS, Integer.parseInt(frameSize.substring(0, separator)),
+                Integer.parseInt(frameSize.substring(separator + 1)), FRAMES_PER_FORMAT);
+
+        corpus = FrameCorpus.open(file);
+
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, FORMATS);
+
+        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, (ResultPointCallback) point -> pointSink.add(point));
+
+        reader.setHints(hints);
+
+        selector = new BinarizerSelector(strategy);
+
+    }
+
+    @Benchmark
+    public Result decodeNextFrame(Outcomes outcomes) {
+
+        int index = next;
+
+        next = (next + 1) % corpus.size();
+
+        yuvData = corpus.readFrame(index, yuvData);
+
+        int width = corpus.getWidth(index);
+        int height = corpus.getHeight(index);
+
+        FramingRectLuminanceSource source = FramingRectLuminanceSource.wrap(yuvData, width, height, 0,
+                0, 0, width, height);
+
+        possibleResultPoints.clear();
+
+        Result result = resolution == Resolution.PYRAMID
+                ? pyramidDecoder.decode(source, this::decode, possibleResultPoints)
+                : decode(source, possibleResultPoints);
+
+        if (result != null)
+
+            outcomes.decoded++;
+
+        else
+
+            outcomes.missed++;
+
+        return result;
+
+    }
+
+    private Result decode(LuminanceSource source, List<ResultPoint> points) {
+
+        BinarizerType type = selector.select(source);
+
+        Result result = null;
+
+        pointSink = points;
+
+        try {
+
+            result = reader.decodeWithState(new BinaryBitmap(type.create(source)));
+
+        } catch (ReaderException exception) {
+
+            // Counted as missed by the caller
+
+        } finally {
+
+            reader.reset();
+
+        }
+
+        selector.decoded(type, result != null);
+
+        return result;
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AttemptScheduler --
+ * Spreads the expensive ways of decoding a frame over consecutive frames instead of paying for
+ * all of them on every frame. Trying harder, decoding the frame turned by 90 degrees and decoding
+ * it inverted each multiply the cost of a frame, but a barcode stays in view for many frames, so
+ * taking turns finds it just the same: with the cycle PLAIN, ROTATED, INVERTED frame N is decoded
+ * as it is, frame N + 1 turned and frame N + 2 inverted, and every frame pays for one attempt.
+ *
+ * One scheduler is shared by all decoders of a factory, so the turns go round across every
+ * decoding thread. Safe to use from any thread.
+ * @author Tyler Sizse
+ */
+public final class AttemptScheduler {
+
+    /**
+     * The ways a frame can be decoded.
+     */
+    public enum Attempt {
+
+        // The frame as it is, with the hints the decoder was set up with
+        PLAIN,
+
+        // With the TRY_HARDER hint: more rows for 1D formats, and a slower but thorough search
+        // for 2D finder patterns
+        TRY_HARDER,
+
+        // Turned by 90 degrees, for 1D barcodes held upright
+        ROTATED,
+
+        // Light on dark instead of dark on light, or the other way round
+        INVERTED
+
+    }
+
+    private final AtomicLong frames = new AtomicLong();
+
+    private volatile Attempt[] cycle;
+
+    /**
+     * @param cycle The attempts to take turns with, in order
+     * @throws IllegalArgumentException If the cycle is empty
+     */
+    public AttemptScheduler(Attempt... cycle) { setCycle(cycle); }
+
+    /**
+     * setCycle -- Takes 1 parameter.
+     * An attempt may appear more than once, to come around more often than the others.
+     *
+     * @param cycle The attempts to take turns with, in order
+     * @throws IllegalArgumentException If the cycle is empty or holds null
+     */
+    public void setCycle(Attempt... cycle) {
+
+        if (cycle == null || cycle.length == 0)
+
+            throw new IllegalArgumentException("The cycle needs at least one attempt");
+
+        for (Attempt attempt : cycle)
+
+            if (attempt == null)
+
+                throw new IllegalArgumentException("The cycle can't hold null: " + Arrays.toString(cycle));
+
+        this.cycle = cycle.clone();
+
+    }
+
+    /**
+     * getCycle -- Takes 0 parameters.
+     * @return A copy of the attempts taken in turn
+     */
+    public Attempt[] getCycle() { return cycle.clone(); }
+
+    public int getCycleLength() { return cycle.length; }
+
+    /**
+     * next -- Takes 0 parameters.
+     * @return How to decode the next frame
+     */
+    public Attempt next() {
+
+        Attempt[] attempts = cycle;
+
+        return attempts[(int) ((frames.getAndIncrement() & Long.MAX_VALUE) % attempts.length)];
+
+    }
+
+    /**
+     * reset -- Takes 0 parameters.
+     * Starts the cycle over from its first attempt.
+     */
+    public void reset() { frames.set(0L); }
+
+}
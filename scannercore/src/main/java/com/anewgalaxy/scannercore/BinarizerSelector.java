@@ -0,0 +1,303 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.Arrays;
+
+/**
+ * BinarizerSelector --
+ * Picks the binarizer for each frame. Besides always using one binarizer it can alternate
+ * between them, or choose from a few cheap statistics of the frame: a GlobalHistogramBinarizer
+ * only works when a single threshold separates ink from paper everywhere, so the frame is split
+ * into blocks and a global threshold is chosen only when the lightest ink of any block is well
+ * below the darkest paper of any other. Blocks count as holding ink and paper by their local
+ * contrast, the ratio of their range to their brightness, which doesn't change with lighting.
+ * Flat frames, shadows and glare all go to the HybridBinarizer instead.
+ *
+ * Measuring a frame only samples 16 of its rows. A selector keeps state between frames, so like a
+ * Decoder it must only be used by one thread at a time.
+ * @author Tyler Sizse
+ */
+public final class BinarizerSelector {
+
+    /**
+     * How the binarizer is chosen for each frame.
+     */
+    public enum Strategy {
+
+        // Always the HybridBinarizer, like the journeyapps decoders
+        HYBRID,
+
+        // Always the GlobalHistogramBinarizer
+        GLOBAL_HISTOGRAM,
+
+        // Take turns, starting with the GlobalHistogramBinarizer
+        ALTERNATE,
+
+        // Choose from the frame statistics, and use the HybridBinarizer for the next frame after
+        // the GlobalHistogramBinarizer came up empty
+        ADAPTIVE
+
+    }
+
+    public static final int DEFAULT_MIN_SPREAD = 32;
+
+    public static final float DEFAULT_MIN_MARGIN = 0.25f;
+
+    // The frame is measured as GRID x GRID blocks of SAMPLES x SAMPLES samples
+    private static final int GRID = 8;
+
+    private static final int SAMPLES = 8;
+
+    private static final int ROWS_PER_BLOCK = 2;
+
+    // Blocks with less local contrast hold only paper, ink or background
+    private static final float INK_CONTRAST = 0.3f;
+
+    private static final int INK_RANGE = 16;
+
+    private final int[] histogram = new int[256];
+
+    private final int[] blockMin = new int[GRID * GRID];
+
+    private final int[] blockMax = new int[GRID * GRID];
+
+    private byte[] row;
+
+    private Strategy strategy;
+
+    private int minSpread = DEFAULT_MIN_SPREAD;
+
+    private float minMargin = DEFAULT_MIN_MARGIN;
+
+    private boolean globalNext = true;
+
+    private boolean retryWithHybrid;
+
+    private int spread;
+
+    private int margin;
+
+    /**
+     * @param strategy How to choose the binarizer for each frame
+     */
+    public BinarizerSelector(Strategy strategy) { setStrategy(strategy); }
+
+    public void setStrategy(Strategy strategy) {
+
+        if (strategy == null)
+
+            throw new IllegalArgumentException("Binarizer strategy must not be null");
+
+        this.strategy = strategy;
+
+    }
+
+    public Strategy getStrategy() { return strategy; }
+
+    /**
+     * setMinSpread -- Takes 1 parameter.
+     * Sets how far apart the 1st and 99th luminance percentiles of a frame have to be before the
+     * ADAPTIVE strategy trusts a global threshold with it.
+     *
+     * @param minSpread The spread in luminance levels, from 0 to 255
+     */
+    public void setMinSpread(int minSpread) {
+
+        if (minSpread < 0 || minSpread > 255)
+
+            throw new IllegalArgumentException("Minimum spread must be from 0 to 255, was " + minSpread);
+
+        this.minSpread = minSpread;
+
+    }
+
+    public int getMinSpread() { return minSpread; }
+
+    /**
+     * setMinMargin -- Takes 1 parameter.
+     * Sets how much room, as a fraction of the widest ink to paper range of any block, the
+     * ADAPTIVE strategy wants between the lightest ink and the darkest paper anywhere in the frame
+     * before using a global threshold.
+     *
+     * @param minMargin The margin, 0 or more
+     */
+    public void setMinMargin(float minMargin) {
+
+        if (!(minMargin >= 0f))
+
+            throw new IllegalArgumentException("Minimum margin must be 0 or more, was " + minMargin);
+
+        this.minMargin = minMargin;
+
+    }
+
+    public float getMinMargin() { return minMargin; }
+
+    /**
+     * select -- Takes 1 parameter.
+     * @param source The frame about to be binarized
+     * @return The binarizer to use for it
+     */
+    public BinarizerType select(LuminanceSource source) {
+
+        switch (strategy) {
+
+            case GLOBAL_HISTOGRAM:
+                return BinarizerType.GLOBAL_HISTOGRAM;
+
+            case ALTERNATE:
+                BinarizerType type = globalNext ? BinarizerType.GLOBAL_HISTOGRAM : BinarizerType.HYBRID;
+                globalNext = !globalNext;
+                return type;
+
+            case ADAPTIVE:
+                return retryWithHybrid ? BinarizerType.HYBRID : measure(source);
+
+            default:
+                return BinarizerType.HYBRID;
+
+        }
+
+    }
+
+    /**
+     * decoded -- Takes 2 parameters.
+     * Tells the selector how the last frame it selected for went.
+     *
+     * @param type  The binarizer the frame was decoded with
+     * @param found true if a barcode was found
+     */
+    public void decoded(BinarizerType type, boolean found) {
+
+        retryWithHybrid = type == BinarizerType.GLOBAL_HISTOGRAM && !found;
+
+    }
+
+    /**
+     * getSpread -- Takes 0 parameters.
+     * @return The luminance spread of the last frame ADAPTIVE measured
+     */
+    public int getSpread() { return spread; }
+
+    /**
+     * getMargin -- Takes 0 parameters.
+     * @return The room between the lightest ink and the darkest paper of the last frame ADAPTIVE
+     * measured, negative when no global threshold separates them
+     */
+    public int getMargin() { return margin; }
+
+    /**
+     * measure -- Takes 1 parameter.
+     * @param source The frame to measure
+     * @return The binarizer the frame statistics call for
+     */
+    BinarizerType measure(LuminanceSource source) {
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        int columns = GRID * SAMPLES;
+        int rows = GRID * ROWS_PER_BLOCK;
+
+        // Too small to sample, the HybridBinarizer falls back to a global threshold here anyway
+        if (width < columns || height < rows)
+
+            return BinarizerType.GLOBAL_HISTOGRAM;
+
+        Arrays.fill(histogram, 0);
+
+        Arrays.fill(blockMin, 255);
+
+        Arrays.fill(blockMax, 0);
+
+        for (int r = 0; r < rows; r++) {
+
+            row = source.getRow((2 * r + 1) * height / (2 * rows), row);
+
+            int blockRow = r / ROWS_PER_BLOCK * GRID;
+
+            for (int c = 0; c < columns; c++) {
+
+                int luminance = row[(2 * c + 1) * width / (2 * columns)] & 0xFF;
+
+                int block = blockRow + c / SAMPLES;
+
+                histogram[luminance]++;
+
+                blockMin[block] = Math.min(blockMin[block], luminance);
+
+                blockMax[block] = Math.max(blockMax[block], luminance);
+
+            }
+
+        }
+
+        int total = columns * rows;
+
+        // Small barcodes fill only a few percent of the frame, so the spread is taken wide
+        spread = percentile(histogram, total * 99 / 100) - percentile(histogram, total / 100);
+
+        // The lightest ink and the darkest paper, over the blocks that hold both
+        int lightestInk = 0;
+        int darkestPaper = 255;
+
+        int widestRange = 0;
+
+        for (int block = 0; block < blockMin.length; block++) {
+
+            int range = blockMax[block] - blockMin[block];
+
+            if (range < INK_RANGE || range < INK_CONTRAST * (blockMax[block] + blockMin[block]))
+
+                continue;
+
+            lightestInk = Math.max(lightestInk, blockMin[block]);
+
+            darkestPaper = Math.min(darkestPaper, blockMax[block]);
+
+            widestRange = Math.max(widestRange, range);
+
+        }
+
+        margin = darkestPaper - lightestInk;
+
+        if (spread < minSpread || margin < minMargin * widestRange)
+
+            return BinarizerType.HYBRID;
+
+        return BinarizerType.GLOBAL_HISTOGRAM;
+
+    }
+
+    private static int percentile(int[] histogram, int rank) {
+
+        int seen = 0;
+
+        for (int luminance = 0; luminance < histogram.length; luminance++)
+
+            if ((seen += histogram[luminance]) > rank)
+
+                return luminance;
+
+        return histogram.length - 1;
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * BinarizerType --
+ * The zxing binarizers a frame can be turned into black and white with.
+ * @author Tyler Sizse
+ */
+public enum BinarizerType {
+
+    // Thresholds every 8x8 block against its neighbourhood, copes with shadows and glare but
+    // costs a pass over the whole frame up front
+    HYBRID,
+
+    // One threshold for the whole frame from a histogram of a few rows, fast and good with evenly
+    // lit 1D labels
+    GLOBAL_HISTOGRAM;
+
+    /**
+     * create -- Takes 1 parameter.
+     * @param source The frame to binarize
+     * @return A new binarizer of this type over the frame
+     */
+    public Binarizer create(LuminanceSource source) {
+
+        return this == HYBRID ? new HybridBinarizer(source) : new GlobalHistogramBinarizer(source);
+
+    }
+
+}
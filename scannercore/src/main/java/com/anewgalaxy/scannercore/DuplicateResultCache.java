@@ -0,0 +1,191 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DuplicateResultCache --
+ * Remembers recently seen barcodes by text and format so repeated reads can be dropped. An
+ * entry expires once it hasn't been seen for the time to live, and when the cache is full the
+ * least recently seen entry is evicted. Seeing a barcode again restarts its time to live, so a
+ * barcode that stays in view is only reported once.
+ *
+ * All times are in milliseconds and passed in by the caller.
+ * @author Tyler Sizse
+ */
+public final class DuplicateResultCache {
+
+    public static final long DEFAULT_TIME_TO_LIVE_MS = 2000L;
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    // Access ordered, so iteration starts at the least recently seen entry
+    private final LinkedHashMap<Key, Long> lastSeen = new LinkedHashMap<Key, Long>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) { return size() > capacity; }
+
+    };
+
+    private long timeToLive;
+
+    private int capacity;
+
+    private long hits;
+    private long misses;
+
+    public DuplicateResultCache(long timeToLive, int capacity) {
+
+        setTimeToLive(timeToLive);
+
+        setCapacity(capacity);
+
+    }
+
+    /**
+     * setTimeToLive -- Takes 1 parameter.
+     * @param timeToLive How long a barcode is remembered after it was last seen, or 0 to turn
+     *                   duplicate suppression off
+     */
+    public synchronized void setTimeToLive(long timeToLive) {
+
+        this.timeToLive = Math.max(0L, timeToLive);
+
+        if (this.timeToLive == 0L)
+
+            lastSeen.clear();
+
+    }
+
+    public synchronized long getTimeToLive() { return timeToLive; }
+
+    /**
+     * setCapacity -- Takes 1 parameter.
+     * @param capacity The most barcodes remembered at once, the least recently seen are evicted
+     * @throws IllegalArgumentException If the capacity is less than 1
+     */
+    public synchronized void setCapacity(int capacity) {
+
+        if (capacity < 1)
+
+            throw new IllegalArgumentException("DuplicateResultCache capacity must be at least 1, was " + capacity);
+
+        this.capacity = capacity;
+
+        for (Iterator<Key> keys = lastSeen.keySet().iterator(); lastSeen.size() > capacity; ) {
+
+            keys.next();
+
+            keys.remove();
+
+        }
+
+    }
+
+    public synchronized int getCapacity() { return capacity; }
+
+    /**
+     * isDuplicate -- Takes 3 parameters.
+     * Records a barcode as seen.
+     *
+     * @param text   The barcode text
+     * @param format The barcode format
+     * @param now    The current time
+     * @return true if the same barcode was seen within the time to live and should be dropped
+     */
+    public synchronized boolean isDuplicate(String text, BarcodeFormat format, long now) {
+
+        if (timeToLive == 0L) {
+
+            misses++;
+
+            return false;
+
+        }
+
+        Key key = new Key(text, format);
+
+        Long seen = lastSeen.put(key, now);
+
+        if (seen != null && now - seen <= timeToLive) {
+
+            hits++;
+
+            return true;
+
+        }
+
+        misses++;
+
+        return false;
+
+    }
+
+    public synchronized void clear() { lastSeen.clear(); }
+
+    public synchronized int size() { return lastSeen.size(); }
+
+    /**
+     * getHitCount -- Takes 0 parameters.
+     * @return How many results were dropped as duplicates
+     */
+    public synchronized long getHitCount() { return hits; }
+
+    /**
+     * getMissCount -- Takes 0 parameters.
+     * @return How many results were new and let through
+     */
+    public synchronized long getMissCount() { return misses; }
+
+    private static final class Key {
+
+        final String text;
+
+        final BarcodeFormat format;
+
+        Key(String text, BarcodeFormat format) {
+
+            this.text = text;
+
+            this.format = format;
+
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (!(other instanceof Key))
+
+                return false;
+
+            Key key = (Key) other;
+
+            return format == key.format && (text == null ? key.text == null : text.equals(key.text));
+
+        }
+
+        @Override
+        public int hashCode() { return 31 * (text != null ? text.hashCode() : 0) + (format != null ? format.hashCode() : 0); }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * FormatHistogram --
+ * Decaying count of successful decodes per BarcodeFormat. Every hit first decays all weights so
+ * that a hit halfLife scans ago counts half as much as the latest one, which lets the histogram
+ * follow a change in what is being scanned.
+ *
+ * Readers check getGeneration() before every frame and only take the lock to re-sort their
+ * formats when something was recorded since they last looked.
+ * @author Tyler Sizse
+ */
+public final class FormatHistogram {
+
+    public static final int DEFAULT_HALF_LIFE = 50;
+
+    private final double[] weights = new double[BarcodeFormat.values().length];
+
+    private final double decay;
+
+    private volatile int generation;
+
+    /**
+     * @param halfLife After how many hits an older hit has lost half of its weight
+     */
+    public FormatHistogram(int halfLife) {
+
+        if (halfLife < 1)
+
+            throw new IllegalArgumentException("FormatHistogram half life must be at least 1, was " + halfLife);
+
+        this.decay = Math.pow(0.5, 1d / halfLife);
+
+    }
+
+    public synchronized void record(BarcodeFormat format) {
+
+        for (int i = 0; i < weights.length; i++)
+
+            weights[i] *= decay;
+
+        weights[format.ordinal()] += 1d;
+
+        generation++;
+
+    }
+
+    public synchronized double getWeight(BarcodeFormat format) { return weights[format.ordinal()]; }
+
+    /**
+     * copyWeights -- Takes 1 parameter.
+     * @param into Receives the weight of every format, indexed by BarcodeFormat.ordinal()
+     * @return The generation the weights belong to
+     */
+    public synchronized int copyWeights(double[] into) {
+
+        System.arraycopy(weights, 0, into, 0, weights.length);
+
+        return generation;
+
+    }
+
+    /**
+     * getGeneration -- Takes 0 parameters.
+     * @return A number that changes every time a hit is recorded or the histogram is cleared
+     */
+    public int getGeneration() { return generation; }
+
+    public synchronized void clear() {
+
+        for (int i = 0; i < weights.length; i++)
+
+            weights[i] = 0d;
+
+        generation++;
+
+    }
+
+}
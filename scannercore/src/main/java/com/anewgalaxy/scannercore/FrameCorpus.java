@@ -0,0 +1,233 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * FrameCorpus --
+ * Read only view of a corpus file written by the FrameCorpusWriter. The file is memory-mapped,
+ * so replaying a frame is a copy out of the page cache with no image decoding. The frame
+ * metadata is read once when the corpus is opened. Safe to read from several threads at once.
+ * @author Tyler Sizse
+ */
+public final class FrameCorpus {
+
+    private final ByteBuffer data;
+
+    private final int[] widths;
+    private final int[] heights;
+
+    private final BarcodeFormat[] formats;
+
+    private final String[] contents;
+
+    private final int[] pixelOffsets;
+
+    private FrameCorpus(ByteBuffer data, int count) {
+
+        this.data = data;
+
+        this.widths = new int[count];
+
+        this.heights = new int[count];
+
+        this.formats = new BarcodeFormat[count];
+
+        this.contents = new String[count];
+
+        this.pixelOffsets = new int[count];
+
+    }
+
+    /**
+     * open -- Takes 1 parameter.
+     * @param file The corpus file
+     * @return The mapped corpus, the file itself can be closed and is no longer needed open
+     * @throws IOException If the file can't be read or isn't a valid corpus
+     */
+    public static FrameCorpus open(File file) throws IOException {
+
+        MappedByteBuffer data;
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+
+            long length = input.length();
+
+            if (length < FrameCorpusWriter.FOOTER_SIZE || length > Integer.MAX_VALUE)
+
+                throw new IOException("Not a frame corpus: " + file);
+
+            data = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+        }
+
+        int footer = data.limit() - FrameCorpusWriter.FOOTER_SIZE;
+
+        long indexOffset = data.getLong(footer);
+
+        int count = data.getInt(footer + 8);
+
+        if (data.getInt(footer + 16) != FrameCorpusWriter.MAGIC)
+
+            throw new IOException("Not a frame corpus: " + file);
+
+        if (data.getInt(footer + 12) != FrameCorpusWriter.VERSION)
+
+            throw new IOException("Unsupported frame corpus version " + data.getInt(footer + 12) + ": " + file);
+
+        if (count < 0 || indexOffset < 0 || indexOffset + count * 8L != footer)
+
+            throw new IOException("Corrupt frame corpus: " + file);
+
+        FrameCorpus corpus = new FrameCorpus(data, count);
+
+        try {
+
+            for (int i = 0; i < count; i++)
+
+                corpus.readHeader(i, data.getLong((int) indexOffset + i * 8));
+
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+
+            throw new IOException("Corrupt frame corpus: " + file, exception);
+
+        }
+
+        return corpus;
+
+    }
+
+    private void readHeader(int index, long offset) throws IOException {
+
+        ByteBuffer record = data.duplicate();
+
+        record.position((int) offset);
+
+        DataInputStream input = new DataInputStream(new ByteBufferInputStream(record));
+
+        widths[index] = input.readInt();
+
+        heights[index] = input.readInt();
+
+        formats[index] = BarcodeFormat.valueOf(input.readUTF());
+
+        contents[index] = input.readUTF();
+
+        pixelOffsets[index] = record.position();
+
+        if (widths[index] <= 0 || heights[index] <= 0
+                || (long) widths[index] * heights[index] > record.remaining())
+
+            throw new IOException("Frame " + index + " doesn't fit the file");
+
+    }
+
+    public int size() { return widths.length; }
+
+    public int getWidth(int index) { return widths[index]; }
+
+    public int getHeight(int index) { return heights[index]; }
+
+    public BarcodeFormat getFormat(int index) { return formats[index]; }
+
+    public String getContents(int index) { return contents[index]; }
+
+    /**
+     * readFrame -- Takes 2 parameters.
+     * Copies a frame out of the corpus as NV21, with neutral chroma.
+     *
+     * @param index   The frame number
+     * @param yuvData A buffer to reuse, or null. Used when it holds at least width * height * 3 / 2
+     *                bytes, otherwise a new buffer is allocated
+     * @return The buffer the frame was copied into
+     */
+    public byte[] readFrame(int index, byte[] yuvData) {
+
+        int pixels = widths[index] * heights[index];
+
+        int size = pixels * 3 / 2;
+
+        if (yuvData == null || yuvData.length < size)
+
+            yuvData = new byte[size];
+
+        ByteBuffer frame = data.duplicate();
+
+        frame.position(pixelOffsets[index]);
+
+        frame.get(yuvData, 0, pixels);
+
+        Arrays.fill(yuvData, pixels, size, (byte) 128);
+
+        return yuvData;
+
+    }
+
+    /**
+     * getFrame -- Takes 1 parameter.
+     * @param index The frame number
+     * @return A copy of the frame with its metadata
+     */
+    public SyntheticFrame getFrame(int index) {
+
+        return new SyntheticFrame(formats[index], contents[index], widths[index], heights[index],
+                readFrame(index, null));
+
+    }
+
+    /**
+     * Minimal stream over a buffer, only used to read the record headers with DataInputStream.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) { this.buffer = buffer; }
+
+        @Override
+        public int read() { return buffer.hasRemaining() ? buffer.get() & 0xFF : -1; }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+
+            if (!buffer.hasRemaining())
+
+                return -1;
+
+            length = Math.min(length, buffer.remaining());
+
+            buffer.get(bytes, offset, length);
+
+            return length;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * FrameCorpusWriter --
+ * Writes frames to a corpus file that a FrameCorpus can memory-map and replay.
+ *
+ * The file holds the frame records back to back, each one the frame's width and height, its
+ * format name and contents, then its Y plane. The chroma planes of a synthetic frame are
+ * neutral, so they aren't stored. The records are followed by the offset of every record and a
+ * footer with the offset of that table, the frame count, the version and a magic number, so the
+ * file can be written in one pass.
+ * @author Tyler Sizse
+ */
+public final class FrameCorpusWriter implements Closeable {
+
+    static final int MAGIC = 0x53434E43;
+
+    static final int VERSION = 1;
+
+    /** The footer is the index offset, the frame count, the version and the magic number */
+    static final int FOOTER_SIZE = 8 + 4 + 4 + 4;
+
+    private final DataOutputStream output;
+
+    private long[] offsets = new long[64];
+
+    private int count;
+
+    private long position;
+
+    /**
+     * @param file The corpus file to write, replaced if it exists
+     * @throws IOException If the file can't be created
+     */
+    public FrameCorpusWriter(File file) throws IOException {
+
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+
+    }
+
+    /**
+     * add -- Takes 1 parameter.
+     * Appends a frame to the corpus.
+     *
+     * @param frame The frame to append
+     * @throws IOException If the frame can't be written, or the corpus would outgrow 2 GB
+     */
+    public void add(SyntheticFrame frame) throws IOException {
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+
+        if (count == offsets.length)
+
+            offsets = Arrays.copyOf(offsets, count * 2);
+
+        offsets[count++] = position;
+
+        int start = output.size();
+
+        output.writeInt(width);
+
+        output.writeInt(height);
+
+        output.writeUTF(frame.getFormat().name());
+
+        output.writeUTF(frame.getContents());
+
+        output.write(frame.getYuvData(), 0, width * height);
+
+        // DataOutputStream.size() saturates at Integer.MAX_VALUE, so track the position apart
+        position += output.size() - start;
+
+        if (position + (count + 1L) * 8 + FOOTER_SIZE > Integer.MAX_VALUE)
+
+            throw new IOException("Frame corpus can't be larger than 2 GB");
+
+    }
+
+    public int size() { return count; }
+
+    /**
+     * close -- Takes 0 parameters.
+     * Writes the record table and footer and closes the file. The corpus is incomplete until then.
+     *
+     * @throws IOException If the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+
+            for (int i = 0; i < count; i++)
+
+                output.writeLong(offsets[i]);
+
+            output.writeLong(position);
+
+            output.writeInt(count);
+
+            output.writeInt(VERSION);
+
+            output.writeInt(MAGIC);
+
+        } finally {
+
+            output.close();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * FrameFingerprint --
+ * Perceptual fingerprint of a frame: the frame is split into GRID x GRID blocks, and for every
+ * block the mean luminance and the mean step between neighbouring pixels (its activity) are
+ * sampled from a few rows. The means follow what is in view, the activity follows focus, so a
+ * frame that sharpens up without moving still changes its fingerprint. Fingerprints are compared
+ * by the block that changed most.
+ *
+ * Taking a fingerprint reads 32 rows of the frame.
+ * @author Tyler Sizse
+ */
+public final class FrameFingerprint {
+
+    static final int GRID = 8;
+
+    private static final int ROWS_PER_BLOCK = 4;
+
+    private static final int SAMPLES_PER_BLOCK = 8;
+
+    private static final int ACTIVITY_FLOOR = 12;
+
+    // Row buffers for every thread taking fingerprints
+    private static final ThreadLocal<byte[]> ROWS = new ThreadLocal<>();
+
+    private final byte[] means;
+
+    private final byte[] activity;
+
+    private FrameFingerprint(byte[] means, byte[] activity) {
+
+        this.means = means;
+
+        this.activity = activity;
+
+    }
+
+    /**
+     * of -- Takes 1 parameter.
+     * @param source The frame to take the fingerprint of
+     * @return The fingerprint
+     */
+    public static FrameFingerprint of(LuminanceSource source) {
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        int columns = GRID * SAMPLES_PER_BLOCK;
+        int rows = GRID * ROWS_PER_BLOCK;
+
+        int[] meanSums = new int[GRID * GRID];
+        int[] activitySums = new int[GRID * GRID];
+
+        // Too small to sample, every such frame looks the same
+        if (width > columns && height >= rows) {
+
+            byte[] row = ROWS.get();
+
+            for (int r = 0; r < rows; r++) {
+
+                row = source.getRow((2 * r + 1) * height / (2 * rows), row);
+
+                int blockRow = r / ROWS_PER_BLOCK * GRID;
+
+                for (int c = 0; c < columns; c++) {
+
+                    int x = (2 * c + 1) * (width - 1) / (2 * columns);
+
+                    int value = row[x] & 0xFF;
+
+                    int block = blockRow + c / SAMPLES_PER_BLOCK;
+
+                    meanSums[block] += value;
+
+                    activitySums[block] += Math.abs((row[x + 1] & 0xFF) - value);
+
+                }
+
+            }
+
+            ROWS.set(row);
+
+        }
+
+        int samples = ROWS_PER_BLOCK * SAMPLES_PER_BLOCK;
+
+        byte[] means = new byte[GRID * GRID];
+        byte[] activity = new byte[GRID * GRID];
+
+        for (int block = 0; block < means.length; block++) {
+
+            means[block] = (byte) (meanSums[block] / samples);
+
+            activity[block] = (byte) (activitySums[block] / samples);
+
+        }
+
+        return new FrameFingerprint(means, activity);
+
+    }
+
+    /**
+     * getMeanDifference -- Takes 1 parameter.
+     * @param other The fingerprint to compare with
+     * @return How far the means of the block that changed most are apart, in luminance levels
+     */
+    public float getMeanDifference(FrameFingerprint other) {
+
+        int largest = 0;
+
+        for (int i = 0; i < means.length; i++)
+
+            largest = Math.max(largest, Math.abs((means[i] & 0xFF) - (other.means[i] & 0xFF)));
+
+        return largest;
+
+    }
+
+    /**
+     * getActivityDifference -- Takes 1 parameter.
+     * A barcode often covers only a few blocks, so it is the block that changed most that counts.
+     *
+     * @param other The fingerprint to compare with
+     * @return By which fraction the activity of the block that changed most went up or down
+     */
+    public float getActivityDifference(FrameFingerprint other) {
+
+        float largest = 0f;
+
+        for (int i = 0; i < activity.length; i++) {
+
+            int a = activity[i] & 0xFF;
+            int b = other.activity[i] & 0xFF;
+
+            // Steps below the floor are mostly sensor noise, don't make much of them
+            largest = Math.max(largest, (float) Math.abs(a - b) / Math.max(ACTIVITY_FLOOR, Math.max(a, b)));
+
+        }
+
+        return largest;
+
+    }
+
+}
@@ -0,0 +1,349 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.Locale;
+
+/**
+ * FrameQualityGate --
+ * Cheap check that runs before a frame is decoded, to skip the frames no reader would get
+ * anything out of: too dark, washed out, without any edges, or motion blurred. A few bands of
+ * rows across the frame are sampled in windows of WINDOW pixels, horizontally and vertically:
+ *
+ * - brightness is the mean luminance of the samples
+ * - edge density is the fraction of windows whose range reaches the edge contrast
+ * - sharpness is how much of an edge window's range is crossed in one step between neighbouring
+ *   pixels, averaged over the edge windows. A sharp edge jumps in one step and scores close to
+ *   1, an edge blurred over the whole window scores around 1 / WINDOW
+ *
+ * Thresholds can be tuned from any thread while frames are being checked.
+ * @author Tyler Sizse
+ */
+public final class FrameQualityGate {
+
+    /**
+     * What the gate made of a frame.
+     */
+    public enum Verdict {
+
+        ACCEPTED,
+
+        TOO_DARK,
+
+        TOO_BRIGHT,
+
+        // Hardly any edges, nothing that could be a barcode
+        EMPTY,
+
+        BLURRY
+
+    }
+
+    public static final int DEFAULT_MIN_BRIGHTNESS = 20;
+
+    public static final int DEFAULT_MAX_BRIGHTNESS = 240;
+
+    public static final int DEFAULT_EDGE_CONTRAST = 48;
+
+    public static final float DEFAULT_MIN_EDGE_DENSITY = 0.01f;
+
+    public static final float DEFAULT_MIN_SHARPNESS = 0.1f;
+
+    static final int WINDOW = 16;
+
+    private static final int BANDS = 8;
+
+    private static final int SAMPLES_PER_BAND = 64;
+
+    private final ThreadLocal<byte[][]> rows = new ThreadLocal<>();
+
+    private volatile int minBrightness = DEFAULT_MIN_BRIGHTNESS;
+
+    private volatile int maxBrightness = DEFAULT_MAX_BRIGHTNESS;
+
+    private volatile int edgeContrast = DEFAULT_EDGE_CONTRAST;
+
+    private volatile float minEdgeDensity = DEFAULT_MIN_EDGE_DENSITY;
+
+    private volatile float minSharpness = DEFAULT_MIN_SHARPNESS;
+
+    /**
+     * setBrightnessRange -- Takes 2 parameters.
+     * @param min Frames with a darker mean luminance are rejected, from 0 to 255
+     * @param max Frames with a lighter mean luminance are rejected, from min to 255
+     */
+    public void setBrightnessRange(int min, int max) {
+
+        if (min < 0 || max > 255 || min > max)
+
+            throw new IllegalArgumentException("Invalid brightness range: " + min + " to " + max);
+
+        this.minBrightness = min;
+
+        this.maxBrightness = max;
+
+    }
+
+    public int getMinBrightness() { return minBrightness; }
+
+    public int getMaxBrightness() { return maxBrightness; }
+
+    /**
+     * setEdgeContrast -- Takes 1 parameter.
+     * @param edgeContrast How many luminance levels a window has to span to count as an edge,
+     *                     from 1 to 255. Lower picks up fainter barcodes, but also sensor noise
+     */
+    public void setEdgeContrast(int edgeContrast) {
+
+        if (edgeContrast < 1 || edgeContrast > 255)
+
+            throw new IllegalArgumentException("Edge contrast must be from 1 to 255, was " + edgeContrast);
+
+        this.edgeContrast = edgeContrast;
+
+    }
+
+    public int getEdgeContrast() { return edgeContrast; }
+
+    /**
+     * setMinEdgeDensity -- Takes 1 parameter.
+     * @param minEdgeDensity Frames with a smaller fraction of edge windows are rejected as empty,
+     *                       from 0 to 1
+     */
+    public void setMinEdgeDensity(float minEdgeDensity) {
+
+        if (!(minEdgeDensity >= 0f && minEdgeDensity <= 1f))
+
+            throw new IllegalArgumentException("Minimum edge density must be from 0 to 1, was " + minEdgeDensity);
+
+        this.minEdgeDensity = minEdgeDensity;
+
+    }
+
+    public float getMinEdgeDensity() { return minEdgeDensity; }
+
+    /**
+     * setMinSharpness -- Takes 1 parameter.
+     * @param minSharpness Frames whose edges are less sharp are rejected as blurry, from 0 to 1
+     */
+    public void setMinSharpness(float minSharpness) {
+
+        if (!(minSharpness >= 0f && minSharpness <= 1f))
+
+            throw new IllegalArgumentException("Minimum sharpness must be from 0 to 1, was " + minSharpness);
+
+        this.minSharpness = minSharpness;
+
+    }
+
+    public float getMinSharpness() { return minSharpness; }
+
+    /**
+     * check -- Takes 1 parameter.
+     * @param source The frame to check
+     * @return ACCEPTED if the frame is worth decoding, otherwise why not
+     */
+    public Verdict check(LuminanceSource source) { return judge(score(source)); }
+
+    /**
+     * judge -- Takes 1 parameter.
+     * @param score The score of a frame
+     * @return ACCEPTED if the frame is worth decoding, otherwise why not
+     */
+    public Verdict judge(Score score) {
+
+        if (score.brightness < minBrightness)
+
+            return Verdict.TOO_DARK;
+
+        if (score.brightness > maxBrightness)
+
+            return Verdict.TOO_BRIGHT;
+
+        if (score.edgeDensity < minEdgeDensity)
+
+            return Verdict.EMPTY;
+
+        if (score.sharpness < minSharpness)
+
+            return Verdict.BLURRY;
+
+        return Verdict.ACCEPTED;
+
+    }
+
+    /**
+     * score -- Takes 1 parameter.
+     * @param source The frame to score
+     * @return The brightness, edge density and sharpness of the frame
+     */
+    public Score score(LuminanceSource source) {
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        // Too small to sample, let the readers have a go
+        if (width <= WINDOW || height < BANDS * WINDOW)
+
+            return new Score(128, 1f, 1f);
+
+        byte[][] band = rows.get();
+
+        if (band == null || band[0].length < width) {
+
+            band = new byte[WINDOW][width];
+
+            rows.set(band);
+
+        }
+
+        int contrast = edgeContrast;
+
+        int step = Math.max(1, (width - WINDOW) / SAMPLES_PER_BAND);
+
+        long luminanceSum = 0L;
+
+        int samples = 0;
+
+        int windows = 0;
+        int edges = 0;
+
+        float sharpnessSum = 0f;
+
+        for (int b = 0; b < BANDS; b++) {
+
+            int top = (2 * b + 1) * (height - WINDOW) / (2 * BANDS);
+
+            for (int i = 0; i < WINDOW; i++)
+
+                band[i] = source.getRow(top + i, band[i]);
+
+            byte[] first = band[0];
+
+            for (int x = 0; x + WINDOW < width; x += step) {
+
+                int value = first[x] & 0xFF;
+
+                luminanceSum += value;
+
+                samples++;
+
+                // Along the row
+                int min = value;
+                int max = value;
+                int jump = 0;
+
+                for (int i = 1, previous = value; i < WINDOW; i++) {
+
+                    int next = first[x + i] & 0xFF;
+
+                    min = Math.min(min, next);
+                    max = Math.max(max, next);
+
+                    jump = Math.max(jump, Math.abs(next - previous));
+
+                    previous = next;
+
+                }
+
+                windows++;
+
+                if (max - min >= contrast) {
+
+                    edges++;
+
+                    sharpnessSum += (float) jump / (max - min);
+
+                }
+
+                // Down the column
+                min = value;
+                max = value;
+                jump = 0;
+
+                for (int i = 1, previous = value; i < WINDOW; i++) {
+
+                    int next = band[i][x] & 0xFF;
+
+                    min = Math.min(min, next);
+                    max = Math.max(max, next);
+
+                    jump = Math.max(jump, Math.abs(next - previous));
+
+                    previous = next;
+
+                }
+
+                windows++;
+
+                if (max - min >= contrast) {
+
+                    edges++;
+
+                    sharpnessSum += (float) jump / (max - min);
+
+                }
+
+            }
+
+        }
+
+        return new Score((int) (luminanceSum / samples), (float) edges / windows,
+                edges > 0 ? sharpnessSum / edges : 0f);
+
+    }
+
+    /**
+     * The measurements a FrameQualityGate judges a frame by.
+     */
+    public static final class Score {
+
+        private final int brightness;
+
+        private final float edgeDensity;
+
+        private final float sharpness;
+
+        Score(int brightness, float edgeDensity, float sharpness) {
+
+            this.brightness = brightness;
+
+            this.edgeDensity = edgeDensity;
+
+            this.sharpness = sharpness;
+
+        }
+
+        public int getBrightness() { return brightness; }
+
+        public float getEdgeDensity() { return edgeDensity; }
+
+        public float getSharpness() { return sharpness; }
+
+        @Override
+        public String toString() {
+
+            return String.format(Locale.US, "brightness=%d edges=%.3f sharpness=%.2f", brightness, edgeDensity,
+                    sharpness);
+
+        }
+
+    }
+
+}
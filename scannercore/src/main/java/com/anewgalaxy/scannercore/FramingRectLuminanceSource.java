@@ -0,0 +1,218 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * FramingRectLuminanceSource --
+ * Luminance source that wraps the raw YUV preview buffer and only exposes the framing rect.
+ * Camera rotation and cropping are resolved with offset and stride math on the Y plane, so
+ * unlike SourceData.createSource() the preview frame is never rotated or copied, and only the
+ * pixels inside the framing rect are ever read.
+ *
+ * Every pixel (x, y) of the source maps to the index base + x * xStep + y * yStep in the Y plane.
+ * @author Tyler Sizse
+ */
+public final class FramingRectLuminanceSource extends LuminanceSource {
+
+    private final byte[] yuvData;
+
+    private final int dataWidth;
+    private final int dataHeight;
+
+    private final int base;
+    private final int xStep;
+    private final int yStep;
+
+    /**
+     * wrap -- Takes 8 parameters.
+     * Creates a source over the given crop of a preview frame without copying it.
+     *
+     * @param yuvData    The raw preview frame, Y plane first (NV21, YV12, ...)
+     * @param dataWidth  The width of the frame as delivered by the camera
+     * @param dataHeight The height of the frame as delivered by the camera
+     * @param rotation   The clockwise camera rotation, one of 0, 90, 180 or 270
+     * @param left       The left of the crop, in rotated coordinates
+     * @param top        The top of the crop, in rotated coordinates
+     * @param width      The width of the crop, in rotated coordinates
+     * @param height     The height of the crop, in rotated coordinates
+     * @throws IllegalArgumentException If the rotation is invalid or the crop doesn't fit the frame
+     */
+    public static FramingRectLuminanceSource wrap(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                                                  int left, int top, int width, int height) {
+
+        boolean rotated = rotation % 180 != 0;
+
+        int rotatedWidth = rotated ? dataHeight : dataWidth;
+        int rotatedHeight = rotated ? dataWidth : dataHeight;
+
+        if (left < 0 || top < 0 || left + width > rotatedWidth || top + height > rotatedHeight)
+
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+
+        switch (rotation) {
+
+            case 0:
+                return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight,
+                        top * dataWidth + left, 1, dataWidth, width, height);
+
+            case 90:
+                return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight,
+                        (dataHeight - 1 - left) * dataWidth + top, -dataWidth, 1, width, height);
+
+            case 180:
+                return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight,
+                        (dataHeight - 1 - top) * dataWidth + dataWidth - 1 - left, -1, -dataWidth, width, height);
+
+            case 270:
+                return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight,
+                        left * dataWidth + dataWidth - 1 - top, dataWidth, -1, width, height);
+
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+
+        }
+
+    }
+
+    private FramingRectLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight,
+                                       int base, int xStep, int yStep, int width, int height) {
+        super(width, height);
+
+        this.yuvData = yuvData;
+
+        this.dataWidth = dataWidth;
+
+        this.dataHeight = dataHeight;
+
+        this.base = base;
+
+        this.xStep = xStep;
+
+        this.yStep = yStep;
+
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+
+        if (y < 0 || y >= getHeight())
+
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+
+        int width = getWidth();
+
+        if (row == null || row.length < width)
+
+            row = new byte[width];
+
+        copyRow(y, row, 0);
+
+        return row;
+
+    }
+
+    @Override
+    public byte[] getMatrix() {
+
+        int width = getWidth();
+        int height = getHeight();
+
+        // The crop is the whole unrotated frame, so the Y plane can be handed out as-is
+        if (base == 0 && xStep == 1 && width == dataWidth && height == dataHeight)
+
+            return yuvData;
+
+        byte[] matrix = new byte[width * height];
+
+        for (int y = 0; y < height; y++)
+
+            copyRow(y, matrix, y * width);
+
+        return matrix;
+
+    }
+
+    private void copyRow(int y, byte[] dest, int offset) {
+
+        int width = getWidth();
+
+        int index = base + y * yStep;
+
+        if (xStep == 1) {
+
+            System.arraycopy(yuvData, index, dest, offset, width);
+
+        } else {
+
+            for (int x = 0; x < width; x++, index += xStep)
+
+                dest[offset + x] = yuvData[index];
+
+        }
+
+    }
+
+    @Override
+    public boolean isCropSupported() { return true; }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+
+        if (left < 0 || top < 0 || left + width > getWidth() || top + height > getHeight())
+
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+
+        return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight,
+                base + left * xStep + top * yStep, xStep, yStep, width, height);
+
+    }
+
+    /**
+     * downsample -- Takes 1 parameter.
+     * Creates a source that reads every factor-th pixel of every factor-th row of this one, still
+     * straight from the preview buffer without copying or averaging anything.
+     *
+     * @param factor How many pixels of this source make up one of the new source, in each direction
+     * @return The downsampled source, pixel (x, y) being pixel (x * factor, y * factor) of this one
+     * @throws IllegalArgumentException If the factor is less than 1 or leaves no pixels
+     */
+    public FramingRectLuminanceSource downsample(int factor) {
+
+        if (factor < 1 || getWidth() / factor < 1 || getHeight() / factor < 1)
+
+            throw new IllegalArgumentException("Can't downsample " + getWidth() + "x" + getHeight() + " by " + factor);
+
+        return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight, base, xStep * factor,
+                yStep * factor, getWidth() / factor, getHeight() / factor);
+
+    }
+
+    @Override
+    public boolean isRotateSupported() { return true; }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+
+        // New pixel (x, y) is old pixel (width - 1 - y, x)
+        return new FramingRectLuminanceSource(yuvData, dataWidth, dataHeight,
+                base + (getWidth() - 1) * xStep, yStep, -xStep, getHeight(), getWidth());
+
+    }
+
+}
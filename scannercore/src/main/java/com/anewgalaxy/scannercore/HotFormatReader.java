@@ -0,0 +1,340 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.maxicode.MaxiCodeReader;
+import com.google.zxing.pdf417.PDF417Reader;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HotFormatReader --
+ * Reader that tries its formats in order of recent success instead of the fixed order of
+ * MultiFormatReader. Each 2D format has its own reader and all 1D formats share a single
+ * HotOneDReader, so rows are still only scanned once per frame. The 1D reader is ranked by its
+ * hottest format, and its formats are ranked among themselves on every row.
+ *
+ * Every hit is recorded in the shared FormatHistogram. Not thread safe, like the zxing readers,
+ * each decoder gets its own instance.
+ * @author Tyler Sizse
+ */
+public final class HotFormatReader implements Reader {
+
+    // Same order MultiFormatReader tries them in, used until the histogram says otherwise
+    private static final BarcodeFormat[] TWO_D_FORMATS = {
+            BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX, BarcodeFormat.AZTEC,
+            BarcodeFormat.PDF_417, BarcodeFormat.MAXICODE
+    };
+
+    private final FormatHistogram histogram;
+
+    private final Map<DecodeHintType, ?> hints;
+
+    // The hints with TRY_HARDER added, for decodes that are asked to try harder
+    private final Map<DecodeHintType, ?> harderHints;
+
+    private boolean tryHarder;
+
+    private final boolean stopAfterFirstHit;
+
+    // Kept in the order they are tried, keys[i] is the format readers[i] is ranked by
+    private final Reader[] readers;
+    private final BarcodeFormat[] keys;
+
+    private final HotOneDReader oneDReader;
+
+    private final double[] weights = new double[BarcodeFormat.values().length];
+
+    private int orderGeneration = -1;
+
+    /**
+     * @param hints             The decode hints, POSSIBLE_FORMATS picks the formats and defaults to
+     *                          every format MultiFormatReader supports
+     * @param histogram         Where hits are recorded and the order is taken from
+     * @param stopAfterFirstHit true to return the first result, false to keep trying the
+     *                          remaining readers so every format in view is recorded
+     */
+    public HotFormatReader(Map<DecodeHintType, ?> hints, FormatHistogram histogram, boolean stopAfterFirstHit) {
+
+        this.hints = hints != null ? hints : new EnumMap<>(DecodeHintType.class);
+
+        Map<DecodeHintType, Object> harder = new EnumMap<>(DecodeHintType.class);
+
+        harder.putAll(this.hints);
+
+        harder.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+
+        this.harderHints = harder;
+
+        this.histogram = histogram;
+
+        this.stopAfterFirstHit = stopAfterFirstHit;
+
+        @SuppressWarnings("unchecked")
+        Collection<BarcodeFormat> formats = (Collection<BarcodeFormat>) this.hints.get(DecodeHintType.POSSIBLE_FORMATS);
+
+        List<BarcodeFormat> oneDFormats = new ArrayList<>();
+
+        for (BarcodeFormat format : HotOneDReader.FORMATS)
+
+            if (formats == null || formats.isEmpty() || formats.contains(format))
+
+                oneDFormats.add(format);
+
+        List<BarcodeFormat> keyList = new ArrayList<>();
+
+        List<Reader> readerList = new ArrayList<>();
+
+        for (BarcodeFormat format : TWO_D_FORMATS) {
+
+            if (formats == null || formats.isEmpty() || formats.contains(format)) {
+
+                keyList.add(format);
+
+                readerList.add(createReader(format));
+
+            }
+
+        }
+
+        if (oneDFormats.isEmpty()) {
+
+            oneDReader = null;
+
+        } else {
+
+            oneDReader = new HotOneDReader(oneDFormats.toArray(new BarcodeFormat[0]), this.hints);
+
+            // Like MultiFormatReader, 1D goes last when trying harder as it is the slowest
+            int index = this.hints.containsKey(DecodeHintType.TRY_HARDER) ? keyList.size() : 0;
+
+            keyList.add(index, oneDFormats.get(0));
+
+            readerList.add(index, oneDReader);
+
+        }
+
+        this.keys = keyList.toArray(new BarcodeFormat[0]);
+
+        this.readers = readerList.toArray(new Reader[0]);
+
+    }
+
+    private static Reader createReader(BarcodeFormat format) {
+
+        switch (format) {
+
+            case QR_CODE:
+                return new QRCodeReader();
+
+            case DATA_MATRIX:
+                return new DataMatrixReader();
+
+            case AZTEC:
+                return new AztecReader();
+
+            case PDF_417:
+                return new PDF417Reader();
+
+            case MAXICODE:
+                return new MaxiCodeReader();
+
+            default:
+                throw new IllegalArgumentException("Not a 2D format: " + format);
+
+        }
+
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+
+        return decode(image, null);
+
+    }
+
+    /**
+     * decode -- Takes 2 parameters.
+     * The readers were set up with the hints given to the constructor, so the hints passed in
+     * here are ignored, the same as MultiFormatReader.decodeWithState().
+     */
+    @Override
+    public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> ignored) throws NotFoundException {
+
+        refreshOrder();
+
+        Result first = null;
+
+        for (Reader reader : readers) {
+
+            try {
+
+                Result result = reader.decode(image, tryHarder ? harderHints : hints);
+
+                histogram.record(result.getBarcodeFormat());
+
+                if (stopAfterFirstHit)
+
+                    return result;
+
+                if (first == null)
+
+                    first = result;
+
+            } catch (ReaderException exception) {
+
+                // Not this format, try the next one
+
+            }
+
+        }
+
+        if (first == null)
+
+            throw NotFoundException.getNotFoundInstance();
+
+        return first;
+
+    }
+
+    /**
+     * setTryHarder -- Takes 1 parameter.
+     * Adds the TRY_HARDER hint to the decodes that follow, on top of the hints given to the
+     * constructor, without setting up the readers again. The formats keep their order.
+     *
+     * @param tryHarder true to try harder, false to go back to the constructor hints
+     */
+    public void setTryHarder(boolean tryHarder) { this.tryHarder = tryHarder; }
+
+    public boolean isTryHarder() { return tryHarder; }
+
+    /**
+     * isOneDOnly -- Takes 0 parameters.
+     * @return true if every format the reader decodes is a 1D format
+     */
+    public boolean isOneDOnly() { return readers.length == 1 && readers[0] == oneDReader; }
+
+    @Override
+    public void reset() {
+
+        for (Reader reader : readers)
+
+            reader.reset();
+
+    }
+
+    /**
+     * getOrder -- Takes 0 parameters.
+     * @return The formats in the order they will be tried on the next frame
+     */
+    public List<BarcodeFormat> getOrder() {
+
+        refreshOrder();
+
+        List<BarcodeFormat> order = new ArrayList<>();
+
+        for (int i = 0; i < readers.length; i++) {
+
+            if (readers[i] == oneDReader)
+
+                oneDReader.addOrder(order);
+
+            else
+
+                order.add(keys[i]);
+
+        }
+
+        return order;
+
+    }
+
+    private void refreshOrder() {
+
+        if (histogram.getGeneration() == orderGeneration)
+
+            return;
+
+        orderGeneration = histogram.copyWeights(weights);
+
+        if (oneDReader != null) {
+
+            oneDReader.sortByWeight(weights);
+
+            for (int i = 0; i < readers.length; i++)
+
+                if (readers[i] == oneDReader)
+
+                    keys[i] = oneDReader.getHottestFormat();
+
+        }
+
+        sortByWeight(keys, readers, weights);
+
+    }
+
+    /**
+     * sortByWeight -- Takes 3 parameters.
+     * Stable insertion sort of both arrays, heaviest key first. Ties keep their current order.
+     *
+     * @param keys    The format each reader is ranked by
+     * @param readers The readers, moved along with their keys
+     * @param weights The weight of every format, indexed by BarcodeFormat.ordinal()
+     */
+    static void sortByWeight(BarcodeFormat[] keys, Reader[] readers, double[] weights) {
+
+        for (int i = 1; i < keys.length; i++) {
+
+            BarcodeFormat key = keys[i];
+
+            Reader reader = readers[i];
+
+            double weight = weights[key.ordinal()];
+
+            int j = i - 1;
+
+            for (; j >= 0 && weights[keys[j].ordinal()] < weight; j--) {
+
+                keys[j + 1] = keys[j];
+
+                readers[j + 1] = readers[j];
+
+            }
+
+            keys[j + 1] = key;
+
+            readers[j + 1] = reader;
+
+        }
+
+    }
+
+}
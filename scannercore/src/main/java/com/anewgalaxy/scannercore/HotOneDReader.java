@@ -0,0 +1,202 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.oned.CodaBarReader;
+import com.google.zxing.oned.Code128Reader;
+import com.google.zxing.oned.Code39Reader;
+import com.google.zxing.oned.Code93Reader;
+import com.google.zxing.oned.ITFReader;
+import com.google.zxing.oned.OneDReader;
+import com.google.zxing.oned.rss.RSS14Reader;
+import com.google.zxing.oned.rss.expanded.RSSExpandedReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HotOneDReader --
+ * Counterpart of MultiFormatOneDReader with one reader per format, tried on each row in the
+ * order set by sortByWeight() rather than a fixed order. Like in MultiFormatOneDReader the
+ * UPC/EAN formats share a single HotUPCEANReader, which is ranked by its hottest format and
+ * orders its own formats the same way.
+ * @author Tyler Sizse
+ */
+final class HotOneDReader extends OneDReader {
+
+    // Same order MultiFormatOneDReader tries them in
+    static final BarcodeFormat[] FORMATS = {
+            BarcodeFormat.EAN_13, BarcodeFormat.UPC_A, BarcodeFormat.EAN_8, BarcodeFormat.UPC_E,
+            BarcodeFormat.CODE_39, BarcodeFormat.CODE_93, BarcodeFormat.CODE_128, BarcodeFormat.ITF,
+            BarcodeFormat.CODABAR, BarcodeFormat.RSS_14, BarcodeFormat.RSS_EXPANDED
+    };
+
+    // Kept in the order they are tried, formats[i] is the format readers[i] is ranked by
+    private final BarcodeFormat[] formats;
+
+    private final OneDReader[] readers;
+
+    // Null unless any UPC/EAN format is decoded
+    private final HotUPCEANReader upcEanReader;
+
+    /**
+     * @param formats The 1D formats to decode, in the order to try them until sorted
+     * @param hints   The decode hints the readers are set up with
+     */
+    HotOneDReader(BarcodeFormat[] formats, Map<DecodeHintType, ?> hints) {
+
+        List<BarcodeFormat> upcEanFormats = new ArrayList<>();
+
+        List<BarcodeFormat> keyList = new ArrayList<>();
+
+        for (BarcodeFormat format : formats) {
+
+            if (HotUPCEANReader.isUPCEAN(format)) {
+
+                // The group takes the place of its first format
+                if (upcEanFormats.isEmpty())
+
+                    keyList.add(format);
+
+                upcEanFormats.add(format);
+
+            } else {
+
+                keyList.add(format);
+
+            }
+
+        }
+
+        this.upcEanReader = upcEanFormats.isEmpty() ? null : new HotUPCEANReader(upcEanFormats);
+
+        this.formats = keyList.toArray(new BarcodeFormat[0]);
+
+        this.readers = new OneDReader[this.formats.length];
+
+        for (int i = 0; i < this.formats.length; i++)
+
+            readers[i] = HotUPCEANReader.isUPCEAN(this.formats[i]) ? upcEanReader : createReader(this.formats[i], hints);
+
+    }
+
+    private static OneDReader createReader(BarcodeFormat format, Map<DecodeHintType, ?> hints) {
+
+        switch (format) {
+
+            case CODE_39:
+                return new Code39Reader(hints.get(DecodeHintType.ASSUME_CODE_39_CHECK_DIGIT) != null);
+
+            case CODE_93:
+                return new Code93Reader();
+
+            case CODE_128:
+                return new Code128Reader();
+
+            case ITF:
+                return new ITFReader();
+
+            case CODABAR:
+                return new CodaBarReader();
+
+            case RSS_14:
+                return new RSS14Reader();
+
+            case RSS_EXPANDED:
+                return new RSSExpandedReader();
+
+            default:
+                throw new IllegalArgumentException("Not a 1D format: " + format);
+
+        }
+
+    }
+
+    void sortByWeight(double[] weights) {
+
+        if (upcEanReader != null) {
+
+            upcEanReader.sortByWeight(weights);
+
+            for (int i = 0; i < readers.length; i++)
+
+                if (readers[i] == upcEanReader)
+
+                    formats[i] = upcEanReader.getHottestFormat();
+
+        }
+
+        HotFormatReader.sortByWeight(formats, readers, weights);
+
+    }
+
+    BarcodeFormat getHottestFormat() { return formats[0]; }
+
+    void addOrder(List<BarcodeFormat> order) {
+
+        for (int i = 0; i < readers.length; i++) {
+
+            if (readers[i] == upcEanReader)
+
+                upcEanReader.addOrder(order);
+
+            else
+
+                order.add(formats[i]);
+
+        }
+
+    }
+
+    @Override
+    public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType, ?> hints) throws NotFoundException {
+
+        for (OneDReader reader : readers) {
+
+            try {
+
+                return reader.decodeRow(rowNumber, row, hints);
+
+            } catch (ReaderException exception) {
+
+                // Not this format, try the next one
+
+            }
+
+        }
+
+        throw NotFoundException.getNotFoundInstance();
+
+    }
+
+    @Override
+    public void reset() {
+
+        for (OneDReader reader : readers)
+
+            reader.reset();
+
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Copyright (C) 2012-2018 ZXing authors, Journey Mobile
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.oned.EAN13Reader;
+import com.google.zxing.oned.EAN8Reader;
+import com.google.zxing.oned.OneDReader;
+import com.google.zxing.oned.UPCAReader;
+import com.google.zxing.oned.UPCEANReader;
+import com.google.zxing.oned.UPCEReader;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HotUPCEANReader --
+ * Counterpart of MultiFormatUPCEANReader that tries its readers in the order set by
+ * sortByWeight(). Like MultiFormatUPCEANReader the start guard is only looked for once per row
+ * and shared by all of them, and EAN-13 and UPC-A share one reader.
+ * @author Tyler Sizse
+ */
+final class HotUPCEANReader extends OneDReader {
+
+    // Same as UPCEANReader
+    private static final float MAX_AVG_VARIANCE = 0.48f;
+    private static final float MAX_INDIVIDUAL_VARIANCE = 0.7f;
+
+    private static final int[] START_END_PATTERN = {1, 1, 1};
+
+    private final int[] counters = new int[START_END_PATTERN.length];
+
+    // Kept in the order they are tried, keys[i] is the format readers[i] is ranked by
+    private final BarcodeFormat[] keys;
+    private final UPCEANReader[] readers;
+
+    // Set when the EAN-13 reader reports UPC-A as well, it is then ranked by the hotter of the two
+    private final boolean ean13AndUpcA;
+
+    /**
+     * @param formats The UPC/EAN formats to decode, any of EAN_13, UPC_A, EAN_8 and UPC_E
+     */
+    HotUPCEANReader(List<BarcodeFormat> formats) {
+
+        ean13AndUpcA = formats.contains(BarcodeFormat.EAN_13) && formats.contains(BarcodeFormat.UPC_A);
+
+        int count = ean13AndUpcA ? formats.size() - 1 : formats.size();
+
+        keys = new BarcodeFormat[count];
+
+        readers = new UPCEANReader[count];
+
+        int i = 0;
+
+        // Same readers MultiFormatUPCEANReader would pick
+        for (BarcodeFormat format : formats) {
+
+            if (format == BarcodeFormat.UPC_A && ean13AndUpcA)
+
+                continue;
+
+            keys[i] = format;
+
+            readers[i++] = createReader(format);
+
+        }
+
+    }
+
+    private static UPCEANReader createReader(BarcodeFormat format) {
+
+        switch (format) {
+
+            case EAN_13:
+                return new EAN13Reader();
+
+            case UPC_A:
+                return new UPCAReader();
+
+            case EAN_8:
+                return new EAN8Reader();
+
+            case UPC_E:
+                return new UPCEReader();
+
+            default:
+                throw new IllegalArgumentException("Not a UPC/EAN format: " + format);
+
+        }
+
+    }
+
+    static boolean isUPCEAN(BarcodeFormat format) {
+
+        return format == BarcodeFormat.EAN_13 || format == BarcodeFormat.UPC_A
+                || format == BarcodeFormat.EAN_8 || format == BarcodeFormat.UPC_E;
+
+    }
+
+    void sortByWeight(double[] weights) {
+
+        if (ean13AndUpcA) {
+
+            for (int i = 0; i < keys.length; i++)
+
+                if (keys[i] == BarcodeFormat.EAN_13 || keys[i] == BarcodeFormat.UPC_A)
+
+                    keys[i] = weights[BarcodeFormat.UPC_A.ordinal()] > weights[BarcodeFormat.EAN_13.ordinal()]
+                            ? BarcodeFormat.UPC_A : BarcodeFormat.EAN_13;
+
+        }
+
+        HotFormatReader.sortByWeight(keys, readers, weights);
+
+    }
+
+    BarcodeFormat getHottestFormat() { return keys[0]; }
+
+    void addOrder(List<BarcodeFormat> order) {
+
+        for (BarcodeFormat key : keys) {
+
+            order.add(key);
+
+            if (ean13AndUpcA && key == BarcodeFormat.EAN_13)
+
+                order.add(BarcodeFormat.UPC_A);
+
+            else if (ean13AndUpcA && key == BarcodeFormat.UPC_A)
+
+                order.add(BarcodeFormat.EAN_13);
+
+        }
+
+    }
+
+    @Override
+    public Result decodeRow(int rowNumber, BitArray row, Map<DecodeHintType, ?> hints) throws NotFoundException {
+
+        int[] startGuard = findStartGuardPattern(row);
+
+        for (UPCEANReader reader : readers) {
+
+            try {
+
+                Result result = reader.decodeRow(rowNumber, row, startGuard, hints);
+
+                return canBeUpcA(result, hints) ? toUpcA(result) : result;
+
+            } catch (ReaderException exception) {
+
+                // Not this format, try the next one
+
+            }
+
+        }
+
+        throw NotFoundException.getNotFoundInstance();
+
+    }
+
+    // Like MultiFormatUPCEANReader, an EAN-13 starting with 0 is a UPC-A unless UPC-A isn't wanted
+    private static boolean canBeUpcA(Result result, Map<DecodeHintType, ?> hints) {
+
+        if (result.getBarcodeFormat() != BarcodeFormat.EAN_13 || result.getText().charAt(0) != '0')
+
+            return false;
+
+        Collection<?> possibleFormats = hints == null ? null : (Collection<?>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+
+        return possibleFormats == null || possibleFormats.contains(BarcodeFormat.UPC_A);
+
+    }
+
+    private static Result toUpcA(Result result) {
+
+        Result upcA = new Result(result.getText().substring(1), result.getRawBytes(), result.getResultPoints(),
+                BarcodeFormat.UPC_A);
+
+        upcA.putAllMetadata(result.getResultMetadata());
+
+        return upcA;
+
+    }
+
+    // UPCEANReader.findStartGuardPattern() isn't visible outside of zxing, this is the same search
+    private int[] findStartGuardPattern(BitArray row) throws NotFoundException {
+
+        int nextStart = 0;
+
+        while (true) {
+
+            int[] range = findGuardPattern(row, nextStart);
+
+            int start = range[0];
+
+            nextStart = range[1];
+
+            // The guard has to be preceded by a quiet zone at least as wide as itself
+            int quietStart = start - (nextStart - start);
+
+            if (quietStart >= 0 && row.isRange(quietStart, start, false))
+
+                return range;
+
+        }
+
+    }
+
+    private int[] findGuardPattern(BitArray row, int rowOffset) throws NotFoundException {
+
+        Arrays.fill(counters, 0);
+
+        int width = row.getSize();
+
+        int offset = row.getNextSet(rowOffset);
+
+        int counterPosition = 0;
+
+        int patternStart = offset;
+
+        boolean isWhite = false;
+
+        for (int x = offset; x < width; x++) {
+
+            if (row.get(x) != isWhite) {
+
+                counters[counterPosition]++;
+
+                continue;
+
+            }
+
+            if (counterPosition == counters.length - 1) {
+
+                if (patternMatchVariance(counters, START_END_PATTERN, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE)
+
+                    return new int[]{patternStart, x};
+
+                patternStart += counters[0] + counters[1];
+
+                System.arraycopy(counters, 2, counters, 0, counterPosition - 1);
+
+                counters[counterPosition - 1] = 0;
+
+                counters[counterPosition] = 0;
+
+                counterPosition--;
+
+            } else {
+
+                counterPosition++;
+
+            }
+
+            counters[counterPosition] = 1;
+
+            isWhite = !isWhite;
+
+        }
+
+        throw NotFoundException.getNotFoundInstance();
+
+    }
+
+    @Override
+    public void reset() {
+
+        for (UPCEANReader reader : readers)
+
+            reader.reset();
+
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram --
+ * Lock-free histogram of durations, laid out like an HdrHistogram: values are kept in
+ * microseconds, every value below 32 has its own bucket and every power of two above that is
+ * split into 16 buckets, so any recorded value is off by at most 1/16th. Recording is a few
+ * atomic adds with no allocation, so any number of threads can record at once on the hot path.
+ * Values of 2^35 microseconds (about 9.5 hours) or more all land in the last bucket.
+ * @author Tyler Sizse
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final int HALF_SUB_COUNT = SUB_COUNT / 2;
+
+    private static final int MAX_EXPONENT = 34;
+
+    static final int BUCKET_COUNT = SUB_COUNT + (MAX_EXPONENT - SUB_BITS + 1) * HALF_SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * record -- Takes 1 parameter.
+     * @param nanos The duration to record, negative durations count as 0
+     */
+    public void record(long nanos) {
+
+        nanos = Math.max(0L, nanos);
+
+        buckets.incrementAndGet(bucketOf(nanos / 1000L));
+
+        totalNanos.addAndGet(nanos);
+
+        for (long max = maxNanos.get(); nanos > max; max = maxNanos.get())
+
+            if (maxNanos.compareAndSet(max, nanos))
+
+                break;
+
+    }
+
+    /**
+     * snapshot -- Takes 0 parameters.
+     * Copies the histogram. Values recorded while copying may or may not be included.
+     *
+     * @return The copy
+     */
+    public Snapshot snapshot() {
+
+        long[] counts = new long[BUCKET_COUNT];
+
+        long count = 0L;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+
+            count += counts[i] = buckets.get(i);
+
+        return new Snapshot(counts, count, totalNanos.get(), maxNanos.get());
+
+    }
+
+    /**
+     * reset -- Takes 0 parameters.
+     * Forgets every recorded value. Values recorded at the same time may partly survive.
+     */
+    public void reset() {
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+
+            buckets.set(i, 0L);
+
+        totalNanos.set(0L);
+
+        maxNanos.set(0L);
+
+    }
+
+    static int bucketOf(long micros) {
+
+        if (micros < SUB_COUNT)
+
+            return (int) micros;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+
+        if (exponent > MAX_EXPONENT)
+
+            return BUCKET_COUNT - 1;
+
+        int sub = (int) (micros >>> (exponent - SUB_BITS + 1)) & (HALF_SUB_COUNT - 1);
+
+        return SUB_COUNT + (exponent - SUB_BITS) * HALF_SUB_COUNT + sub;
+
+    }
+
+    static long lowestMicrosOf(int bucket) {
+
+        if (bucket < SUB_COUNT)
+
+            return bucket;
+
+        int exponent = SUB_BITS + (bucket - SUB_COUNT) / HALF_SUB_COUNT;
+
+        int sub = (bucket - SUB_COUNT) % HALF_SUB_COUNT;
+
+        return (long) (HALF_SUB_COUNT + sub) << (exponent - SUB_BITS + 1);
+
+    }
+
+    /**
+     * Immutable copy of a LatencyHistogram. All durations are in nanoseconds.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+
+            this.counts = counts;
+
+            this.count = count;
+
+            this.totalNanos = totalNanos;
+
+            this.maxNanos = maxNanos;
+
+        }
+
+        public long getCount() { return count; }
+
+        public long getMax() { return maxNanos; }
+
+        public long getMean() { return count > 0 ? totalNanos / count : 0L; }
+
+        /**
+         * getPercentile -- Takes 1 parameter.
+         * @param percentile The percentile to look up, from 0 to 100
+         * @return The duration that percentile of the recorded values stayed within, to within
+         * 1/16th, or 0 if nothing was recorded
+         */
+        public long getPercentile(double percentile) {
+
+            if (count == 0L)
+
+                return 0L;
+
+            long rank = Math.max(1L, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count));
+
+            long seen = 0L;
+
+            for (int i = 0; i < counts.length; i++) {
+
+                seen += counts[i];
+
+                // The middle of the bucket, but never above the largest value actually recorded
+                if (seen >= rank) {
+
+                    long low = lowestMicrosOf(i);
+                    long high = i + 1 < counts.length ? lowestMicrosOf(i + 1) : low;
+
+                    return Math.min(maxNanos, (low + high) * 1000L / 2L);
+
+                }
+
+            }
+
+            return maxNanos;
+
+        }
+
+        @Override
+        public String toString() {
+
+            return String.format(Locale.US, "count=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms", count,
+                    getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(99) / 1e6, maxNanos / 1e6);
+
+        }
+
+    }
+
+}
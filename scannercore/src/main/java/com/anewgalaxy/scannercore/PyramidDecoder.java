@@ -0,0 +1,213 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PyramidDecoder --
+ * Decodes coarse to fine. A frame is first decoded downsampled, read straight from the preview
+ * buffer by a FramingRectLuminanceSource without copying it. Large barcodes decode right there at
+ * a fraction of the cost. When the coarse pass only finds possible result points the frame is
+ * decoded again at full resolution, but only in a padded box around those points. When it finds
+ * no points at all, or the decoder only reads 1D formats, which rarely report any, the whole frame
+ * is decoded again at full resolution.
+ *
+ * Small barcodes may not show up at all at the coarse level, so every fullDecodeInterval-th frame
+ * is still decoded whole at full resolution. Result points are always in the coordinates of the
+ * full resolution source. The decoder itself holds no per-frame state, one instance can be shared
+ * between threads.
+ * @author Tyler Sizse
+ */
+public final class PyramidDecoder {
+
+    public static final int DEFAULT_FACTOR = 2;
+
+    public static final int DEFAULT_FULL_DECODE_INTERVAL = 4;
+
+    // Below this many pixels a side the coarse level isn't worth it
+    private static final int MIN_COARSE_DIMENSION = 120;
+
+    // The box around the candidate points grows by half its size, and by at least this much
+    private static final int MIN_PADDING = 48;
+
+    /**
+     * Decodes one level of the pyramid, usually by handing it to a zxing Reader or a Decoder.
+     */
+    public interface Step {
+
+        /**
+         * decode -- Takes 2 parameters.
+         * @param source               The source to decode
+         * @param possibleResultPoints Receives the possible result points found while decoding, in
+         *                             the coordinates of the source
+         * @return The result, or null if nothing was found
+         */
+        Result decode(LuminanceSource source, List<ResultPoint> possibleResultPoints);
+
+    }
+
+    private final int factor;
+
+    private final int fullDecodeInterval;
+
+    private final AtomicLong frames = new AtomicLong();
+
+    public PyramidDecoder() { this(DEFAULT_FACTOR, DEFAULT_FULL_DECODE_INTERVAL); }
+
+    /**
+     * @param factor             How much the coarse level is downsampled in each direction, at least 2
+     * @param fullDecodeInterval Every how many frames one is decoded whole at full resolution, or 0
+     *                           to never do so
+     * @throws IllegalArgumentException If the factor is less than 2 or the interval negative
+     */
+    public PyramidDecoder(int factor, int fullDecodeInterval) {
+
+        if (factor < 2 || fullDecodeInterval < 0)
+
+            throw new IllegalArgumentException("Invalid pyramid: factor " + factor + ", full decode interval "
+                    + fullDecodeInterval);
+
+        this.factor = factor;
+
+        this.fullDecodeInterval = fullDecodeInterval;
+
+    }
+
+    public int getFactor() { return factor; }
+
+    public int getFullDecodeInterval() { return fullDecodeInterval; }
+
+    /**
+     * decode -- Takes 3 parameters.
+     * @param source               The full resolution frame
+     * @param step                 Decodes each level
+     * @param possibleResultPoints Receives the possible result points of every level, in the
+     *                             coordinates of the source
+     * @return The result in the coordinates of the source, or null if nothing was found
+     */
+    public Result decode(FramingRectLuminanceSource source, Step step, List<ResultPoint> possibleResultPoints) {
+
+        return decode(source, step, possibleResultPoints, false);
+
+    }
+
+    /**
+     * decode -- Takes 4 parameters.
+     * @param source               The full resolution frame
+     * @param step                 Decodes each level
+     * @param possibleResultPoints Receives the possible result points of every level, in the
+     *                             coordinates of the source
+     * @param oneDOnly             Whether the step only reads 1D formats, so a miss at the coarse
+     *                             level is always retried on the whole frame
+     * @return The result in the coordinates of the source, or null if nothing was found
+     */
+    public Result decode(FramingRectLuminanceSource source, Step step, List<ResultPoint> possibleResultPoints,
+                         boolean oneDOnly) {
+
+        long frame = frames.getAndIncrement();
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        if ((fullDecodeInterval > 0 && frame % fullDecodeInterval == 0)
+                || Math.min(width, height) / factor < MIN_COARSE_DIMENSION)
+
+            return step.decode(source, possibleResultPoints);
+
+        int first = possibleResultPoints.size();
+
+        Result coarse = step.decode(source.downsample(factor), possibleResultPoints);
+
+        float left = width;
+        float top = height;
+        float right = 0f;
+        float bottom = 0f;
+
+        for (int i = first; i < possibleResultPoints.size(); i++) {
+
+            ResultPoint point = transform(possibleResultPoints.get(i), factor, 0, 0);
+
+            possibleResultPoints.set(i, point);
+
+            left = Math.min(left, point.getX());
+            top = Math.min(top, point.getY());
+            right = Math.max(right, point.getX());
+            bottom = Math.max(bottom, point.getY());
+
+        }
+
+        if (coarse != null)
+
+            return transform(coarse, factor, 0, 0);
+
+        // Thin bars blur away when downsampled, and without points there is no box to look in
+        if (oneDOnly || right < left)
+
+            return step.decode(source, possibleResultPoints);
+
+        int padding = (int) Math.max(MIN_PADDING, Math.max(right - left, bottom - top) / 2f) + factor;
+
+        int cropLeft = Math.max(0, (int) left - padding);
+        int cropTop = Math.max(0, (int) top - padding);
+        int cropRight = Math.min(width, (int) right + padding);
+        int cropBottom = Math.min(height, (int) bottom + padding);
+
+        int refined = possibleResultPoints.size();
+
+        Result fine = step.decode(source.crop(cropLeft, cropTop, cropRight - cropLeft, cropBottom - cropTop),
+                possibleResultPoints);
+
+        for (int i = refined; i < possibleResultPoints.size(); i++)
+
+            possibleResultPoints.set(i, transform(possibleResultPoints.get(i), 1, cropLeft, cropTop));
+
+        return fine != null ? transform(fine, 1, cropLeft, cropTop) : null;
+
+    }
+
+    private static ResultPoint transform(ResultPoint point, int scale, int left, int top) {
+
+        return point != null ? new ResultPoint(point.getX() * scale + left, point.getY() * scale + top) : null;
+
+    }
+
+    private static Result transform(Result result, int scale, int left, int top) {
+
+        ResultPoint[] points = result.getResultPoints();
+
+        ResultPoint[] transformed = points != null ? new ResultPoint[points.length] : null;
+
+        for (int i = 0; transformed != null && i < points.length; i++)
+
+            transformed[i] = transform(points[i], scale, left, top);
+
+        Result moved = new Result(result.getText(), result.getRawBytes(), result.getNumBits(), transformed,
+                result.getBarcodeFormat(), result.getTimestamp());
+
+        moved.putAllMetadata(result.getResultMetadata());
+
+        return moved;
+
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.util.List;
+
+/**
+ * RegionTracker --
+ * Narrows decoding down to where a barcode was last seen. The possible result points a decode
+ * reports are a rough location of a barcode long before it decodes, so the frames after one that
+ * showed them are only decoded in a padded box around those points, which is a fraction of the
+ * work of the whole frame. Each decode that reports points moves the box along with them, and
+ * after maxMisses decodes of the box without any the tracker falls back to the whole frame.
+ *
+ * Result points are always in the coordinates of the whole source. The tracker follows one
+ * barcode at a time and can be shared between threads, frames decoded out of order only move the
+ * box to where the barcode was a frame earlier.
+ * @author Tyler Sizse
+ */
+public final class RegionTracker {
+
+    public static final int DEFAULT_MAX_MISSES = 3;
+
+    // The box around the points grows by half its size, by an eighth of the frame, and by at
+    // least this much, so a barcode only partly found is still inside it
+    private static final int MIN_PADDING = 48;
+
+    private volatile int maxMisses;
+
+    // Guarded by this, the box is only valid while tracking and for frames of the same size
+    private boolean tracking;
+
+    private int sourceWidth;
+    private int sourceHeight;
+
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+
+    private int misses;
+
+    public RegionTracker() { this(DEFAULT_MAX_MISSES); }
+
+    /**
+     * @param maxMisses After how many decodes of the box without possible result points the whole
+     *                  frame is decoded again
+     * @throws IllegalArgumentException If maxMisses is less than 1
+     */
+    public RegionTracker(int maxMisses) { setMaxMisses(maxMisses); }
+
+    /**
+     * setMaxMisses -- Takes 1 parameter.
+     * @param maxMisses After how many decodes of the box without possible result points the whole
+     *                  frame is decoded again
+     * @throws IllegalArgumentException If maxMisses is less than 1
+     */
+    public void setMaxMisses(int maxMisses) {
+
+        if (maxMisses < 1)
+
+            throw new IllegalArgumentException("Max misses must be at least 1, was " + maxMisses);
+
+        this.maxMisses = maxMisses;
+
+    }
+
+    public int getMaxMisses() { return maxMisses; }
+
+    /**
+     * decode -- Takes 3 parameters.
+     * @param source               The whole frame, the box is only used if it supports cropping
+     * @param step                 Decodes the box or the whole frame
+     * @param possibleResultPoints Receives the possible result points, in the coordinates of the
+     *                             source
+     * @return The result in the coordinates of the source, or null if nothing was found
+     */
+    public Result decode(LuminanceSource source, PyramidDecoder.Step step, List<ResultPoint> possibleResultPoints) {
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        int cropLeft = 0;
+        int cropTop = 0;
+        int cropRight = width;
+        int cropBottom = height;
+
+        boolean tracked;
+
+        synchronized (this) {
+
+            tracked = tracking && width == sourceWidth && height == sourceHeight && source.isCropSupported();
+
+            if (tracked) {
+
+                cropLeft = left;
+                cropTop = top;
+                cropRight = right;
+                cropBottom = bottom;
+
+            }
+
+        }
+
+        int first = possibleResultPoints.size();
+
+        Result result = step.decode(tracked ? source.crop(cropLeft, cropTop, cropRight - cropLeft,
+                cropBottom - cropTop) : source, possibleResultPoints);
+
+        for (int i = first; tracked && i < possibleResultPoints.size(); i++)
+
+            possibleResultPoints.set(i, translate(possibleResultPoints.get(i), cropLeft, cropTop));
+
+        if (result != null && tracked)
+
+            result = translate(result, cropLeft, cropTop);
+
+        update(width, height, tracked, result, possibleResultPoints.subList(first, possibleResultPoints.size()));
+
+        return result;
+
+    }
+
+    /**
+     * getRegion -- Takes 0 parameters.
+     * @return The box the next frame is decoded in as {left, top, right, bottom} in source
+     * coordinates, or null while the whole frame is decoded
+     */
+    public synchronized int[] getRegion() { return tracking ? new int[]{left, top, right, bottom} : null; }
+
+    /**
+     * reset -- Takes 0 parameters.
+     * Stops tracking, so the next frame is decoded whole.
+     */
+    public synchronized void reset() {
+
+        tracking = false;
+
+        misses = 0;
+
+    }
+
+    private synchronized void update(int width, int height, boolean tracked, Result result, List<ResultPoint> points) {
+
+        float minX = width;
+        float minY = height;
+        float maxX = -1f;
+        float maxY = -1f;
+
+        ResultPoint[] resultPoints = result != null ? result.getResultPoints() : null;
+
+        int count = points.size() + (resultPoints != null ? resultPoints.length : 0);
+
+        for (int i = 0; i < count; i++) {
+
+            ResultPoint point = i < points.size() ? points.get(i) : resultPoints[i - points.size()];
+
+            if (point == null)
+
+                continue;
+
+            minX = Math.min(minX, point.getX());
+            minY = Math.min(minY, point.getY());
+            maxX = Math.max(maxX, point.getX());
+            maxY = Math.max(maxY, point.getY());
+
+        }
+
+        if (maxX >= minX) {
+
+            int padding = (int) Math.max(Math.max(maxX - minX, maxY - minY) / 2f,
+                    Math.max(MIN_PADDING, Math.min(width, height) / 8));
+
+            left = Math.max(0, (int) minX - padding);
+            top = Math.max(0, (int) minY - padding);
+            right = Math.min(width, (int) Math.ceil(maxX) + padding);
+            bottom = Math.min(height, (int) Math.ceil(maxY) + padding);
+
+            sourceWidth = width;
+            sourceHeight = height;
+
+            tracking = right > left && bottom > top;
+
+            misses = 0;
+
+        } else if (tracked && tracking && ++misses >= maxMisses) {
+
+            // Lost it, back to the whole frame
+            reset();
+
+        }
+
+    }
+
+    static ResultPoint translate(ResultPoint point, int left, int top) {
+
+        return point != null ? new ResultPoint(point.getX() + left, point.getY() + top) : null;
+
+    }
+
+    static Result translate(Result result, int left, int top) {
+
+        ResultPoint[] points = result.getResultPoints();
+
+        ResultPoint[] translated = points != null ? new ResultPoint[points.length] : null;
+
+        for (int i = 0; translated != null && i < points.length; i++)
+
+            translated[i] = translate(points[i], left, top);
+
+        Result moved = new Result(result.getText(), result.getRawBytes(), result.getNumBits(), translated,
+                result.getBarcodeFormat(), result.getTimestamp());
+
+        moved.putAllMetadata(result.getResultMetadata());
+
+        return moved;
+
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResultPointRing --
+ * Single producer, single consumer ring of result points, kept as primitive x and y coordinates
+ * with the time each point was found. The producer offers points from the decode callback path,
+ * the consumer drains them on the UI thread and visits every point still younger than a given
+ * age, so points can fade by how long ago they were found rather than by how often they were
+ * drawn. Neither side takes a lock or allocates anything once the ring is built.
+ *
+ * Points the consumer has drained are kept on its side of the ring until they grow too old, or
+ * are pushed out by newer ones once capacity points are alive. While the consumer falls behind
+ * by capacity points, the producer drops new ones.
+ * @author Tyler Sizse
+ */
+public final class ResultPointRing {
+
+    /**
+     * Visits the points that are alive.
+     */
+    public interface Visitor {
+
+        /**
+         * visit -- Takes 3 parameters.
+         * @param x   The x coordinate of the point
+         * @param y   The y coordinate of the point
+         * @param age How long ago the point was found, in the units of the timestamps
+         */
+        void visit(float x, float y, long age);
+
+    }
+
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final int mask;
+
+    // Offered by the producer, not yet drained by the consumer
+    private final float[] pendingX;
+    private final float[] pendingY;
+    private final long[] pendingTime;
+
+    // Only ever written by the producer, and by the consumer respectively
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Drained by the consumer and only ever touched by it
+    private final float[] liveX;
+    private final float[] liveY;
+    private final long[] liveTime;
+
+    private long liveStart;
+    private long liveEnd;
+
+    public ResultPointRing() { this(DEFAULT_CAPACITY); }
+
+    /**
+     * @param capacity How many points the ring holds on either side, rounded up to a power of two
+     * @throws IllegalArgumentException If capacity is less than 1
+     */
+    public ResultPointRing(int capacity) {
+
+        if (capacity < 1)
+
+            throw new IllegalArgumentException("Capacity must be 1 or more, was " + capacity);
+
+        int size = Integer.highestOneBit(capacity);
+
+        if (size < capacity)
+
+            size <<= 1;
+
+        mask = size - 1;
+
+        pendingX = new float[size];
+        pendingY = new float[size];
+        pendingTime = new long[size];
+
+        liveX = new float[size];
+        liveY = new float[size];
+        liveTime = new long[size];
+
+    }
+
+    /**
+     * getCapacity -- Takes 0 parameters.
+     * @return How many points the ring holds on either side
+     */
+    public int getCapacity() { return mask + 1; }
+
+    /**
+     * offer -- Takes 3 parameters.
+     * Only to be called by the producer, points are expected in the order they were found.
+     *
+     * @param x    The x coordinate of the point
+     * @param y    The y coordinate of the point
+     * @param time When the point was found, System.nanoTime() or any other monotonic clock
+     * @return false if the consumer has fallen behind and the point was dropped
+     */
+    public boolean offer(float x, float y, long time) {
+
+        long h = head.get();
+
+        if (h - tail.get() > mask)
+
+            return false;
+
+        int index = (int) (h & mask);
+
+        pendingX[index] = x;
+        pendingY[index] = y;
+        pendingTime[index] = time;
+
+        // Publishes the point to the consumer
+        head.lazySet(h + 1);
+
+        return true;
+
+    }
+
+    /**
+     * forEach -- Takes 3 parameters.
+     * Only to be called by the consumer. Drains the points offered since the last call and
+     * forgets those older than maxAge, then visits the rest from oldest to newest.
+     *
+     * @param now     The current time, on the clock of the timestamps
+     * @param maxAge  How old a point may be and still be visited
+     * @param visitor Called once for every point that is alive
+     * @return How many points were visited
+     */
+    public int forEach(long now, long maxAge, Visitor visitor) {
+
+        drain();
+
+        while (liveStart < liveEnd && now - liveTime[(int) (liveStart & mask)] > maxAge)
+
+            liveStart++;
+
+        for (long n = liveStart; n < liveEnd; n++) {
+
+            int index = (int) (n & mask);
+
+            visitor.visit(liveX[index], liveY[index], now - liveTime[index]);
+
+        }
+
+        return (int) (liveEnd - liveStart);
+
+    }
+
+    /**
+     * clear -- Takes 0 parameters.
+     * Only to be called by the consumer. Forgets every point, including those not drained yet.
+     */
+    public void clear() {
+
+        tail.lazySet(head.get());
+
+        liveStart = liveEnd;
+
+    }
+
+    private void drain() {
+
+        long t = tail.get();
+
+        long h = head.get();
+
+        for (; t < h; t++) {
+
+            int from = (int) (t & mask);
+
+            int to = (int) (liveEnd & mask);
+
+            liveX[to] = pendingX[from];
+            liveY[to] = pendingY[from];
+            liveTime[to] = pendingTime[from];
+
+            // Once full, the newest point pushes out the oldest
+            if (++liveEnd - liveStart > mask + 1)
+
+                liveStart++;
+
+        }
+
+        // Hands the drained slots back to the producer
+        tail.lazySet(h);
+
+    }
+
+}
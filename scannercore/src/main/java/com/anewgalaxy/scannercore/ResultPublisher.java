@@ -0,0 +1,336 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+
+/**
+ * ResultPublisher --
+ * Streams results to any number of subscribers, each pulling them at its own pace the way
+ * Reactive Streams do: a subscriber is only handed as many items as it has requested. Items it
+ * hasn't requested yet wait in a bounded buffer of its own, and when that is full its overflow
+ * policy decides what gives, so publishing never waits for a subscriber and one that falls behind
+ * never holds up the others or whatever publishes.
+ *
+ * A subscriber is never called from two threads at once, and gets its items in the order they
+ * were published. It is called on the executor it subscribed with, or straight from publish() and
+ * request() without one. Safe to use from any thread.
+ * @author Tyler Sizse
+ */
+public final class ResultPublisher<T> {
+
+    /**
+     * What happens to an item published while a subscriber's buffer is full.
+     */
+    public enum OverflowPolicy {
+
+        // Make room by dropping the item that has waited longest, the subscriber gets the latest
+        DROP_OLDEST,
+
+        // Drop the item just published, the subscriber gets what it fell behind on first
+        DROP_NEWEST,
+
+        // Merge the item just published into the newest waiting one with the coalescer, by
+        // default the newer item simply replaces it
+        COALESCE
+
+    }
+
+    /**
+     * Receives the items of a ResultPublisher.
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * onSubscribe -- Takes 1 parameter.
+         * Called once before any item, nothing is handed over until items are requested.
+         *
+         * @param subscription Requests items and cancels the subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * onNext -- Takes 1 parameter.
+         * @param item The next item, one per item requested
+         */
+        void onNext(T item);
+
+    }
+
+    /**
+     * A subscriber's link to the publisher.
+     */
+    public interface Subscription {
+
+        /**
+         * request -- Takes 1 parameter.
+         * May be called from onNext(), or from any other thread.
+         *
+         * @param n How many more items the subscriber is ready for, Long.MAX_VALUE for all of them
+         * @throws IllegalArgumentException If n is 0 or less
+         */
+        void request(long n);
+
+        /**
+         * cancel -- Takes 0 parameters.
+         * Stops the items, ones already on their way may still arrive.
+         */
+        void cancel();
+
+        /**
+         * getDroppedCount -- Takes 0 parameters.
+         * @return How many items were dropped or coalesced because the subscriber fell behind
+         */
+        long getDroppedCount();
+
+    }
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final List<SubscriptionImpl> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final BinaryOperator<T> coalescer;
+
+    public ResultPublisher() { this((older, newer) -> newer); }
+
+    /**
+     * @param coalescer Merges the newest waiting item (first) with a newly published one (second)
+     *                  for subscribers that coalesce
+     */
+    public ResultPublisher(BinaryOperator<T> coalescer) { this.coalescer = coalescer; }
+
+    /**
+     * subscribe -- Takes 3 parameters.
+     * The subscriber is called straight from the threads calling publish() and request().
+     *
+     * @see #subscribe(Subscriber, OverflowPolicy, int, Executor)
+     */
+    public Subscription subscribe(Subscriber<? super T> subscriber, OverflowPolicy policy, int capacity) {
+
+        return subscribe(subscriber, policy, capacity, Runnable::run);
+
+    }
+
+    /**
+     * subscribe -- Takes 4 parameters.
+     * @param subscriber The subscriber, its onSubscribe() is called before this returns
+     * @param policy     What happens to items published while its buffer is full
+     * @param capacity   How many items may wait for the subscriber to request them, at least 1
+     * @param executor   Calls the subscriber, one task at a time per subscriber
+     * @return The subscription, also handed to onSubscribe()
+     * @throws IllegalArgumentException If the capacity is less than 1
+     */
+    public Subscription subscribe(Subscriber<? super T> subscriber, OverflowPolicy policy, int capacity,
+                                  Executor executor) {
+
+        if (capacity < 1)
+
+            throw new IllegalArgumentException("Capacity must be at least 1, was " + capacity);
+
+        SubscriptionImpl subscription = new SubscriptionImpl(subscriber, policy, capacity, executor);
+
+        subscriptions.add(subscription);
+
+        subscriber.onSubscribe(subscription);
+
+        return subscription;
+
+    }
+
+    /**
+     * publish -- Takes 1 parameter.
+     * Hands the item to every subscriber that has requested one, and buffers it for the rest.
+     *
+     * @param item The item to publish
+     */
+    public void publish(T item) {
+
+        for (SubscriptionImpl subscription : subscriptions)
+
+            subscription.offer(item);
+
+    }
+
+    /**
+     * getSubscriberCount -- Takes 0 parameters.
+     * @return How many subscribers haven't cancelled yet
+     */
+    public int getSubscriberCount() { return subscriptions.size(); }
+
+    private final class SubscriptionImpl implements Subscription {
+
+        private final Subscriber<? super T> subscriber;
+
+        private final OverflowPolicy policy;
+
+        private final int capacity;
+
+        private final Executor executor;
+
+        // Guarded by itself
+        private final ArrayDeque<T> buffer = new ArrayDeque<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        // How many times a drain was asked for, only the caller that raises it from 0 drains
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        SubscriptionImpl(Subscriber<? super T> subscriber, OverflowPolicy policy, int capacity, Executor executor) {
+
+            this.subscriber = subscriber;
+
+            this.policy = policy;
+
+            this.capacity = capacity;
+
+            this.executor = executor;
+
+        }
+
+        void offer(T item) {
+
+            if (cancelled)
+
+                return;
+
+            synchronized (buffer) {
+
+                if (buffer.size() < capacity) {
+
+                    buffer.addLast(item);
+
+                } else {
+
+                    dropped.incrementAndGet();
+
+                    switch (policy) {
+
+                        case DROP_OLDEST:
+                            buffer.pollFirst();
+                            buffer.addLast(item);
+                            break;
+
+                        case COALESCE:
+                            buffer.addLast(coalescer.apply(buffer.pollLast(), item));
+                            break;
+
+                        default:
+                            // DROP_NEWEST, the item is not buffered at all
+                            break;
+
+                    }
+
+                }
+
+            }
+
+            schedule();
+
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0L)
+
+                throw new IllegalArgumentException("Must request at least 1 item, requested " + n);
+
+            // Adds up to Long.MAX_VALUE at most, which stands for everything
+            for (long current = requested.get(); current != Long.MAX_VALUE; current = requested.get())
+
+                if (requested.compareAndSet(current, current + n < 0L ? Long.MAX_VALUE : current + n))
+
+                    break;
+
+            schedule();
+
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+
+            subscriptions.remove(this);
+
+            synchronized (buffer) {
+
+                buffer.clear();
+
+            }
+
+        }
+
+        @Override
+        public long getDroppedCount() { return dropped.get(); }
+
+        private void schedule() {
+
+            if (pending.getAndIncrement() == 0)
+
+                executor.execute(this::drain);
+
+        }
+
+        // Only ever runs on one thread at a time, calls made meanwhile are picked up before it ends
+        private void drain() {
+
+            int missed = 1;
+
+            do {
+
+                while (!cancelled && requested.get() > 0L) {
+
+                    T item;
+
+                    synchronized (buffer) {
+
+                        item = buffer.pollFirst();
+
+                    }
+
+                    if (item == null)
+
+                        break;
+
+                    if (requested.get() != Long.MAX_VALUE)
+
+                        requested.decrementAndGet();
+
+                    subscriber.onNext(item);
+
+                }
+
+                missed = pending.addAndGet(-missed);
+
+            } while (missed != 0);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.util.List;
+
+/**
+ * ScanLineDecoder --
+ * Decodes only a thin band of rows across the middle of a frame, where the laser tells the user
+ * to aim. The 1D readers scan a frame row by row, up to 15 rows spread over its whole height or
+ * every row when trying harder; in a band they only get the few rows right around the laser. Only
+ * worth it when the decoder has nothing but 1D readers, a 2D barcode never fits in the band.
+ *
+ * Result points are always in the coordinates of the whole source. Can be shared between threads.
+ * @author Tyler Sizse
+ */
+public final class ScanLineDecoder {
+
+    public static final int DEFAULT_ROWS = 9;
+
+    private volatile int rows;
+
+    public ScanLineDecoder() { this(DEFAULT_ROWS); }
+
+    /**
+     * @param rows How many rows around the middle of the frame are decoded
+     * @throws IllegalArgumentException If rows is less than 1
+     */
+    public ScanLineDecoder(int rows) { setRows(rows); }
+
+    /**
+     * setRows -- Takes 1 parameter.
+     * @param rows How many rows around the middle of the frame are decoded
+     * @throws IllegalArgumentException If rows is less than 1
+     */
+    public void setRows(int rows) {
+
+        if (rows < 1)
+
+            throw new IllegalArgumentException("Rows must be at least 1, was " + rows);
+
+        this.rows = rows;
+
+    }
+
+    public int getRows() { return rows; }
+
+    /**
+     * decode -- Takes 3 parameters.
+     * @param source               The whole frame, decoded whole if it doesn't support cropping
+     * @param step                 Decodes the band
+     * @param possibleResultPoints Receives the possible result points, in the coordinates of the
+     *                             source
+     * @return The result in the coordinates of the source, or null if nothing was found
+     */
+    public Result decode(LuminanceSource source, PyramidDecoder.Step step, List<ResultPoint> possibleResultPoints) {
+
+        int height = source.getHeight();
+
+        int band = Math.min(rows, height);
+
+        if (band == height || !source.isCropSupported())
+
+            return step.decode(source, possibleResultPoints);
+
+        // Centred on the middle row, which is where the laser is drawn
+        int top = height / 2 - band / 2;
+
+        int first = possibleResultPoints.size();
+
+        Result result = step.decode(source.crop(0, top, source.getWidth(), band), possibleResultPoints);
+
+        for (int i = first; i < possibleResultPoints.size(); i++)
+
+            possibleResultPoints.set(i, RegionTracker.translate(possibleResultPoints.get(i), 0, top));
+
+        return result != null ? RegionTracker.translate(result, 0, top) : null;
+
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * ScanMetrics --
+ * Snapshot of where the time went between camera frames arriving and results reaching the app,
+ * taken by a ScanMetricsRecorder. Every stage has its own latency histogram, as does every
+ * binarizer along with how often it found a barcode. The frame counters add up: every frame seen
+ * was either dropped, rejected by the FrameQualityGate, skipped as unchanged, decoded or failed,
+ * or is still being decoded.
+ * @author Tyler Sizse
+ */
+public final class ScanMetrics {
+
+    /**
+     * The stages a frame goes through, each with its own latency histogram.
+     */
+    public enum Stage {
+
+        // From the camera handing over the frame until a worker starts on it
+        FRAME_WAIT,
+
+        // Wrapping, cropping and rotating the frame into a luminance source
+        LUMINANCE,
+
+        // Checking the frame with the FrameQualityGate and the UnchangedFrameFilter, when enabled
+        QUALITY_GATE,
+
+        // Turning luminance into black and white, only measured for decoders that report it
+        BINARIZE,
+
+        // Running the readers, without binarizing when that is measured apart
+        DECODE,
+
+        // From a result being posted until the main thread runs it
+        DISPATCH,
+
+        // From the first frame the barcode was seen in until its result reached the main thread
+        END_TO_END
+
+    }
+
+    private final LatencyHistogram.Snapshot[] stages;
+
+    private final LatencyHistogram.Snapshot[] binarizers;
+
+    private final long[] binarizerHits;
+
+    private final long framesSeen;
+
+    private final long framesDecoded;
+
+    private final long framesDropped;
+
+    private final long[] framesRejected;
+
+    private final long framesUnchanged;
+
+    private final long framesFailed;
+
+    ScanMetrics(LatencyHistogram.Snapshot[] stages, LatencyHistogram.Snapshot[] binarizers, long[] binarizerHits,
+                long framesSeen, long framesDecoded, long framesDropped, long[] framesRejected, long framesUnchanged,
+                long framesFailed) {
+
+        this.stages = stages;
+
+        this.binarizers = binarizers;
+
+        this.binarizerHits = binarizerHits;
+
+        this.framesSeen = framesSeen;
+
+        this.framesDecoded = framesDecoded;
+
+        this.framesDropped = framesDropped;
+
+        this.framesRejected = framesRejected;
+
+        this.framesUnchanged = framesUnchanged;
+
+        this.framesFailed = framesFailed;
+
+    }
+
+    /**
+     * getStage -- Takes 1 parameter.
+     * @param stage The stage to look up
+     * @return The latencies recorded for the stage, in nanoseconds
+     */
+    public LatencyHistogram.Snapshot getStage(Stage stage) { return stages[stage.ordinal()]; }
+
+    /**
+     * getBinarizer -- Takes 1 parameter.
+     * Only decoders that report their binarizing, like those of the HotFormatDecoderFactory,
+     * count towards the binarizers.
+     *
+     * @param type The binarizer to look up
+     * @return How long the binarizer took, one count per decode attempt that used it
+     */
+    public LatencyHistogram.Snapshot getBinarizer(BinarizerType type) { return binarizers[type.ordinal()]; }
+
+    /**
+     * getBinarizerHits -- Takes 1 parameter.
+     * @param type The binarizer to look up
+     * @return How many decode attempts with the binarizer found a barcode
+     */
+    public long getBinarizerHits(BinarizerType type) { return binarizerHits[type.ordinal()]; }
+
+    /**
+     * getBinarizerSuccessRate -- Takes 1 parameter.
+     * @param type The binarizer to look up
+     * @return The fraction of decode attempts with the binarizer that found a barcode, or 0 if it
+     * wasn't used
+     */
+    public float getBinarizerSuccessRate(BinarizerType type) {
+
+        long attempts = getBinarizer(type).getCount();
+
+        return attempts > 0 ? (float) getBinarizerHits(type) / attempts : 0f;
+
+    }
+
+    /**
+     * getFramesSeen -- Takes 0 parameters.
+     * @return How many frames the camera handed over
+     */
+    public long getFramesSeen() { return framesSeen; }
+
+    /**
+     * getFramesDecoded -- Takes 0 parameters.
+     * @return How many frames were decoded and held at least one barcode
+     */
+    public long getFramesDecoded() { return framesDecoded; }
+
+    /**
+     * getFramesDropped -- Takes 0 parameters.
+     * @return How many frames were skipped or evicted without being decoded
+     */
+    public long getFramesDropped() { return framesDropped; }
+
+    /**
+     * getFramesRejected -- Takes 0 parameters.
+     * @return How many frames the FrameQualityGate kept from being decoded
+     */
+    public long getFramesRejected() {
+
+        long total = 0L;
+
+        for (long rejected : framesRejected)
+
+            total += rejected;
+
+        return total;
+
+    }
+
+    /**
+     * getFramesRejected -- Takes 1 parameter.
+     * @param verdict The reason to look up, ACCEPTED is always 0
+     * @return How many frames the FrameQualityGate rejected for that reason
+     */
+    public long getFramesRejected(FrameQualityGate.Verdict verdict) { return framesRejected[verdict.ordinal()]; }
+
+    /**
+     * getFramesUnchanged -- Takes 0 parameters.
+     * @return How many frames were skipped because they looked just like the last failed one
+     */
+    public long getFramesUnchanged() { return framesUnchanged; }
+
+    /**
+     * getFramesFailed -- Takes 0 parameters.
+     * @return How many frames were decoded without finding a barcode, or failed with an error
+     */
+    public long getFramesFailed() { return framesFailed; }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder("frames seen=").append(framesSeen)
+                .append(" decoded=").append(framesDecoded)
+                .append(" dropped=").append(framesDropped)
+                .append(" rejected=").append(getFramesRejected())
+                .append(" unchanged=").append(framesUnchanged)
+                .append(" failed=").append(framesFailed);
+
+        for (Stage stage : Stage.values())
+
+            builder.append('\n').append(stage).append(": ").append(getStage(stage));
+
+        for (BinarizerType type : BinarizerType.values())
+
+            builder.append('\n').append(type).append(": ").append(getBinarizer(type))
+                    .append(" hits=").append(getBinarizerHits(type));
+
+        return builder.toString();
+
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ScanMetricsRecorder --
+ * Collects ScanMetrics from the decode pipeline. Every method is lock-free and allocation free,
+ * so it can stay switched on in production and be called from any thread.
+ *
+ * The end-to-end latency is measured from the first sighting of a barcode, the capture time of
+ * the first frame that showed possible result points or a result, until a result is delivered.
+ * A sighting that isn't followed by another one within SIGHTING_TIMEOUT_NS is forgotten, the
+ * barcode is assumed to have left the frame.
+ * @author Tyler Sizse
+ */
+public final class ScanMetricsRecorder {
+
+    public static final long SIGHTING_TIMEOUT_NS = 1_000_000_000L;
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[ScanMetrics.Stage.values().length];
+
+    private final LatencyHistogram[] binarizers = new LatencyHistogram[BinarizerType.values().length];
+
+    private final LongAdder[] binarizerHits = new LongAdder[BinarizerType.values().length];
+
+    private final LongAdder framesSeen = new LongAdder();
+
+    private final LongAdder framesDecoded = new LongAdder();
+
+    private final LongAdder framesDropped = new LongAdder();
+
+    private final LongAdder[] framesRejected = new LongAdder[FrameQualityGate.Verdict.values().length];
+
+    private final LongAdder framesUnchanged = new LongAdder();
+
+    private final LongAdder framesFailed = new LongAdder();
+
+    // Capture times in System.nanoTime(), 0 while no barcode has been sighted
+    private final AtomicLong firstSighting = new AtomicLong();
+
+    private final AtomicLong lastSighting = new AtomicLong();
+
+    public ScanMetricsRecorder() {
+
+        for (int i = 0; i < stages.length; i++)
+
+            stages[i] = new LatencyHistogram();
+
+        for (int i = 0; i < binarizers.length; i++) {
+
+            binarizers[i] = new LatencyHistogram();
+
+            binarizerHits[i] = new LongAdder();
+
+        }
+
+        for (int i = 0; i < framesRejected.length; i++)
+
+            framesRejected[i] = new LongAdder();
+
+    }
+
+    /**
+     * record -- Takes 2 parameters.
+     * @param stage The stage the time was spent in
+     * @param nanos How long the stage took
+     */
+    public void record(ScanMetrics.Stage stage, long nanos) { stages[stage.ordinal()].record(nanos); }
+
+    /**
+     * binarized -- Takes 3 parameters.
+     * Records one decode attempt with a binarizer.
+     *
+     * @param type  The binarizer the attempt used
+     * @param nanos How long the binarizer took
+     * @param found true if the attempt found a barcode
+     */
+    public void binarized(BinarizerType type, long nanos, boolean found) {
+
+        binarizers[type.ordinal()].record(nanos);
+
+        if (found)
+
+            binarizerHits[type.ordinal()].increment();
+
+    }
+
+    public void frameSeen() { framesSeen.increment(); }
+
+    public void frameDecoded() { framesDecoded.increment(); }
+
+    public void frameDropped() { framesDropped.increment(); }
+
+    public void frameFailed() { framesFailed.increment(); }
+
+    public void frameUnchanged() { framesUnchanged.increment(); }
+
+    /**
+     * frameRejected -- Takes 1 parameter.
+     * @param verdict Why the FrameQualityGate rejected the frame
+     */
+    public void frameRejected(FrameQualityGate.Verdict verdict) { framesRejected[verdict.ordinal()].increment(); }
+
+    /**
+     * sighted -- Takes 1 parameter.
+     * Notes that a barcode was seen in a frame. Frames may be reported out of order.
+     *
+     * @param capturedAt The System.nanoTime() the frame was captured at
+     */
+    public void sighted(long capturedAt) {
+
+        long last = lastSighting.get();
+
+        // After a long gap this is a new barcode, not the one sighted before
+        if (last == 0L || capturedAt - last > SIGHTING_TIMEOUT_NS)
+
+            firstSighting.set(capturedAt);
+
+        else
+
+            for (long first = firstSighting.get(); first == 0L || capturedAt < first; first = firstSighting.get())
+
+                if (firstSighting.compareAndSet(first, capturedAt))
+
+                    break;
+
+        for (; last == 0L || capturedAt > last; last = lastSighting.get())
+
+            if (lastSighting.compareAndSet(last, capturedAt))
+
+                break;
+
+    }
+
+    /**
+     * delivered -- Takes 1 parameter.
+     * Records the end-to-end latency of a result reaching the app, and starts waiting for the
+     * next barcode to be sighted.
+     *
+     * @param now The System.nanoTime() the result was delivered at
+     */
+    public void delivered(long now) {
+
+        long first = firstSighting.getAndSet(0L);
+
+        lastSighting.set(0L);
+
+        if (first != 0L)
+
+            record(ScanMetrics.Stage.END_TO_END, now - first);
+
+    }
+
+    /**
+     * snapshot -- Takes 0 parameters.
+     * @return The metrics recorded so far
+     */
+    public ScanMetrics snapshot() {
+
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[stages.length];
+
+        for (int i = 0; i < stages.length; i++)
+
+            snapshots[i] = stages[i].snapshot();
+
+        LatencyHistogram.Snapshot[] binarizerSnapshots = new LatencyHistogram.Snapshot[binarizers.length];
+
+        long[] hits = new long[binarizers.length];
+
+        for (int i = 0; i < binarizers.length; i++) {
+
+            binarizerSnapshots[i] = binarizers[i].snapshot();
+
+            hits[i] = binarizerHits[i].sum();
+
+        }
+
+        long[] rejected = new long[framesRejected.length];
+
+        for (int i = 0; i < framesRejected.length; i++)
+
+            rejected[i] = framesRejected[i].sum();
+
+        return new ScanMetrics(snapshots, binarizerSnapshots, hits, framesSeen.sum(), framesDecoded.sum(),
+                framesDropped.sum(), rejected, framesUnchanged.sum(), framesFailed.sum());
+
+    }
+
+    /**
+     * reset -- Takes 0 parameters.
+     * Starts over, forgetting every recorded latency and count.
+     */
+    public void reset() {
+
+        for (LatencyHistogram stage : stages)
+
+            stage.reset();
+
+        for (int i = 0; i < binarizers.length; i++) {
+
+            binarizers[i].reset();
+
+            binarizerHits[i].reset();
+
+        }
+
+        framesSeen.reset();
+
+        framesDecoded.reset();
+
+        framesDropped.reset();
+
+        framesFailed.reset();
+
+        framesUnchanged.reset();
+
+        for (LongAdder rejected : framesRejected)
+
+            rejected.reset();
+
+        firstSighting.set(0L);
+
+        lastSighting.set(0L);
+
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+/**
+ * ScanResult --
+ * Platform independent result of decoding one barcode: what was decoded, where it was found and
+ * which image it came from. The Android scanner hands out BarcodeResults instead, this is what
+ * headless decoding such as the BatchDecoder produces.
+ * @author Tyler Sizse
+ */
+public final class ScanResult {
+
+    private final String source;
+
+    private final Result result;
+
+    /**
+     * @param source Where the barcode was read from, for example a file path
+     * @param result The zxing result
+     */
+    public ScanResult(String source, Result result) {
+
+        if (result == null)
+
+            throw new NullPointerException("ScanResult needs a result");
+
+        this.source = source;
+
+        this.result = result;
+
+    }
+
+    public String getSource() { return source; }
+
+    public String getText() { return result.getText(); }
+
+    public BarcodeFormat getBarcodeFormat() { return result.getBarcodeFormat(); }
+
+    /**
+     * getResultPoints -- Takes 0 parameters.
+     * @return The points locating the barcode, in the coordinates of the decoded image
+     */
+    public ResultPoint[] getResultPoints() { return result.getResultPoints(); }
+
+    public byte[] getRawBytes() { return result.getRawBytes(); }
+
+    public long getTimestamp() { return result.getTimestamp(); }
+
+    public Result getResult() { return result; }
+
+    @Override
+    public String toString() { return source + ": [" + getText() + ", " + getBarcodeFormat() + "]"; }
+
+}
@@ -0,0 +1,82 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+
+/**
+ * SyntheticFrame --
+ * A generated preview frame in NV21, the layout Android cameras deliver, together with the
+ * barcode it was rendered from. Made by the SyntheticFrameGenerator or read back from a
+ * FrameCorpus.
+ * @author Tyler Sizse
+ */
+public final class SyntheticFrame {
+
+    private final BarcodeFormat format;
+
+    private final String contents;
+
+    private final int width;
+    private final int height;
+
+    private final byte[] yuvData;
+
+    /**
+     * @param format   The format of the barcode in the frame
+     * @param contents The contents of the barcode in the frame
+     * @param width    The frame width
+     * @param height   The frame height
+     * @param yuvData  The frame in NV21, at least width * height * 3 / 2 bytes
+     * @throws IllegalArgumentException If yuvData is too small
+     */
+    public SyntheticFrame(BarcodeFormat format, String contents, int width, int height, byte[] yuvData) {
+
+        if (yuvData.length < width * height * 3 / 2)
+
+            throw new IllegalArgumentException("NV21 data too small for a " + width + "x" + height + " frame");
+
+        this.format = format;
+
+        this.contents = contents;
+
+        this.width = width;
+
+        this.height = height;
+
+        this.yuvData = yuvData;
+
+    }
+
+    public BarcodeFormat getFormat() { return format; }
+
+    public String getContents() { return contents; }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    /**
+     * getYuvData -- Takes 0 parameters.
+     * @return The frame in NV21, Y plane first, not a copy
+     */
+    public byte[] getYuvData() { return yuvData; }
+
+    @Override
+    public String toString() { return width + "x" + height + ": [" + contents + ", " + format + "]"; }
+
+}
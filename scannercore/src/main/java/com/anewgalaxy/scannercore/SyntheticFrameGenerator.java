@@ -0,0 +1,479 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.PerspectiveTransform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * SyntheticFrameGenerator --
+ * Renders barcodes with the zxing writers into NV21 preview frames and makes them look like a
+ * camera saw them: rotated, seen at an angle, out of focus, washed out, with glare and sensor
+ * noise. Every distortion is off until its maximum is set, each frame then draws its own
+ * amount between none and the maximum.
+ *
+ * Frames are reproducible: the same seed, settings and frame index always give the same pixels,
+ * independent of which other frames were generated before.
+ * @author Tyler Sizse
+ */
+public final class SyntheticFrameGenerator {
+
+    private static final int BACKGROUND = 180;
+
+    private static final int MID_GREY = 128;
+
+    private static final int HALF_RANGE = 100;
+
+    private final long seed;
+
+    private float maxRotation;
+
+    private float maxPerspective;
+
+    private int maxBlurRadius;
+
+    private float maxNoise;
+
+    private float maxGlare;
+
+    private float minContrast = 1f;
+
+    /**
+     * @param seed The seed every frame's distortions are drawn from
+     */
+    public SyntheticFrameGenerator(long seed) { this.seed = seed; }
+
+    /**
+     * defaultContents -- Takes 1 parameter.
+     * @param format The format to encode
+     * @return Valid fixed contents for the format
+     */
+    public static String defaultContents(BarcodeFormat format) {
+
+        switch (format) {
+
+            case EAN_8:
+                return "9638507";
+
+            case UPC_E:
+                return "0123456";
+
+            case EAN_13:
+                return "590123412345";
+
+            case UPC_A:
+                return "01234567890";
+
+            case CODE_39:
+                return "SCAN-39";
+
+            case CODE_93:
+                return "SCAN-93";
+
+            case CODE_128:
+                return "Scan-128";
+
+            case ITF:
+                return "12345678901234";
+
+            case CODABAR:
+                return "A40156B";
+
+            default:
+                return "https://github.com/ANewGalaxy/android-barcode-scanner";
+
+        }
+
+    }
+
+    /**
+     * setRotation -- Takes 1 parameter.
+     * @param maxDegrees The most the barcode is rotated either way, in degrees
+     * @throws IllegalArgumentException If maxDegrees is negative
+     */
+    public void setRotation(float maxDegrees) { maxRotation = checkNotNegative(maxDegrees); }
+
+    public float getRotation() { return maxRotation; }
+
+    /**
+     * setPerspective -- Takes 1 parameter.
+     * @param maxSkew How far each corner of the barcode may move, as a fraction of its size
+     * @throws IllegalArgumentException If maxSkew is negative
+     */
+    public void setPerspective(float maxSkew) { maxPerspective = checkNotNegative(maxSkew); }
+
+    public float getPerspective() { return maxPerspective; }
+
+    /**
+     * setBlur -- Takes 1 parameter.
+     * @param maxRadius The largest box blur radius, in pixels
+     * @throws IllegalArgumentException If maxRadius is negative
+     */
+    public void setBlur(int maxRadius) { maxBlurRadius = (int) checkNotNegative(maxRadius); }
+
+    public int getBlur() { return maxBlurRadius; }
+
+    /**
+     * setNoise -- Takes 1 parameter.
+     * @param maxSigma The largest standard deviation of the sensor noise, in luminance levels
+     * @throws IllegalArgumentException If maxSigma is negative
+     */
+    public void setNoise(float maxSigma) { maxNoise = checkNotNegative(maxSigma); }
+
+    public float getNoise() { return maxNoise; }
+
+    /**
+     * setGlare -- Takes 1 parameter.
+     * @param maxIntensity The brightest glare spot, as a fraction of full white
+     * @throws IllegalArgumentException If maxIntensity is negative
+     */
+    public void setGlare(float maxIntensity) { maxGlare = checkNotNegative(maxIntensity); }
+
+    public float getGlare() { return maxGlare; }
+
+    /**
+     * setContrast -- Takes 1 parameter.
+     * @param minContrast The lowest contrast between bars and paper, 1 for full contrast
+     * @throws IllegalArgumentException If minContrast is not in (0, 1]
+     */
+    public void setContrast(float minContrast) {
+
+        if (!(minContrast > 0 && minContrast <= 1))
+
+            throw new IllegalArgumentException("Contrast must be in (0, 1]: " + minContrast);
+
+        this.minContrast = minContrast;
+
+    }
+
+    public float getContrast() { return minContrast; }
+
+    /**
+     * generate -- Takes 5 parameters.
+     * Renders one frame. One dimensional barcodes are sized to 75% of the frame width, two
+     * dimensional ones to at most 40% of the shorter side, both centered before any distortion.
+     *
+     * @param format   The format to render
+     * @param contents The contents to encode
+     * @param width    The frame width
+     * @param height   The frame height
+     * @param index    The frame number, picks this frame's distortions
+     * @return The frame
+     * @throws IllegalArgumentException If the contents can't be encoded in the format
+     */
+    public SyntheticFrame generate(BarcodeFormat format, String contents, int width, int height, int index) {
+
+        Random random = new Random(seed ^ (index * 0x9E3779B97F4A7C15L));
+
+        // Every parameter is drawn, even when its distortion is off, so turning one distortion
+        // on or off doesn't change how the others look
+        double angle = Math.toRadians((random.nextDouble() * 2 - 1) * maxRotation);
+
+        float[] skew = new float[8];
+
+        for (int i = 0; i < skew.length; i++)
+
+            skew[i] = (random.nextFloat() * 2 - 1) * maxPerspective;
+
+        int blurRadius = random.nextInt(maxBlurRadius + 1);
+
+        float contrast = minContrast + random.nextFloat() * (1 - minContrast);
+
+        float glare = random.nextFloat() * maxGlare;
+
+        float glareX = random.nextFloat() * width;
+        float glareY = random.nextFloat() * height;
+
+        float glareRadius = (0.15f + random.nextFloat() * 0.35f) * Math.min(width, height);
+
+        float noise = random.nextFloat() * maxNoise;
+
+        long noiseSeed = random.nextLong();
+
+        BitMatrix bits = encode(format, contents);
+
+        float[] luminances = new float[width * height];
+
+        render(bits, width, height, angle, skew, contrast, luminances);
+
+        if (blurRadius > 0)
+
+            blur(luminances, width, height, blurRadius);
+
+        if (glare > 0)
+
+            addGlare(luminances, width, height, glareX, glareY, glareRadius, glare);
+
+        if (noise > 0)
+
+            addNoise(luminances, new Random(noiseSeed), noise);
+
+        byte[] yuvData = new byte[width * height * 3 / 2];
+
+        for (int i = 0; i < luminances.length; i++)
+
+            yuvData[i] = (byte) Math.max(0, Math.min(0xFF, Math.round(luminances[i])));
+
+        // The Y plane is followed by the interleaved VU plane at quarter resolution, left neutral
+        Arrays.fill(yuvData, width * height, yuvData.length, (byte) MID_GREY);
+
+        return new SyntheticFrame(format, contents, width, height, yuvData);
+
+    }
+
+    /**
+     * writeCorpus -- Takes 5 parameters.
+     * Generates framesPerFormat frames of every format with its default contents, formats
+     * interleaved, and writes them to a corpus file. Frame i of the corpus is generated with
+     * index i.
+     *
+     * @param file            The corpus file to write, replaced if it exists
+     * @param formats         The formats to generate
+     * @param width           The frame width
+     * @param height          The frame height
+     * @param framesPerFormat How many frames of each format to generate
+     * @throws IOException If the file can't be written
+     */
+    public void writeCorpus(File file, Collection<BarcodeFormat> formats, int width, int height,
+                            int framesPerFormat) throws IOException {
+
+        try (FrameCorpusWriter writer = new FrameCorpusWriter(file)) {
+
+            int index = 0;
+
+            for (int i = 0; i < framesPerFormat; i++) {
+
+                for (BarcodeFormat format : formats)
+
+                    writer.add(generate(format, defaultContents(format), width, height, index++));
+
+            }
+
+        }
+
+    }
+
+    private static BitMatrix encode(BarcodeFormat format, String contents) {
+
+        boolean matrix = format == BarcodeFormat.QR_CODE || format == BarcodeFormat.DATA_MATRIX
+                || format == BarcodeFormat.AZTEC || format == BarcodeFormat.PDF_417;
+
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+
+        // The quiet zone in modules, one dimensional writers split theirs over both sides
+        hints.put(EncodeHintType.MARGIN, matrix ? 4 : 30);
+
+        try {
+
+            // Size 0 gives one pixel per module, the barcode is scaled while it is rendered
+            return new MultiFormatWriter().encode(contents, format, 0, 0, hints);
+
+        } catch (WriterException | IllegalArgumentException exception) {
+
+            throw new IllegalArgumentException("Could not encode " + contents + " as " + format, exception);
+
+        }
+
+    }
+
+    private static void render(BitMatrix bits, int width, int height, double angle, float[] skew,
+                               float contrast, float[] luminances) {
+
+        int modulesWide = bits.getWidth();
+        int modulesHigh = bits.getHeight();
+
+        float codeWidth;
+        float codeHeight;
+
+        if (modulesHigh == 1) {
+
+            // One dimensional writers return a single row
+            codeWidth = width * 0.75f;
+
+            codeHeight = height * 0.25f;
+
+        } else {
+
+            float scale = Math.min(width * 0.6f / modulesWide, Math.min(width, height) * 0.4f / modulesHigh);
+
+            codeWidth = modulesWide * scale;
+
+            codeHeight = modulesHigh * scale;
+
+        }
+
+        float cos = (float) Math.cos(angle);
+        float sin = (float) Math.sin(angle);
+
+        // Corners of the barcode around the frame center, clockwise from the top left
+        float[] corners = { -codeWidth / 2, -codeHeight / 2, codeWidth / 2, -codeHeight / 2,
+                codeWidth / 2, codeHeight / 2, -codeWidth / 2, codeHeight / 2 };
+
+        for (int i = 0; i < corners.length; i += 2) {
+
+            float x = corners[i] + skew[i] * codeWidth;
+            float y = corners[i + 1] + skew[i + 1] * codeHeight;
+
+            corners[i] = width / 2f + x * cos - y * sin;
+
+            corners[i + 1] = height / 2f + x * sin + y * cos;
+
+        }
+
+        // Maps frame pixels back onto modules
+        PerspectiveTransform transform = PerspectiveTransform.quadrilateralToQuadrilateral(
+                corners[0], corners[1], corners[2], corners[3], corners[4], corners[5], corners[6], corners[7],
+                0, 0, modulesWide, 0, modulesWide, modulesHigh, 0, modulesHigh);
+
+        float ink = MID_GREY - HALF_RANGE * contrast;
+        float paper = MID_GREY + HALF_RANGE * contrast;
+
+        float[] points = new float[width * 2];
+
+        for (int y = 0; y < height; y++) {
+
+            int row = y * width;
+
+            // 2x2 samples per pixel, so module edges that cut through a pixel come out grey
+            for (int sample = 0; sample < 4; sample++) {
+
+                float offsetX = (sample & 1) == 0 ? 0.25f : 0.75f;
+                float offsetY = (sample & 2) == 0 ? 0.25f : 0.75f;
+
+                for (int x = 0; x < width; x++) {
+
+                    points[2 * x] = x + offsetX;
+
+                    points[2 * x + 1] = y + offsetY;
+
+                }
+
+                transform.transformPoints(points);
+
+                for (int x = 0; x < width; x++)
+
+                    luminances[row + x] += sample(bits, points[2 * x], points[2 * x + 1], ink, paper) / 4;
+
+            }
+
+        }
+
+    }
+
+    private static float sample(BitMatrix bits, float u, float v, float ink, float paper) {
+
+        if (!(u >= 0 && v >= 0 && u < bits.getWidth() && v < bits.getHeight()))
+
+            return BACKGROUND;
+
+        return bits.get((int) u, (int) v) ? ink : paper;
+
+    }
+
+    private static void blur(float[] luminances, int width, int height, int radius) {
+
+        float[] line = new float[Math.max(width, height)];
+
+        for (int y = 0; y < height; y++)
+
+            boxBlur(luminances, y * width, 1, width, radius, line);
+
+        for (int x = 0; x < width; x++)
+
+            boxBlur(luminances, x, width, height, radius, line);
+
+    }
+
+    private static void boxBlur(float[] data, int offset, int step, int length, int radius, float[] line) {
+
+        for (int i = 0; i < length; i++)
+
+            line[i] = data[offset + i * step];
+
+        // Running sum over the window, the edge pixels are repeated past the ends
+        float sum = line[0] * (radius + 1);
+
+        for (int i = 1; i <= radius; i++)
+
+            sum += line[Math.min(i, length - 1)];
+
+        for (int i = 0; i < length; i++) {
+
+            data[offset + i * step] = sum / (2 * radius + 1);
+
+            sum += line[Math.min(i + radius + 1, length - 1)] - line[Math.max(i - radius, 0)];
+
+        }
+
+    }
+
+    private static void addGlare(float[] luminances, int width, int height, float centerX, float centerY,
+                                 float radius, float intensity) {
+
+        float radiusSquared = radius * radius;
+
+        for (int y = 0; y < height; y++) {
+
+            float dy = y + 0.5f - centerY;
+
+            for (int x = 0; x < width; x++) {
+
+                float dx = x + 0.5f - centerX;
+
+                float falloff = 1 - (dx * dx + dy * dy) / radiusSquared;
+
+                if (falloff > 0)
+
+                    luminances[y * width + x] += intensity * 0xFF * falloff;
+
+            }
+
+        }
+
+    }
+
+    private static void addNoise(float[] luminances, Random random, float sigma) {
+
+        for (int i = 0; i < luminances.length; i++)
+
+            luminances[i] += (float) random.nextGaussian() * sigma;
+
+    }
+
+    private static float checkNotNegative(float value) {
+
+        if (!(value >= 0))
+
+            throw new IllegalArgumentException("Must not be negative: " + value);
+
+        return value;
+
+    }
+
+}
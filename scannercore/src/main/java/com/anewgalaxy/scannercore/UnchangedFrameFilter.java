@@ -0,0 +1,184 @@
+package com.anewgalaxy.scannercore;
+
+/**
+ * Copyright (C) 2020 Tyler Sizse
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * UnchangedFrameFilter --
+ * Keeps frames that look just like the last frame that failed to decode from being decoded
+ * again. A phone lying on a counter, or pointed at something unreadable, would otherwise decode
+ * the same picture at full rate. Frames are compared by their FrameFingerprint, and as long as
+ * they stay close to the last failed one they are skipped, until the scene changes or the maximum
+ * skip time runs out. When frames take turns being decoded in different ways, a scene is only
+ * skipped once every attempt has failed on it, see decoded().
+ *
+ * All times are in nanoseconds and passed in by the caller. Safe to use from any thread.
+ * @author Tyler Sizse
+ */
+public final class UnchangedFrameFilter {
+
+    public static final float DEFAULT_MEAN_TOLERANCE = 6f;
+
+    public static final float DEFAULT_ACTIVITY_TOLERANCE = 0.25f;
+
+    public static final long DEFAULT_MAX_SKIP_NS = 2_000_000_000L;
+
+    private volatile float meanTolerance = DEFAULT_MEAN_TOLERANCE;
+
+    private volatile float activityTolerance = DEFAULT_ACTIVITY_TOLERANCE;
+
+    private volatile long maxSkip = DEFAULT_MAX_SKIP_NS;
+
+    // Guarded by this
+    private FrameFingerprint lastFailed;
+
+    private long lastFailedAt;
+
+    // How many frames of the last failed scene failed in a row, and how many it takes to skip it
+    private int failures;
+
+    private int attempts = 1;
+
+    /**
+     * setMeanTolerance -- Takes 1 parameter.
+     * @param meanTolerance How many luminance levels any block mean of a frame may differ from the
+     *                      last failed one and still count as unchanged
+     */
+    public void setMeanTolerance(float meanTolerance) {
+
+        if (!(meanTolerance >= 0f))
+
+            throw new IllegalArgumentException("Mean tolerance must be 0 or more, was " + meanTolerance);
+
+        this.meanTolerance = meanTolerance;
+
+    }
+
+    public float getMeanTolerance() { return meanTolerance; }
+
+    /**
+     * setActivityTolerance -- Takes 1 parameter.
+     * @param activityTolerance By which fraction any block activity of a frame may differ from the
+     *                          last failed one and still count as unchanged
+     */
+    public void setActivityTolerance(float activityTolerance) {
+
+        if (!(activityTolerance >= 0f))
+
+            throw new IllegalArgumentException("Activity tolerance must be 0 or more, was " + activityTolerance);
+
+        this.activityTolerance = activityTolerance;
+
+    }
+
+    public float getActivityTolerance() { return activityTolerance; }
+
+    /**
+     * setMaxSkip -- Takes 1 parameter.
+     * @param maxSkip How long after the last failed frame an unchanged frame is decoded anyway, or
+     *                0 to skip unchanged frames for as long as they stay unchanged
+     */
+    public void setMaxSkip(long maxSkip) { this.maxSkip = Math.max(0L, maxSkip); }
+
+    public long getMaxSkip() { return maxSkip; }
+
+    /**
+     * isUnchanged -- Takes 2 parameters.
+     * @param fingerprint The fingerprint of the frame about to be decoded
+     * @param now         The current time
+     * @return true if the frame should be skipped
+     */
+    public boolean isUnchanged(FrameFingerprint fingerprint, long now) {
+
+        FrameFingerprint failed;
+
+        long failedAt;
+
+        synchronized (this) {
+
+            // Attempts still left to try on the scene are worth decoding it for
+            failed = failures >= attempts ? lastFailed : null;
+
+            failedAt = lastFailedAt;
+
+        }
+
+        if (failed == null || (maxSkip > 0L && now - failedAt >= maxSkip))
+
+            return false;
+
+        return isSameScene(fingerprint, failed);
+
+    }
+
+    /**
+     * decoded -- Takes 3 parameters.
+     * @param fingerprint The fingerprint of the frame that was decoded
+     * @param found       true if the frame held a barcode
+     * @param now         The time decoding finished
+     */
+    public void decoded(FrameFingerprint fingerprint, boolean found, long now) { decoded(fingerprint, found, 1, now); }
+
+    /**
+     * decoded -- Takes 4 parameters.
+     * @param fingerprint The fingerprint of the frame that was decoded
+     * @param found       true if the frame held a barcode
+     * @param attempts    How many frames of the same scene have to fail in a row before it is
+     *                    skipped, the length of the AttemptScheduler cycle if there is one
+     * @param now         The time decoding finished
+     */
+    public synchronized void decoded(FrameFingerprint fingerprint, boolean found, int attempts, long now) {
+
+        if (found) {
+
+            lastFailed = null;
+
+            failures = 0;
+
+        } else {
+
+            failures = lastFailed != null && isSameScene(fingerprint, lastFailed) ? failures + 1 : 1;
+
+            lastFailed = fingerprint;
+
+            this.attempts = Math.max(1, attempts);
+
+        }
+
+        lastFailedAt = now;
+
+    }
+
+    private boolean isSameScene(FrameFingerprint fingerprint, FrameFingerprint failed) {
+
+        return fingerprint.getMeanDifference(failed) <= meanTolerance
+                && fingerprint.getActivityDifference(failed) <= activityTolerance;
+
+    }
+
+    /**
+     * reset -- Takes 0 parameters.
+     * Forgets the last failed frame, so the next frame is decoded whatever it looks like.
+     */
+    public synchronized void reset() {
+
+        lastFailed = null;
+
+        failures = 0;
+
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.anewgalaxy.scannercore;
+
+import com.anewgalaxy.scannercore.AttemptScheduler.Attempt;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AttemptSchedulerTest {
+
+    @Test
+    public void next_takesTurnsInOrder() {
+        AttemptScheduler scheduler = new AttemptScheduler(Attempt.PLAIN, Attempt.ROTATED, Attempt.INVERTED);
+
+        assertEquals(Attempt.PLAIN, scheduler.next());
+        assertEquals(Attempt.ROTATED, scheduler.next());
+        assertEquals(Attempt.INVERTED, scheduler.next());
+        assertEquals(Attempt.PLAIN, scheduler.next());
+
+        scheduler.setCycle(Attempt.TRY_HARDER);
+
+        assertEquals(Attempt.TRY_HARDER, scheduler.next());
+        assertArrayEquals(new Attempt[]{Attempt.TRY_HARDER}, scheduler.getCycle());
+
+        scheduler.setCycle(Attempt.PLAIN, Attempt.INVERTED);
+        scheduler.reset();
+
+        assertEquals(Attempt.PLAIN, scheduler.next());
+    }
+
+    @Test
+    public void next_sharesTurnsAcrossThreads() throws Exception {
+        AttemptScheduler scheduler = new AttemptScheduler(Attempt.values());
+        Map<Attempt, Integer> counts = new EnumMap<>(Attempt.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        for (int i = 0; i < 4000; i++)
+            executor.execute(() -> {
+                Attempt attempt = scheduler.next();
+                synchronized (counts) {
+                    counts.merge(attempt, 1, Integer::sum);
+                }
+            });
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (Attempt attempt : Attempt.values())
+            assertEquals(1000, (int) counts.get(attempt));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCycle_rejectsEmptyCycle() {
+        new AttemptScheduler();
+    }
+}
@@ -0,0 +1,80 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinarizerSelectorTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void measure_usesGlobalThresholdForEvenLight() {
+        BinarizerSelector selector = new BinarizerSelector(BinarizerSelector.Strategy.ADAPTIVE);
+
+        assertEquals(BinarizerType.GLOBAL_HISTOGRAM, selector.measure(source(frame(false))));
+        assertTrue(selector.getMargin() > 100);
+    }
+
+    @Test
+    public void measure_usesHybridForShadowsAndFlatFrames() {
+        BinarizerSelector selector = new BinarizerSelector(BinarizerSelector.Strategy.ADAPTIVE);
+
+        // Darkens the left of the frame until its paper is as dark as the ink on the right
+        assertEquals(BinarizerType.HYBRID, selector.measure(source(frame(true))));
+        assertTrue(selector.getMargin() < 50);
+
+        byte[] flat = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(flat, (byte) 128);
+
+        assertEquals(BinarizerType.HYBRID, selector.measure(source(flat)));
+        assertEquals(0, selector.getSpread());
+    }
+
+    @Test
+    public void select_followsStrategy() {
+        LuminanceSource source = source(frame(false));
+        BinarizerSelector selector = new BinarizerSelector(BinarizerSelector.Strategy.ALTERNATE);
+
+        assertEquals(BinarizerType.GLOBAL_HISTOGRAM, selector.select(source));
+        assertEquals(BinarizerType.HYBRID, selector.select(source));
+        assertEquals(BinarizerType.GLOBAL_HISTOGRAM, selector.select(source));
+
+        selector.setStrategy(BinarizerSelector.Strategy.ADAPTIVE);
+
+        assertEquals(BinarizerType.GLOBAL_HISTOGRAM, selector.select(source));
+
+        // A miss with the global threshold gets the next frame a second opinion
+        selector.decoded(BinarizerType.GLOBAL_HISTOGRAM, false);
+        assertEquals(BinarizerType.HYBRID, selector.select(source));
+
+        selector.decoded(BinarizerType.HYBRID, false);
+        assertEquals(BinarizerType.GLOBAL_HISTOGRAM, selector.select(source));
+
+        selector.setStrategy(BinarizerSelector.Strategy.HYBRID);
+        assertEquals(BinarizerType.HYBRID, selector.select(source));
+    }
+
+    private static byte[] frame(boolean shadow) {
+        byte[] yuvData = new SyntheticFrameGenerator(3).generate(BarcodeFormat.QR_CODE,
+                SyntheticFrameGenerator.defaultContents(BarcodeFormat.QR_CODE), WIDTH, HEIGHT, 0).getYuvData();
+
+        if (shadow)
+            for (int y = 0; y < HEIGHT; y++)
+                for (int x = 0; x < WIDTH; x++)
+                    yuvData[y * WIDTH + x] = (byte) ((yuvData[y * WIDTH + x] & 0xFF) * (0.08 + 0.92 * x / WIDTH));
+
+        return yuvData;
+    }
+
+    private static LuminanceSource source(byte[] yuvData) {
+        return new PlanarYUVLuminanceSource(yuvData, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+    }
+}
@@ -0,0 +1,50 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DuplicateResultCacheTest {
+
+    @Test
+    public void isDuplicate_dropsRepeatsWithinTimeToLive() {
+        DuplicateResultCache cache = new DuplicateResultCache(1000, 8);
+
+        assertFalse(cache.isDuplicate("123", BarcodeFormat.UPC_A, 0));
+        assertTrue(cache.isDuplicate("123", BarcodeFormat.UPC_A, 900));
+
+        // Same text in another format is a different barcode
+        assertFalse(cache.isDuplicate("123", BarcodeFormat.CODE_39, 900));
+
+        // Every read restarts the time to live
+        assertTrue(cache.isDuplicate("123", BarcodeFormat.UPC_A, 1800));
+        assertFalse(cache.isDuplicate("123", BarcodeFormat.UPC_A, 2801));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void isDuplicate_evictsLeastRecentlySeen() {
+        DuplicateResultCache cache = new DuplicateResultCache(1000, 2);
+
+        cache.isDuplicate("a", BarcodeFormat.QR_CODE, 0);
+        cache.isDuplicate("b", BarcodeFormat.QR_CODE, 1);
+        cache.isDuplicate("a", BarcodeFormat.QR_CODE, 2);
+        cache.isDuplicate("c", BarcodeFormat.QR_CODE, 3);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.isDuplicate("a", BarcodeFormat.QR_CODE, 4));
+        assertFalse(cache.isDuplicate("b", BarcodeFormat.QR_CODE, 5));
+    }
+
+    @Test
+    public void isDuplicate_zeroTimeToLiveLetsEverythingThrough() {
+        DuplicateResultCache cache = new DuplicateResultCache(0, 2);
+
+        assertFalse(cache.isDuplicate("a", BarcodeFormat.QR_CODE, 0));
+        assertFalse(cache.isDuplicate("a", BarcodeFormat.QR_CODE, 0));
+    }
+}
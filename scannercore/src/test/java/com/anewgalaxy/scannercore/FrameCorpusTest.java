@@ -0,0 +1,60 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FrameCorpusTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_replaysWrittenFrames() throws Exception {
+        File file = folder.newFile("corpus.bin");
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(5);
+        generator.setNoise(6);
+
+        generator.writeCorpus(file, Arrays.asList(BarcodeFormat.CODE_39, BarcodeFormat.UPC_A), 640, 480, 2);
+
+        // Only the Y plane is stored
+        assertTrue(file.length() < 4 * 640 * 480 + 1024);
+
+        FrameCorpus corpus = FrameCorpus.open(file);
+
+        assertEquals(4, corpus.size());
+        assertEquals(BarcodeFormat.UPC_A, corpus.getFormat(3));
+        assertEquals(SyntheticFrameGenerator.defaultContents(BarcodeFormat.UPC_A), corpus.getContents(3));
+        assertEquals(640, corpus.getWidth(3));
+        assertEquals(480, corpus.getHeight(3));
+
+        SyntheticFrame expected = generator.generate(BarcodeFormat.UPC_A,
+                SyntheticFrameGenerator.defaultContents(BarcodeFormat.UPC_A), 640, 480, 3);
+
+        byte[] buffer = new byte[640 * 480 * 3 / 2];
+
+        assertSame(buffer, corpus.readFrame(3, buffer));
+        assertArrayEquals(expected.getYuvData(), buffer);
+        assertEquals(BarcodeFormat.CODE_39, SyntheticFrameGeneratorTest.decode(corpus.getFrame(2)).getBarcodeFormat());
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws Exception {
+        File file = folder.newFile("other.bin");
+
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(new byte[100]);
+        }
+
+        FrameCorpus.open(file);
+    }
+}
@@ -0,0 +1,76 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FrameQualityGateTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private final FrameQualityGate gate = new FrameQualityGate();
+
+    @Test
+    public void check_acceptsSharpBarcode() {
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(2);
+        generator.setNoise(4);
+
+        for (BarcodeFormat format : Arrays.asList(BarcodeFormat.CODE_39, BarcodeFormat.QR_CODE)) {
+            SyntheticFrame frame = generator.generate(format, SyntheticFrameGenerator.defaultContents(format),
+                    WIDTH, HEIGHT, 0);
+
+            FrameQualityGate.Score score = gate.score(wrap(frame.getYuvData()));
+
+            assertEquals(score.toString(), FrameQualityGate.Verdict.ACCEPTED, gate.judge(score));
+            assertTrue(score.getSharpness() > 0.5f);
+        }
+    }
+
+    @Test
+    public void check_rejectsDarkBrightAndEmptyFrames() {
+        assertEquals(FrameQualityGate.Verdict.TOO_DARK, gate.check(wrap(stripes(10, 0))));
+        assertEquals(FrameQualityGate.Verdict.TOO_BRIGHT, gate.check(wrap(stripes(250, 0))));
+        assertEquals(FrameQualityGate.Verdict.EMPTY, gate.check(wrap(stripes(128, 0))));
+    }
+
+    @Test
+    public void check_rejectsMotionBlur() {
+        byte[] blurred = new byte[WIDTH * HEIGHT * 3 / 2];
+
+        // Every edge ramps over 40 pixels, in both directions
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++)
+                blurred[y * WIDTH + x] = (byte) (128 + 100 * Math.sin(x * Math.PI / 40) * Math.sin(y * Math.PI / 40));
+
+        assertEquals(FrameQualityGate.Verdict.BLURRY, gate.check(wrap(blurred)));
+
+        gate.setMinSharpness(0f);
+        assertEquals(FrameQualityGate.Verdict.ACCEPTED, gate.check(wrap(blurred)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setBrightnessRange_rejectsInvertedRange() {
+        gate.setBrightnessRange(200, 100);
+    }
+
+    // Vertical stripes 8 pixels wide around the given luminance
+    private static byte[] stripes(int luminance, int amplitude) {
+        byte[] yuvData = new byte[WIDTH * HEIGHT * 3 / 2];
+
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++)
+                yuvData[y * WIDTH + x] = (byte) (luminance + (x / 8 % 2 == 0 ? amplitude : -amplitude));
+
+        return yuvData;
+    }
+
+    private static LuminanceSource wrap(byte[] yuvData) {
+        return FramingRectLuminanceSource.wrap(yuvData, WIDTH, HEIGHT, 0, 0, 0, WIDTH, HEIGHT);
+    }
+}
@@ -0,0 +1,62 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FramingRectLuminanceSourceTest {
+
+    // 4x3 Y plane followed by a chroma plane that must never be read
+    private static final byte[] FRAME = {
+            0, 1, 2, 3,
+            4, 5, 6, 7,
+            8, 9, 10, 11,
+            -1, -1, -1, -1, -1, -1
+    };
+
+    @Test
+    public void getMatrix_cropsWithoutRotation() {
+        LuminanceSource source = FramingRectLuminanceSource.wrap(FRAME, 4, 3, 0, 1, 1, 2, 2);
+
+        assertArrayEquals(new byte[]{5, 6, 9, 10}, source.getMatrix());
+    }
+
+    @Test
+    public void getMatrix_rotatesClockwise() {
+        LuminanceSource source = FramingRectLuminanceSource.wrap(FRAME, 4, 3, 90, 0, 0, 3, 4);
+
+        assertArrayEquals(new byte[]{8, 4, 0, 9, 5, 1, 10, 6, 2, 11, 7, 3}, source.getMatrix());
+    }
+
+    @Test
+    public void getRow_readsRotatedCrop() {
+        LuminanceSource source = FramingRectLuminanceSource.wrap(FRAME, 4, 3, 270, 1, 1, 2, 2);
+
+        assertArrayEquals(new byte[]{6, 10}, source.getRow(0, null));
+        assertArrayEquals(new byte[]{5, 9}, source.getRow(1, null));
+    }
+
+    @Test
+    public void rotateCounterClockwise_undoesClockwiseRotation() {
+        LuminanceSource source = FramingRectLuminanceSource.wrap(FRAME, 4, 3, 90, 0, 0, 3, 4);
+
+        assertArrayEquals(FramingRectLuminanceSource.wrap(FRAME, 4, 3, 0, 0, 0, 4, 3).getMatrix(),
+                source.rotateCounterClockwise().getMatrix());
+    }
+
+    @Test
+    public void downsample_skipsPixelsOfRotatedFrame() {
+        FramingRectLuminanceSource source = FramingRectLuminanceSource.wrap(FRAME, 4, 3, 90, 0, 0, 3, 4);
+
+        assertArrayEquals(new byte[]{8, 10}, source.downsample(2).getMatrix());
+        assertArrayEquals(new byte[]{0, 2}, FramingRectLuminanceSource.wrap(FRAME, 4, 3, 0, 0, 0, 4, 3)
+                .downsample(2).getMatrix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrap_rejectsCropOutsideFrame() {
+        FramingRectLuminanceSource.wrap(FRAME, 4, 3, 90, 0, 0, 4, 3);
+    }
+}
@@ -0,0 +1,141 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HotFormatReaderTest {
+
+    @Test
+    public void decode_movesHitFormatToFront() throws Exception {
+        FormatHistogram histogram = new FormatHistogram(10);
+        HotFormatReader reader = new HotFormatReader(hintsFor(BarcodeFormat.QR_CODE,
+                BarcodeFormat.CODE_128, BarcodeFormat.UPC_A), histogram, true);
+
+        assertEquals(Arrays.asList(BarcodeFormat.UPC_A, BarcodeFormat.CODE_128, BarcodeFormat.QR_CODE),
+                reader.getOrder());
+
+        Result result = reader.decode(render("hello", BarcodeFormat.QR_CODE));
+
+        assertEquals(BarcodeFormat.QR_CODE, result.getBarcodeFormat());
+        assertEquals(BarcodeFormat.QR_CODE, reader.getOrder().get(0));
+
+        assertEquals(BarcodeFormat.CODE_128, reader.decode(render("ABC-123", BarcodeFormat.CODE_128)).getBarcodeFormat());
+        assertEquals(BarcodeFormat.CODE_128, reader.decode(render("ABC-456", BarcodeFormat.CODE_128)).getBarcodeFormat());
+
+        assertEquals(Arrays.asList(BarcodeFormat.CODE_128, BarcodeFormat.UPC_A, BarcodeFormat.QR_CODE),
+                reader.getOrder());
+    }
+
+    @Test
+    public void decode_upcAIsReportedAsUpcA() throws Exception {
+        FormatHistogram histogram = new FormatHistogram(10);
+        HotFormatReader reader = new HotFormatReader(hintsFor(BarcodeFormat.EAN_13, BarcodeFormat.UPC_A),
+                histogram, true);
+
+        histogram.record(BarcodeFormat.UPC_A);
+
+        Result result = reader.decode(render("036000291452", BarcodeFormat.UPC_A));
+
+        assertEquals(BarcodeFormat.UPC_A, result.getBarcodeFormat());
+        assertEquals("036000291452", result.getText());
+    }
+
+    @Test
+    public void decode_ordersUpcEanFormatsWithinTheirGroup() throws Exception {
+        FormatHistogram histogram = new FormatHistogram(10);
+        HotFormatReader reader = new HotFormatReader(hintsFor(BarcodeFormat.CODE_128, BarcodeFormat.EAN_13,
+                BarcodeFormat.EAN_8, BarcodeFormat.UPC_E), histogram, true);
+
+        assertEquals(BarcodeFormat.EAN_8, reader.decode(render("96385074", BarcodeFormat.EAN_8)).getBarcodeFormat());
+
+        assertEquals(Arrays.asList(BarcodeFormat.EAN_8, BarcodeFormat.EAN_13, BarcodeFormat.UPC_E,
+                BarcodeFormat.CODE_128), reader.getOrder());
+
+        Result result = reader.decode(render("0036000291452", BarcodeFormat.EAN_13));
+
+        // UPC-A wasn't asked for, so a leading 0 doesn't make it one
+        assertEquals(BarcodeFormat.EAN_13, result.getBarcodeFormat());
+        assertEquals("0036000291452", result.getText());
+    }
+
+    @Test
+    public void setTryHarder_scansEveryRow() throws Exception {
+        HotFormatReader reader = new HotFormatReader(hintsFor(BarcodeFormat.CODE_128), new FormatHistogram(10), true);
+
+        // A short barcode along the top edge is between the rows a normal decode looks at
+        BitMatrix matrix = new MultiFormatWriter().encode("ABC-123", BarcodeFormat.CODE_128, 300, 12);
+        int[] pixels = new int[300 * 300];
+
+        Arrays.fill(pixels, 0xFFFFFFFF);
+
+        for (int y = 0; y < matrix.getHeight(); y++)
+            for (int x = 0; x < matrix.getWidth(); x++)
+                pixels[y * 300 + x] = matrix.get(x, y) ? 0xFF000000 : 0xFFFFFFFF;
+
+        BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(300, 300, pixels)));
+
+        try {
+            reader.decode(image);
+            fail("Decoded without trying harder");
+        } catch (NotFoundException expected) {
+            // Not in the rows looked at
+        }
+
+        reader.setTryHarder(true);
+
+        assertEquals("ABC-123", reader.decode(image).getText());
+
+        reader.setTryHarder(false);
+
+        assertFalse(reader.isTryHarder());
+    }
+
+    @Test
+    public void histogram_olderHitsDecay() {
+        FormatHistogram histogram = new FormatHistogram(2);
+
+        histogram.record(BarcodeFormat.QR_CODE);
+        histogram.record(BarcodeFormat.UPC_A);
+        histogram.record(BarcodeFormat.UPC_A);
+
+        assertEquals(0.5, histogram.getWeight(BarcodeFormat.QR_CODE), 1e-9);
+        assertTrue(histogram.getWeight(BarcodeFormat.UPC_A) > 1.7);
+
+        histogram.clear();
+
+        assertEquals(0d, histogram.getWeight(BarcodeFormat.UPC_A), 0d);
+    }
+
+    private static Map<DecodeHintType, Object> hintsFor(BarcodeFormat... formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Arrays.asList(formats));
+        return hints;
+    }
+
+    private static BinaryBitmap render(String contents, BarcodeFormat format) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode(contents, format, 300, 150);
+        int[] pixels = new int[matrix.getWidth() * matrix.getHeight()];
+
+        for (int y = 0; y < matrix.getHeight(); y++)
+            for (int x = 0; x < matrix.getWidth(); x++)
+                pixels[y * matrix.getWidth() + x] = matrix.get(x, y) ? 0xFF000000 : 0xFFFFFFFF;
+
+        return new BinaryBitmap(new HybridBinarizer(
+                new RGBLuminanceSource(matrix.getWidth(), matrix.getHeight(), pixels)));
+    }
+}
@@ -0,0 +1,67 @@
+package com.anewgalaxy.scannercore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void getPercentile_staysWithinASixteenth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // 1ms to 100ms in steps of 1ms
+        for (int i = 1; i <= 100; i++)
+            histogram.record(i * 1_000_000L);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertEquals(100_000_000L, snapshot.getMax());
+        assertEquals(50_500_000L, snapshot.getMean());
+
+        assertEquals(50_000_000L, snapshot.getPercentile(50), 50_000_000L / 16);
+        assertEquals(99_000_000L, snapshot.getPercentile(99), 99_000_000L / 16);
+        assertEquals(100_000_000L, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void bucketOf_coversEveryMicrosecond() {
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+
+            assertTrue(LatencyHistogram.lowestMicrosOf(bucket) <= micros);
+            assertTrue(LatencyHistogram.lowestMicrosOf(bucket + 1) > micros);
+        }
+
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE / 1000L));
+    }
+
+    @Test
+    public void record_countsEveryThread() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++)
+                    histogram.record(i * 1000L);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(40_000, histogram.snapshot().getCount());
+
+        histogram.reset();
+
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getPercentile(50));
+    }
+}
@@ -0,0 +1,143 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PyramidDecoderTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void decode_findsLargeBarcodeAtCoarseLevel() {
+        SyntheticFrame frame = new SyntheticFrameGenerator(1).generate(BarcodeFormat.QR_CODE,
+                SyntheticFrameGenerator.defaultContents(BarcodeFormat.QR_CODE), WIDTH, HEIGHT, 0);
+        FramingRectLuminanceSource source = wrap(frame.getYuvData());
+        List<LuminanceSource> levels = new ArrayList<>();
+
+        Result result = new PyramidDecoder(2, 0).decode(source, (level, points) -> {
+            levels.add(level);
+            try {
+                return new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(level)));
+            } catch (ReaderException exception) {
+                return null;
+            }
+        }, new ArrayList<>());
+
+        assertNotNull(result);
+        assertEquals(frame.getContents(), result.getText());
+        assertEquals(1, levels.size());
+        assertEquals(WIDTH / 2, levels.get(0).getWidth());
+
+        // Points are scaled back up to the full resolution frame
+        for (ResultPoint point : result.getResultPoints()) {
+            assertTrue(point.getX() > WIDTH / 4f && point.getX() < 3 * WIDTH / 4f);
+            assertTrue(point.getY() > HEIGHT / 4f && point.getY() < 3 * HEIGHT / 4f);
+        }
+    }
+
+    @Test
+    public void decode_refinesAroundCandidatePoints() {
+        FramingRectLuminanceSource source = wrap(new byte[WIDTH * HEIGHT * 3 / 2]);
+        List<LuminanceSource> levels = new ArrayList<>();
+        List<ResultPoint> possibleResultPoints = new ArrayList<>();
+
+        Result result = new PyramidDecoder(2, 0).decode(source, (level, points) -> {
+            levels.add(level);
+            if (levels.size() == 1) {
+                points.add(new ResultPoint(100, 80));
+                return null;
+            }
+            points.add(new ResultPoint(1, 2));
+            return new Result("fine", null, new ResultPoint[]{new ResultPoint(10, 10)}, BarcodeFormat.QR_CODE);
+        }, possibleResultPoints);
+
+        assertEquals(2, levels.size());
+
+        // A box around (200, 160) at full resolution, padded on every side
+        LuminanceSource fine = levels.get(1);
+        assertTrue(fine.getWidth() < WIDTH / 2 && fine.getHeight() < HEIGHT / 2);
+
+        assertEquals("fine", result.getText());
+        assertEquals(200 - fine.getWidth() / 2 + 10, result.getResultPoints()[0].getX(), 1f);
+
+        assertEquals(2, possibleResultPoints.size());
+        assertEquals(200f, possibleResultPoints.get(0).getX(), 0f);
+        assertEquals(160f, possibleResultPoints.get(0).getY(), 0f);
+        assertEquals(200 - fine.getWidth() / 2 + 1, possibleResultPoints.get(1).getX(), 1f);
+    }
+
+    @Test
+    public void decode_retriesWholeFrameWithoutCandidatesAndDecodesFullFramesOnInterval() {
+        FramingRectLuminanceSource source = wrap(new byte[WIDTH * HEIGHT * 3 / 2]);
+        List<LuminanceSource> levels = new ArrayList<>();
+        PyramidDecoder decoder = new PyramidDecoder(2, 2);
+
+        for (int i = 0; i < 4; i++)
+            assertNull(decoder.decode(source, (level, points) -> {
+                levels.add(level);
+                return null;
+            }, new ArrayList<>()));
+
+        assertEquals(6, levels.size());
+        assertEquals(WIDTH, levels.get(0).getWidth());
+        assertEquals(WIDTH / 2, levels.get(1).getWidth());
+        assertEquals(WIDTH, levels.get(2).getWidth());
+        assertEquals(WIDTH, levels.get(3).getWidth());
+        assertEquals(WIDTH / 2, levels.get(4).getWidth());
+        assertEquals(WIDTH, levels.get(5).getWidth());
+    }
+
+    @Test
+    public void decode_retriesWholeFrameForOneDOnlyDecoders() {
+        SyntheticFrame frame = new SyntheticFrameGenerator(1).generate(BarcodeFormat.CODE_128,
+                SyntheticFrameGenerator.defaultContents(BarcodeFormat.CODE_128), WIDTH, HEIGHT, 0);
+        FramingRectLuminanceSource source = wrap(frame.getYuvData());
+        List<LuminanceSource> levels = new ArrayList<>();
+
+        MultiFormatReader reader = new MultiFormatReader();
+        reader.setHints(Collections.singletonMap(DecodeHintType.POSSIBLE_FORMATS,
+                Collections.singletonList(BarcodeFormat.CODE_128)));
+
+        Result result = new PyramidDecoder(2, 0).decode(source, (level, points) -> {
+            levels.add(level);
+            // Bars thinner than the downsampling factor are lost at the coarse level
+            if (levels.size() == 1) {
+                points.add(new ResultPoint(100, 80));
+                return null;
+            }
+            try {
+                return reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(level)));
+            } catch (ReaderException exception) {
+                return null;
+            }
+        }, new ArrayList<>(), true);
+
+        // The whole frame, not just the box around the coarse points
+        assertEquals(2, levels.size());
+        assertEquals(WIDTH, levels.get(1).getWidth());
+        assertEquals(HEIGHT, levels.get(1).getHeight());
+
+        assertNotNull(result);
+        assertEquals(frame.getContents(), result.getText());
+    }
+
+    private static FramingRectLuminanceSource wrap(byte[] yuvData) {
+        return FramingRectLuminanceSource.wrap(yuvData, WIDTH, HEIGHT, 0, 0, 0, WIDTH, HEIGHT);
+    }
+}
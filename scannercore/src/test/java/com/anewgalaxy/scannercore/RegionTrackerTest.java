@@ -0,0 +1,96 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegionTrackerTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private final RegionTracker tracker = new RegionTracker(2);
+
+    private final FramingRectLuminanceSource frame = FramingRectLuminanceSource.wrap(new byte[WIDTH * HEIGHT * 3 / 2],
+            WIDTH, HEIGHT, 0, 0, 0, WIDTH, HEIGHT);
+
+    private final List<LuminanceSource> decoded = new ArrayList<>();
+
+    @Test
+    public void decode_narrowsToPointsUntilMissedTooOften() {
+        List<ResultPoint> points = new ArrayList<>();
+
+        assertNull(tracker.decode(frame, reporting(new ResultPoint(300, 200), new ResultPoint(340, 220)), points));
+        assertEquals(WIDTH, decoded.get(0).getWidth());
+
+        // 40 wide, padded by 60 on every side
+        assertArrayEquals(new int[]{240, 140, 400, 280}, tracker.getRegion());
+
+        points.clear();
+
+        assertNull(tracker.decode(frame, reporting(new ResultPoint(10, 10)), points));
+        assertEquals(160, decoded.get(1).getWidth());
+        assertEquals(140, decoded.get(1).getHeight());
+
+        // Points come back in frame coordinates, and the box follows them
+        assertEquals(250f, points.get(0).getX(), 0f);
+        assertEquals(150f, points.get(0).getY(), 0f);
+        assertArrayEquals(new int[]{190, 90, 310, 210}, tracker.getRegion());
+
+        tracker.decode(frame, reporting(), points);
+        assertNotNull(tracker.getRegion());
+
+        tracker.decode(frame, reporting(), points);
+        assertNull(tracker.getRegion());
+
+        tracker.decode(frame, reporting(), points);
+        assertEquals(WIDTH, decoded.get(4).getWidth());
+    }
+
+    @Test
+    public void decode_translatesResults() {
+        List<ResultPoint> points = new ArrayList<>();
+
+        tracker.decode(frame, reporting(new ResultPoint(320, 240)), points);
+
+        Result result = tracker.decode(frame, (source, possible) -> new Result("text", null,
+                new ResultPoint[]{new ResultPoint(5, 5)}, BarcodeFormat.QR_CODE), points);
+
+        assertEquals(265f, result.getResultPoints()[0].getX(), 0f);
+        assertEquals(185f, result.getResultPoints()[0].getY(), 0f);
+    }
+
+    @Test
+    public void decode_decodesWholeFramesOfAnotherSize() {
+        List<ResultPoint> points = new ArrayList<>();
+
+        tracker.decode(frame, reporting(new ResultPoint(320, 240)), points);
+        tracker.decode(frame.crop(0, 0, 320, 240), reporting(), points);
+
+        assertEquals(320, decoded.get(1).getWidth());
+        assertNotNull(tracker.getRegion());
+
+        tracker.reset();
+        tracker.decode(frame, reporting(), points);
+
+        assertEquals(WIDTH, decoded.get(2).getWidth());
+    }
+
+    // Reports the points, in the coordinates of whatever source it is handed
+    private PyramidDecoder.Step reporting(ResultPoint... found) {
+        return (source, possibleResultPoints) -> {
+            decoded.add(source);
+            for (ResultPoint point : found)
+                possibleResultPoints.add(point);
+            return null;
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.anewgalaxy.scannercore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResultPointRingTest {
+
+    private final List<float[]> visited = new ArrayList<>();
+
+    private final ResultPointRing.Visitor visitor = (x, y, age) -> visited.add(new float[]{x, y, age});
+
+    @Test
+    public void forEach_forgetsPointsByAge() {
+        ResultPointRing ring = new ResultPointRing(4);
+
+        assertTrue(ring.offer(1f, 2f, 100L));
+        assertTrue(ring.offer(3f, 4f, 150L));
+
+        assertEquals(2, ring.forEach(200L, 100L, visitor));
+        assertArrayEquals(new float[]{1f, 2f, 100f}, visited.get(0), 0f);
+        assertArrayEquals(new float[]{3f, 4f, 50f}, visited.get(1), 0f);
+
+        // Drained points stay alive until they are too old
+        visited.clear();
+
+        assertEquals(1, ring.forEach(220L, 100L, visitor));
+        assertEquals(3f, visited.get(0)[0], 0f);
+
+        assertEquals(0, ring.forEach(300L, 100L, visitor));
+    }
+
+    @Test
+    public void offer_dropsWhileConsumerIsBehind() {
+        ResultPointRing ring = new ResultPointRing(3);
+
+        assertEquals(4, ring.getCapacity());
+
+        for (int i = 0; i < 4; i++)
+            assertTrue(ring.offer(i, i, i));
+
+        assertFalse(ring.offer(4f, 4f, 4L));
+
+        // Draining frees the slots, and newer points push the oldest live ones out
+        assertEquals(4, ring.forEach(10L, 100L, visitor));
+
+        for (int i = 5; i < 7; i++)
+            assertTrue(ring.offer(i, i, i));
+
+        visited.clear();
+
+        assertEquals(4, ring.forEach(10L, 100L, visitor));
+        assertEquals(2f, visited.get(0)[0], 0f);
+        assertEquals(6f, visited.get(3)[0], 0f);
+
+        ring.clear();
+
+        assertEquals(0, ring.forEach(10L, 100L, visitor));
+    }
+
+    @Test
+    public void forEach_seesEveryPointFromAnotherThreadInOrder() throws Exception {
+        ResultPointRing ring = new ResultPointRing(8);
+        int count = 100_000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++)
+                while (!ring.offer(i, -i, i))
+                    Thread.yield();
+        });
+
+        producer.start();
+
+        float[] last = {-1f};
+
+        // Everything stays alive, so every point is visited before newer ones push it out
+        while (last[0] < count - 1) {
+            float[] previous = {Float.NaN};
+
+            ring.forEach(count, Long.MAX_VALUE, (x, y, age) -> {
+                assertEquals(-x, y, 0f);
+                assertEquals(count - x, age, 0f);
+
+                if (!Float.isNaN(previous[0]))
+                    assertEquals(previous[0] + 1f, x, 0f);
+
+                if (x > last[0]) {
+                    assertEquals(last[0] + 1f, x, 0f);
+                    last[0] = x;
+                }
+
+                previous[0] = x;
+            });
+        }
+
+        producer.join();
+    }
+}
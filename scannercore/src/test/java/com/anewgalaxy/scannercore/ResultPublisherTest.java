@@ -0,0 +1,179 @@
+package com.anewgalaxy.scannercore;
+
+import com.anewgalaxy.scannercore.ResultPublisher.OverflowPolicy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ResultPublisherTest {
+
+    private final ResultPublisher<Integer> publisher = new ResultPublisher<>();
+
+    @Test
+    public void publish_onlyHandsOverWhatWasRequested() {
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, OverflowPolicy.DROP_OLDEST, 4);
+
+        publish(1, 2, 3);
+        assertEquals(Collections.emptyList(), recorder.items);
+
+        recorder.subscription.request(2);
+        assertEquals(Arrays.asList(1, 2), recorder.items);
+
+        publish(4);
+        recorder.subscription.request(Long.MAX_VALUE);
+        publish(5);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), recorder.items);
+        assertEquals(0, recorder.subscription.getDroppedCount());
+    }
+
+    @Test
+    public void publish_appliesOverflowPolicies() {
+        Recorder oldest = new Recorder();
+        Recorder newest = new Recorder();
+        Recorder coalesced = new Recorder();
+
+        ResultPublisher<Integer> summing = new ResultPublisher<>(Integer::sum);
+
+        publisher.subscribe(oldest, OverflowPolicy.DROP_OLDEST, 2);
+        publisher.subscribe(newest, OverflowPolicy.DROP_NEWEST, 2);
+        summing.subscribe(coalesced, OverflowPolicy.COALESCE, 2);
+
+        for (int i = 1; i <= 5; i++) {
+            publisher.publish(i);
+            summing.publish(i);
+        }
+
+        oldest.subscription.request(10);
+        newest.subscription.request(10);
+        coalesced.subscription.request(10);
+
+        assertEquals(Arrays.asList(4, 5), oldest.items);
+        assertEquals(Arrays.asList(1, 2), newest.items);
+        assertEquals(Arrays.asList(1, 2 + 3 + 4 + 5), coalesced.items);
+        assertEquals(3, oldest.subscription.getDroppedCount());
+    }
+
+    @Test
+    public void request_fromOnNextIsPickedUp() {
+        List<Integer> items = new ArrayList<>();
+
+        publisher.subscribe(new ResultPublisher.Subscriber<Integer>() {
+
+            private ResultPublisher.Subscription subscription;
+
+            @Override
+            public void onSubscribe(ResultPublisher.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                items.add(item);
+                subscription.request(1);
+            }
+        }, OverflowPolicy.DROP_NEWEST, 8);
+
+        publish(1, 2, 3);
+
+        assertEquals(Arrays.asList(1, 2, 3), items);
+    }
+
+    @Test
+    public void cancel_stopsItems() {
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, OverflowPolicy.DROP_OLDEST, 4);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        publish(1);
+        recorder.subscription.cancel();
+        publish(2);
+
+        assertEquals(Collections.singletonList(1), recorder.items);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void publish_neverWaitsForSlowSubscribers() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder fast = new Recorder();
+        List<Integer> slow = Collections.synchronizedList(new ArrayList<>());
+
+        publisher.subscribe(fast, OverflowPolicy.DROP_OLDEST, 1);
+        fast.subscription.request(Long.MAX_VALUE);
+
+        publisher.subscribe(new ResultPublisher.Subscriber<Integer>() {
+
+            @Override
+            public void onSubscribe(ResultPublisher.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                slow.add(item);
+            }
+        }, OverflowPolicy.DROP_OLDEST, 2, executor);
+
+        publisher.publish(1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The slow subscriber is stuck on the first item, the rest overflow its buffer
+        for (int i = 2; i <= 1000; i++)
+            publisher.publish(i);
+
+        assertEquals(1000, fast.items.size());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(1, 999, 1000), slow);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void request_rejectsNothing() {
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, OverflowPolicy.DROP_OLDEST, 1);
+
+        recorder.subscription.request(0);
+    }
+
+    private void publish(Integer... items) {
+        for (Integer item : items)
+            publisher.publish(item);
+    }
+
+    private static final class Recorder implements ResultPublisher.Subscriber<Integer> {
+
+        final List<Integer> items = new ArrayList<>();
+
+        ResultPublisher.Subscription subscription;
+
+        @Override
+        public void onSubscribe(ResultPublisher.Subscription subscription) { this.subscription = subscription; }
+
+        @Override
+        public void onNext(Integer item) { items.add(item); }
+    }
+}
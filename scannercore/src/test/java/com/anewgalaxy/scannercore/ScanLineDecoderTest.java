@@ -0,0 +1,110 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ScanLineDecoderTest {
+
+    private static final int SIZE = 300;
+
+    private final HotFormatReader reader = new HotFormatReader(hintsFor(BarcodeFormat.CODE_128),
+            new FormatHistogram(10), true);
+
+    private final List<LuminanceSource> decoded = new ArrayList<>();
+
+    private final PyramidDecoder.Step step = (source, points) -> {
+        decoded.add(source);
+
+        try {
+            Result result = reader.decode(new BinaryBitmap(new HybridBinarizer(source)));
+            Collections.addAll(points, result.getResultPoints());
+            return result;
+        } catch (NotFoundException exception) {
+            return null;
+        }
+    };
+
+    @Test
+    public void decode_readsOnlyTheRowsAroundTheMiddle() throws Exception {
+        ScanLineDecoder decoder = new ScanLineDecoder();
+        List<ResultPoint> points = new ArrayList<>();
+
+        Result result = decoder.decode(frameWithStripeAt(SIZE / 2 - 6), step, points);
+
+        assertNotNull(result);
+        assertEquals("SCAN-LINE", result.getText());
+        assertEquals(ScanLineDecoder.DEFAULT_ROWS, decoded.get(0).getHeight());
+        assertEquals(SIZE, decoded.get(0).getWidth());
+
+        // Back in the coordinates of the whole frame, on the rows of the band
+        for (ResultPoint point : result.getResultPoints())
+            assertEquals(SIZE / 2f, point.getY(), ScanLineDecoder.DEFAULT_ROWS / 2f);
+
+        assertEquals(result.getResultPoints().length, points.size());
+        assertEquals(SIZE / 2f, points.get(0).getY(), ScanLineDecoder.DEFAULT_ROWS / 2f);
+    }
+
+    @Test
+    public void decode_missesBarcodesAwayFromTheLaser() throws Exception {
+        LuminanceSource frame = frameWithStripeAt(20);
+
+        assertNull(new ScanLineDecoder().decode(frame, step, new ArrayList<>()));
+
+        // Trying harder over the whole frame does find it
+        reader.setTryHarder(true);
+
+        assertNotNull(new ScanLineDecoder(SIZE).decode(frame, step, new ArrayList<>()));
+        assertEquals(SIZE, decoded.get(1).getHeight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setRows_rejectsEmptyBand() {
+        new ScanLineDecoder().setRows(0);
+    }
+
+    @Test
+    public void isOneDOnly_onlyWithoutTwoDFormats() {
+        assertTrue(reader.isOneDOnly());
+        assertFalse(new HotFormatReader(hintsFor(BarcodeFormat.CODE_128, BarcodeFormat.QR_CODE),
+                new FormatHistogram(10), true).isOneDOnly());
+    }
+
+    private static LuminanceSource frameWithStripeAt(int top) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode("SCAN-LINE", BarcodeFormat.CODE_128, SIZE, 12);
+        byte[] yuvData = new byte[SIZE * SIZE * 3 / 2];
+
+        Arrays.fill(yuvData, (byte) 0xFF);
+
+        for (int y = 0; y < matrix.getHeight(); y++)
+            for (int x = 0; x < matrix.getWidth(); x++)
+                if (matrix.get(x, y))
+                    yuvData[(top + y) * SIZE + x] = 0;
+
+        return FramingRectLuminanceSource.wrap(yuvData, SIZE, SIZE, 0, 0, 0, SIZE, SIZE);
+    }
+
+    private static Map<DecodeHintType, Object> hintsFor(BarcodeFormat... formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Arrays.asList(formats));
+        return hints;
+    }
+}
@@ -0,0 +1,90 @@
+package com.anewgalaxy.scannercore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScanMetricsRecorderTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void snapshot_reportsCountersAndStages() {
+        ScanMetricsRecorder recorder = new ScanMetricsRecorder();
+
+        recorder.frameSeen();
+        recorder.frameSeen();
+        recorder.frameSeen();
+        recorder.frameDecoded();
+        recorder.frameDropped();
+        recorder.frameFailed();
+        recorder.frameRejected(FrameQualityGate.Verdict.BLURRY);
+        recorder.frameUnchanged();
+        recorder.record(ScanMetrics.Stage.DECODE, 20 * MS);
+
+        ScanMetrics metrics = recorder.snapshot();
+
+        assertEquals(3, metrics.getFramesSeen());
+        assertEquals(1, metrics.getFramesDecoded());
+        assertEquals(1, metrics.getFramesDropped());
+        assertEquals(1, metrics.getFramesFailed());
+        assertEquals(1, metrics.getFramesRejected());
+        assertEquals(1, metrics.getFramesRejected(FrameQualityGate.Verdict.BLURRY));
+        assertEquals(0, metrics.getFramesRejected(FrameQualityGate.Verdict.EMPTY));
+        assertEquals(1, metrics.getFramesUnchanged());
+        assertEquals(1, metrics.getStage(ScanMetrics.Stage.DECODE).getCount());
+        assertEquals(0, metrics.getStage(ScanMetrics.Stage.BINARIZE).getCount());
+
+        recorder.reset();
+
+        assertEquals(0, recorder.snapshot().getFramesSeen());
+        assertEquals(0, recorder.snapshot().getStage(ScanMetrics.Stage.DECODE).getCount());
+    }
+
+    @Test
+    public void binarized_reportsSuccessRatePerBinarizer() {
+        ScanMetricsRecorder recorder = new ScanMetricsRecorder();
+
+        recorder.binarized(BinarizerType.GLOBAL_HISTOGRAM, 2 * MS, true);
+        recorder.binarized(BinarizerType.GLOBAL_HISTOGRAM, 2 * MS, false);
+        recorder.binarized(BinarizerType.HYBRID, 8 * MS, true);
+
+        ScanMetrics metrics = recorder.snapshot();
+
+        assertEquals(2, metrics.getBinarizer(BinarizerType.GLOBAL_HISTOGRAM).getCount());
+        assertEquals(1, metrics.getBinarizerHits(BinarizerType.GLOBAL_HISTOGRAM));
+        assertEquals(0.5f, metrics.getBinarizerSuccessRate(BinarizerType.GLOBAL_HISTOGRAM), 0f);
+        assertEquals(1f, metrics.getBinarizerSuccessRate(BinarizerType.HYBRID), 0f);
+        assertEquals(8 * MS, metrics.getBinarizer(BinarizerType.HYBRID).getMax());
+    }
+
+    @Test
+    public void delivered_measuresFromFirstSighting() {
+        ScanMetricsRecorder recorder = new ScanMetricsRecorder();
+
+        // Frames may finish out of order
+        recorder.sighted(200 * MS);
+        recorder.sighted(100 * MS);
+        recorder.sighted(300 * MS);
+        recorder.delivered(400 * MS);
+
+        // Nothing was sighted since the last delivery
+        recorder.delivered(500 * MS);
+
+        LatencyHistogram.Snapshot endToEnd = recorder.snapshot().getStage(ScanMetrics.Stage.END_TO_END);
+
+        assertEquals(1, endToEnd.getCount());
+        assertEquals(300 * MS, endToEnd.getMax());
+    }
+
+    @Test
+    public void sighted_forgetsBarcodesThatLeftTheFrame() {
+        ScanMetricsRecorder recorder = new ScanMetricsRecorder();
+
+        recorder.sighted(100 * MS);
+        recorder.sighted(100 * MS + ScanMetricsRecorder.SIGHTING_TIMEOUT_NS + MS);
+        recorder.delivered(100 * MS + ScanMetricsRecorder.SIGHTING_TIMEOUT_NS + 11 * MS);
+
+        assertEquals(10 * MS, recorder.snapshot().getStage(ScanMetrics.Stage.END_TO_END).getMax());
+    }
+}
@@ -0,0 +1,71 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SyntheticFrameGeneratorTest {
+
+    @Test
+    public void generate_isReproducible() {
+        SyntheticFrameGenerator first = distorted(42);
+        SyntheticFrameGenerator second = distorted(42);
+
+        SyntheticFrame frame = first.generate(BarcodeFormat.CODE_39, "ABC-123", 320, 240, 7);
+
+        // Frames generated in between must not change frame 7
+        second.generate(BarcodeFormat.CODE_39, "ABC-123", 320, 240, 6);
+
+        assertArrayEquals(frame.getYuvData(), second.generate(BarcodeFormat.CODE_39, "ABC-123", 320, 240, 7).getYuvData());
+        assertFalse(Arrays.equals(frame.getYuvData(),
+                distorted(43).generate(BarcodeFormat.CODE_39, "ABC-123", 320, 240, 7).getYuvData()));
+    }
+
+    @Test
+    public void generate_mildlyDistortedFramesDecode() throws Exception {
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(1);
+        generator.setRotation(5);
+        generator.setPerspective(0.03f);
+        generator.setBlur(1);
+        generator.setNoise(4);
+        generator.setContrast(0.6f);
+
+        for (BarcodeFormat format : new BarcodeFormat[] { BarcodeFormat.CODE_39, BarcodeFormat.UPC_A, BarcodeFormat.QR_CODE }) {
+            SyntheticFrame frame = generator.generate(format, SyntheticFrameGenerator.defaultContents(format), 640, 480, 0);
+
+            assertEquals(640 * 480 * 3 / 2, frame.getYuvData().length);
+            assertEquals(format, decode(frame).getBarcodeFormat());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void generate_rejectsInvalidContents() {
+        new SyntheticFrameGenerator(0).generate(BarcodeFormat.UPC_A, "not digits", 640, 480, 0);
+    }
+
+    private static SyntheticFrameGenerator distorted(long seed) {
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(seed);
+        generator.setRotation(20);
+        generator.setPerspective(0.1f);
+        generator.setBlur(2);
+        generator.setNoise(10);
+        generator.setGlare(0.5f);
+        generator.setContrast(0.3f);
+        return generator;
+    }
+
+    static Result decode(SyntheticFrame frame) throws Exception {
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(frame.getYuvData(), frame.getWidth(),
+                frame.getHeight(), 0, 0, frame.getWidth(), frame.getHeight(), false);
+        return new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(source)));
+    }
+}
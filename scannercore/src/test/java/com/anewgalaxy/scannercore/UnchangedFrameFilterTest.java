@@ -0,0 +1,117 @@
+package com.anewgalaxy.scannercore;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class UnchangedFrameFilterTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private static final long MS = 1_000_000L;
+
+    private final UnchangedFrameFilter filter = new UnchangedFrameFilter();
+
+    @Test
+    public void isUnchanged_skipsSameSceneUntilItMoves() {
+        byte[] scene = frame(0);
+
+        assertFalse(filter.isUnchanged(fingerprint(noisy(scene, 1)), 0L));
+
+        filter.decoded(fingerprint(noisy(scene, 1)), false, 0L);
+
+        // Sensor noise alone doesn't make a new picture
+        assertTrue(filter.isUnchanged(fingerprint(noisy(scene, 2)), 10 * MS));
+        assertTrue(filter.isUnchanged(fingerprint(noisy(scene, 3)), 20 * MS));
+
+        assertFalse(filter.isUnchanged(fingerprint(frame(1)), 30 * MS));
+    }
+
+    @Test
+    public void isUnchanged_decodesFramesComingIntoFocus() {
+        byte[] scene = frame(0);
+
+        filter.decoded(fingerprint(blurred(scene)), false, 0L);
+
+        assertTrue(filter.isUnchanged(fingerprint(blurred(scene)), 10 * MS));
+        assertFalse(filter.isUnchanged(fingerprint(scene), 10 * MS));
+    }
+
+    @Test
+    public void isUnchanged_decodesAfterHitsAndMaxSkip() {
+        FrameFingerprint fingerprint = fingerprint(frame(0));
+
+        filter.decoded(fingerprint, true, 0L);
+        assertFalse(filter.isUnchanged(fingerprint, 10 * MS));
+
+        filter.decoded(fingerprint, false, 0L);
+        assertTrue(filter.isUnchanged(fingerprint, UnchangedFrameFilter.DEFAULT_MAX_SKIP_NS - 1));
+        assertFalse(filter.isUnchanged(fingerprint, UnchangedFrameFilter.DEFAULT_MAX_SKIP_NS));
+
+        filter.reset();
+        assertFalse(filter.isUnchanged(fingerprint, 10 * MS));
+    }
+
+    @Test
+    public void isUnchanged_waitsForEveryAttemptToFail() {
+        byte[] scene = frame(0);
+
+        filter.decoded(fingerprint(noisy(scene, 1)), false, 3, 0L);
+        assertFalse(filter.isUnchanged(fingerprint(noisy(scene, 2)), 10 * MS));
+
+        filter.decoded(fingerprint(noisy(scene, 2)), false, 3, 10 * MS);
+        assertFalse(filter.isUnchanged(fingerprint(noisy(scene, 3)), 20 * MS));
+
+        filter.decoded(fingerprint(noisy(scene, 3)), false, 3, 20 * MS);
+        assertTrue(filter.isUnchanged(fingerprint(noisy(scene, 4)), 30 * MS));
+
+        // A new scene starts the count over
+        filter.decoded(fingerprint(frame(1)), false, 3, 40 * MS);
+        assertFalse(filter.isUnchanged(fingerprint(frame(1)), 50 * MS));
+    }
+
+    private static byte[] frame(int index) {
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(4);
+        generator.setRotation(30);
+
+        return generator.generate(BarcodeFormat.QR_CODE, SyntheticFrameGenerator.defaultContents(BarcodeFormat.QR_CODE),
+                WIDTH, HEIGHT, index).getYuvData();
+    }
+
+    private static byte[] noisy(byte[] yuvData, long seed) {
+        byte[] copy = yuvData.clone();
+        Random random = new Random(seed);
+
+        for (int i = 0; i < WIDTH * HEIGHT; i++)
+            copy[i] = (byte) Math.max(0, Math.min(255, (copy[i] & 0xFF) + (int) (random.nextGaussian() * 4)));
+
+        return copy;
+    }
+
+    // Horizontal box blur over 9 pixels
+    private static byte[] blurred(byte[] yuvData) {
+        byte[] copy = yuvData.clone();
+
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 4; x < WIDTH - 4; x++) {
+                int sum = 0;
+                for (int i = -4; i <= 4; i++)
+                    sum += yuvData[y * WIDTH + x + i] & 0xFF;
+                copy[y * WIDTH + x] = (byte) (sum / 9);
+            }
+
+        return copy;
+    }
+
+    private static FrameFingerprint fingerprint(byte[] yuvData) {
+        LuminanceSource source = FramingRectLuminanceSource.wrap(yuvData, WIDTH, HEIGHT, 0, 0, 0, WIDTH, HEIGHT);
+
+        return FrameFingerprint.of(source);
+    }
+}